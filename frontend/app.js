@@ -10,6 +10,7 @@ const API_BASE_URL = "https://wallet-transaction-system.onrender.com/api";
 
 let transactionHistory = [];
 let currentBalanceUserId = null;
+let balanceStream = null;
 
 /* =============================
    INIT AFTER DOM LOAD
@@ -111,11 +112,29 @@ function checkBalance(userId, toast = true) {
     apiFetch(`${API_BASE_URL}/wallet/${userId}`)
         .then(d => {
             updateBalance(d.userId, d.balance);
+            watchBalance(d.userId);
             if (toast) showToast("Balance", formatCurrency(d.balance));
         })
         .catch(e => showToast("Error", e.message, "error"));
 }
 
+// Server-pushed balance updates for the displayed user; the browser reconnects on its own after network errors.
+function watchBalance(userId) {
+    if (balanceStream?.userId === userId) return;
+    balanceStream?.source.close();
+
+    const source = new EventSource(`${API_BASE_URL}/wallet/${userId}/updates`);
+    balanceStream = { userId, source };
+    source.addEventListener("balance", e => {
+        const d = JSON.parse(e.data);
+        if (currentBalanceUserId === d.userId) updateBalance(d.userId, d.balance);
+    });
+    source.onerror = () => {
+        // Closed for good (e.g. 503 when the server is full): fall back to fetching after each transaction.
+        if (source.readyState === EventSource.CLOSED && balanceStream?.source === source) balanceStream = null;
+    };
+}
+
 /* =============================
    CREATE USER
 ============================= */
@@ -156,7 +175,7 @@ document.getElementById("creditForm")?.addEventListener("submit", async e => {
 
         addToHistory(tx);
         showToast("Credited", formatCurrency(tx.amount), "success");
-        if (currentBalanceUserId === tx.userId) checkBalance(tx.userId, false);
+        if (currentBalanceUserId === tx.userId && !balanceStream) checkBalance(tx.userId, false);
         e.target.reset();
 
     } catch (err) {
@@ -181,7 +200,7 @@ document.getElementById("debitForm")?.addEventListener("submit", async e => {
 
         addToHistory(tx);
         showToast("Debited", formatCurrency(tx.amount), "success");
-        if (currentBalanceUserId === tx.userId) checkBalance(tx.userId, false);
+        if (currentBalanceUserId === tx.userId && !balanceStream) checkBalance(tx.userId, false);
         e.target.reset();
 
     } catch (err) {
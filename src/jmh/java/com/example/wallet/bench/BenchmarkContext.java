@@ -0,0 +1,54 @@
+package com.example.wallet.bench;
+
+import com.example.wallet.WalletTransactionSystemApplication;
+import com.example.wallet.model.User;
+import com.example.wallet.service.UserService;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application against a private in-memory H2 database, without a web server unless
+ * {@link #startWeb} is used (then on a random port). Events go to the outbox and are never relayed, and no
+ * Kafka listener is started, so no broker is needed.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String... extraProperties) {
+        return run(WebApplicationType.NONE, extraProperties);
+    }
+
+    static ConfigurableApplicationContext startWeb(String... extraProperties) {
+        return run(WebApplicationType.SERVLET, Stream.concat(Stream.of("server.port=0"), Stream.of(extraProperties))
+                .toArray(String[]::new));
+    }
+
+    private static ConfigurableApplicationContext run(WebApplicationType webApplicationType, String... extraProperties) {
+        // Passed as command-line arguments so they take precedence over application.yml.
+        Stream<String> properties = Stream.concat(Stream.of(
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN",
+                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=MYSQL",
+                "spring.jpa.show-sql=false",
+                "app.id.node-id=0",
+                "spring.kafka.admin.auto-create=false",
+                "app.kafka.listeners.auto-startup=false",
+                "app.events.publisher=outbox",
+                "app.outbox.poll-interval-ms=86400000",
+                "app.outbox.cleanup-interval-ms=86400000"), Stream.of(extraProperties));
+        return new SpringApplicationBuilder(WalletTransactionSystemApplication.class)
+                .web(webApplicationType)
+                .run(properties.map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    static Long createUser(ConfigurableApplicationContext context) {
+        String suffix = UUID.randomUUID().toString();
+        User user = context.getBean(UserService.class).createUser("bench-" + suffix, suffix + "@bench.local");
+        return user.getId();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.wallet.bench;
+
+import com.example.wallet.kafka.EventRing;
+import com.example.wallet.kafka.TransactionEvent;
+import com.example.wallet.kafka.TransactionEventSerializer;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.enums.TransactionType;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+/**
+ * Publishing transaction events through the in-process {@link EventRing} against the Kafka client path, without a
+ * Spring context. Run with {@code -bm thrpt} for events/sec and {@code -bm sample} for the publish latency
+ * distribution.
+ *
+ * <p>The ring benchmarks hand events to one counting handler; {@code ringRoundTrip} also waits until the handler
+ * has seen the event. The Kafka benchmarks go through {@link KafkaTemplate} and the binary serializer into a
+ * {@link MockProducer}, so they cover the client-side cost of a send but no network, broker or consumer time; a real
+ * broker only adds to them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventBusBenchmark {
+
+    private static final int BATCH = 100;
+
+    private static final String TOPIC = "wallet-transactions";
+
+    private MockProducer<String, TransactionEvent> producer;
+    private KafkaTemplate<String, TransactionEvent> kafkaTemplate;
+    private TransactionEvent event;
+    private List<TransactionEvent> batch;
+
+    @State(Scope.Benchmark)
+    public static class Ring {
+
+        @Param({"BLOCKING", "SLEEPING", "YIELDING", "BUSY_SPIN"})
+        private EventRing.WaitStrategy waitStrategy;
+
+        private final AtomicLong handled = new AtomicLong();
+
+        private EventRing<TransactionEvent> ring;
+        private long published;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            ring = new EventRing<>(65536, waitStrategy, 500, 1000, 5, 60_000);
+            ring.addHandler("bench", events -> handled.addAndGet(events.size()));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            ring.shutdown(5_000);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // KafkaTemplate closes the producer after every send; the factory's producers normally ignore that.
+        producer = new MockProducer<>(true, new StringSerializer(), new TransactionEventSerializer()) {
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public void close(Duration timeout) {
+            }
+        };
+        kafkaTemplate = new KafkaTemplate<>(new MockProducerFactory<>(() -> producer));
+        event = new TransactionEvent(361398653440004L, 361398651682816L, 361398651879424L,
+                Money.of(new BigDecimal("1234.5600")), TransactionType.DEBIT, Instant.now());
+        batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(event);
+        }
+    }
+
+    /** MockProducer keeps every record it was sent; dropped between iterations so the history does not grow. */
+    @Setup(Level.Iteration)
+    public void clearProducer() {
+        producer.clear();
+    }
+
+    @Benchmark
+    public void ringPublish(Ring ring) {
+        ring.ring.publish(event);
+        ring.published++;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void ringPublishBatch(Ring ring) {
+        ring.ring.publishAll(batch);
+        ring.published += BATCH;
+    }
+
+    @Benchmark
+    public void ringRoundTrip(Ring ring) {
+        ring.ring.publish(event);
+        ring.published++;
+        // Yields rather than spins, so the handler thread gets a core on small machines.
+        while (ring.handled.get() < ring.published) {
+            Thread.yield();
+        }
+    }
+
+    @Benchmark
+    public Object kafkaSend() {
+        return kafkaTemplate.send(TOPIC, String.valueOf(event.getUserId()), event);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void kafkaSendBatch() {
+        for (TransactionEvent e : batch) {
+            kafkaTemplate.send(TOPIC, String.valueOf(e.getUserId()), e);
+        }
+    }
+}
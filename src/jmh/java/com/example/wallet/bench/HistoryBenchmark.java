@@ -0,0 +1,93 @@
+package com.example.wallet.bench;
+
+import com.example.wallet.model.Money;
+import com.example.wallet.model.enums.TransactionType;
+import com.example.wallet.service.HistoryCursor;
+import com.example.wallet.service.Posting;
+import com.example.wallet.service.TransactionPage;
+import com.example.wallet.service.TransactionService;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * History reads for one wallet holding {@code rows} transactions: the full list, the first keyset page, a page
+ * from the middle of the history, and the NDJSON stream's row source.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10", "1000", "100000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private Long userId;
+    private HistoryCursor middle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Lifted so setup can fetch half the history as one page to find the middle cursor.
+        context = BenchmarkContext.start("app.history.max-page-size=" + Math.max(rows, PAGE_SIZE));
+        transactionService = context.getBean(TransactionService.class);
+        userId = BenchmarkContext.createUser(context);
+
+        List<Posting> postings = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            postings.add(new Posting(userId, Money.of(BigDecimal.ONE), TransactionType.CREDIT));
+        }
+        transactionService.applyBatch(postings);
+
+        // Walk to the page halfway through the history once, so the deep-page benchmark starts from there.
+        TransactionPage page = transactionService.getTransactionPage(userId, null, Math.max(1, rows / 2));
+        middle = page.next();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionPage list() {
+        return transactionService.getTransactionsForUser(userId);
+    }
+
+    @Benchmark
+    public TransactionPage firstPage() {
+        return transactionService.getTransactionPage(userId, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public TransactionPage middlePage() {
+        return transactionService.getTransactionPage(userId, middle, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void stream(Blackhole blackhole) {
+        transactionService.streamTransactions(userId, blackhole::consume);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.wallet.bench;
+
+import com.example.wallet.kafka.EventJournal;
+import com.example.wallet.kafka.TransactionEvent;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.enums.TransactionType;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link EventJournal} append and replay speed. Besides events per second, JMH reports the journal bytes moved per
+ * second as the {@code bytes} secondary result; divide by 10^6 for MB/s. The journal lives in a temporary directory,
+ * so the fsync cost is that of the file system behind {@code java.io.tmpdir}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournalBenchmark {
+
+    private static final int BATCH = 100;
+
+    /** Framed size of one journaled event. */
+    private static final int RECORD_BYTES = 51;
+
+    private TransactionEvent event;
+    private List<TransactionEvent> batch;
+
+    /** Empty journal appended to by {@link #append} and {@link #appendBatch}. */
+    @State(Scope.Benchmark)
+    public static class Appending {
+
+        @Param({"INTERVAL", "GROUP", "ALWAYS"})
+        private EventJournal.FsyncPolicy fsync;
+
+        private Path directory;
+        private EventJournal journal;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("journal");
+            journal = new EventJournal(directory, 16 << 20, fsync, 100, 2);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            journal.close();
+            delete(directory);
+        }
+    }
+
+    /** Journal of {@code records} events, replayed from the start by {@link #replay}. */
+    @State(Scope.Benchmark)
+    public static class Filled {
+
+        @Param({"200000"})
+        private int records;
+
+        private Path directory;
+        private EventJournal journal;
+
+        @Setup(Level.Trial)
+        public void setUp(JournalBenchmark benchmark) throws IOException {
+            directory = Files.createTempDirectory("journal-replay");
+            journal = new EventJournal(directory, 16 << 20, EventJournal.FsyncPolicy.INTERVAL, 100, 64);
+            for (int i = 0; i < records; i += BATCH) {
+                journal.appendAll(benchmark.batch);
+            }
+            System.out.printf("%njournal of %d events, %d bytes%n", records, journal.position());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            journal.close();
+            delete(directory);
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        event = new TransactionEvent(361398653440004L, 361398651682816L, 361398651879424L,
+                Money.of(new BigDecimal("1234.5600")), TransactionType.DEBIT, Instant.now());
+        batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(event);
+        }
+    }
+
+    @Benchmark
+    public void append(Appending appending, Bytes bytes) {
+        // Acknowledged right away so old segments are deleted and the disk does not fill up.
+        appending.journal.acknowledge(appending.journal.append(event));
+        bytes.bytes += RECORD_BYTES;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void appendBatch(Appending appending, Bytes bytes) {
+        long[] positions = appending.journal.appendAll(batch);
+        appending.journal.acknowledgeThrough(positions[positions.length - 1] + 1);
+        bytes.bytes += (long) RECORD_BYTES * BATCH;
+    }
+
+    @Benchmark
+    public long replay(Filled filled, Bytes bytes, Blackhole blackhole) throws IOException {
+        long end = filled.journal.replay(0, 500, events -> events.forEach(blackhole::consume));
+        bytes.bytes += end;
+        return end;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
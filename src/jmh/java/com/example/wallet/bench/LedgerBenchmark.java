@@ -0,0 +1,62 @@
+package com.example.wallet.bench;
+
+import com.example.wallet.model.Money;
+import com.example.wallet.service.TransactionService;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * {@link TransactionService#credit} and {@link TransactionService#debit} on one wallet: conditional update,
+ * balance read-back, transaction insert and outbox insert, each in its own database transaction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LedgerBenchmark {
+
+    private static final long AMOUNT = Money.of(BigDecimal.ONE);
+
+    private ConfigurableApplicationContext context;
+    private TransactionService transactionService;
+    private Long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        transactionService = context.getBean(TransactionService.class);
+        userId = BenchmarkContext.createUser(context);
+        // Enough for every debit the run can issue.
+        transactionService.credit(userId, Money.of(new BigDecimal("1000000000")), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object credit() {
+        return transactionService.credit(userId, AMOUNT, null);
+    }
+
+    @Benchmark
+    public Object debit() {
+        return transactionService.debit(userId, AMOUNT, null);
+    }
+}
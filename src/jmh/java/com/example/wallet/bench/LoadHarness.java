@@ -0,0 +1,486 @@
+package com.example.wallet.bench;
+
+import com.example.wallet.engine.LedgerEngine;
+import com.example.wallet.exception.InsufficientBalanceException;
+import com.example.wallet.exception.ServiceOverloadedException;
+import com.example.wallet.service.ShardRouting;
+import com.example.wallet.service.WalletService;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * In-process load generator for credits and debits, followed by a ledger consistency check.
+ *
+ * <p>{@code threads} workers post through {@link LedgerEngine} for {@code seconds}, choosing wallets from a Zipf
+ * distribution with exponent {@code zipf} over {@code wallets} wallets (rank 1 is the hottest) and crediting with
+ * probability {@code credit-ratio}. With {@code transfer-ratio} above zero that share of operations are instead
+ * transfers between two Zipf-sampled wallets, so hot wallets see transfers in both directions at once; any
+ * transfer aborted on a lock (deadlock or lock timeout) is counted and fails the run. {@code stripe} above zero
+ * stripes the hottest wallet over that many balance slots before the run. Throughput and latency percentiles are
+ * reported per operation. While the load runs, a monitor samples the wallets table for negative balances;
+ * afterwards every wallet's balance must equal the sum of its transactions. Any violation exits with status 1.
+ *
+ * <p>With {@code target=http} the application is started with its web server on a random port and the workers
+ * post through the REST API instead, so the servlet container's threading is part of what is measured. Set
+ * {@code profiles=virtual} (on a Java 21 runtime) to compare virtual threads with admission control against the
+ * default platform thread pool; requests shed with 503 are counted separately.
+ *
+ * <p>{@code db-shards} above zero spreads the wallets over that many embedded H2 databases ({@code app.sharding});
+ * transfers then only pair wallets on the same shard, and the checks run on every shard.
+ *
+ * <p>Arguments are {@code key=value}: {@code threads} (8), {@code wallets} (1000), {@code zipf} (1.1),
+ * {@code seconds} (30), {@code credit-ratio} (0.5), {@code transfer-ratio} (0), {@code initial-balance} (100),
+ * {@code stripe} (0), {@code db-shards} (0), {@code engine} (direct or sharded), {@code target} (engine or http),
+ * {@code profiles} (none).
+ */
+public final class LoadHarness {
+
+    private static final long MAX_AMOUNT_CENTS = 1_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = parse(args);
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        int walletCount = Integer.parseInt(options.getOrDefault("wallets", "1000"));
+        double zipfExponent = Double.parseDouble(options.getOrDefault("zipf", "1.1"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+        double creditRatio = Double.parseDouble(options.getOrDefault("credit-ratio", "0.5"));
+        double transferRatio = Double.parseDouble(options.getOrDefault("transfer-ratio", "0"));
+        BigDecimal initialBalance = new BigDecimal(options.getOrDefault("initial-balance", "100"));
+        int stripeSlots = Integer.parseInt(options.getOrDefault("stripe", "0"));
+        int dbShards = Integer.parseInt(options.getOrDefault("db-shards", "0"));
+        String engine = options.getOrDefault("engine", "direct");
+        boolean http = switch (options.getOrDefault("target", "engine")) {
+            case "engine" -> false;
+            case "http" -> true;
+            default -> throw new IllegalArgumentException("Unknown target: " + options.get("target"));
+        };
+        String profiles = options.getOrDefault("profiles", "");
+
+        List<String> properties = new ArrayList<>(List.of("app.engine.mode=" + engine));
+        if (!profiles.isEmpty()) {
+            properties.add("spring.profiles.active=" + profiles);
+        }
+        if (dbShards > 0) {
+            List<String> urls = new ArrayList<>(dbShards);
+            for (int i = 0; i < dbShards; i++) {
+                urls.add("jdbc:h2:mem:load-shard" + i + ";DB_CLOSE_DELAY=-1;MODE=MYSQL");
+            }
+            properties.add("app.sharding.enabled=true");
+            properties.add("app.sharding.urls=" + String.join(",", urls));
+            properties.add("spring.jpa.open-in-view=false");
+        }
+        ConfigurableApplicationContext context = http
+                ? BenchmarkContext.startWeb(properties.toArray(String[]::new))
+                : BenchmarkContext.start(properties.toArray(String[]::new));
+        int status;
+        try {
+            Poster poster = http ? new HttpPoster(context) : new EnginePoster(context.getBean(LedgerEngine.class));
+            status = run(context, poster, threads, walletCount, zipfExponent, seconds, creditRatio, transferRatio,
+                    initialBalance, stripeSlots);
+        } finally {
+            context.close();
+        }
+        System.exit(status);
+    }
+
+    private static int run(ConfigurableApplicationContext context, Poster poster, int threads, int walletCount,
+                           double zipfExponent, int seconds, double creditRatio, double transferRatio,
+                           BigDecimal initialBalance, int stripeSlots)
+            throws InterruptedException {
+        LedgerEngine ledgerEngine = context.getBean(LedgerEngine.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        ShardRouting shardRouting = context.getBean(ShardRouting.class);
+
+        Long[] userIds = new Long[walletCount];
+        for (int i = 0; i < walletCount; i++) {
+            userIds[i] = BenchmarkContext.createUser(context);
+            ledgerEngine.credit(userIds[i], initialBalance).join();
+        }
+        if (stripeSlots > 0) {
+            // The first wallet is the most frequently sampled one.
+            context.getBean(WalletService.class).stripe(userIds[0], stripeSlots);
+        }
+        ZipfSampler sampler = new ZipfSampler(walletCount, zipfExponent);
+        int[] shardOf = Arrays.stream(userIds).mapToInt(shardRouting::shardOf).toArray();
+
+        System.out.printf("Running %d threads for %ds over %d wallets (zipf %.2f, credit ratio %.2f, transfer ratio %.2f, "
+                        + "hottest wallet slots %d, db shards %d, engine %s, target %s, virtual threads %s, "
+                        + "admission control %s)%n",
+                threads, seconds, walletCount, zipfExponent, creditRatio, transferRatio, stripeSlots,
+                shardRouting.shardCount(), context.getEnvironment().getProperty("app.engine.mode"), poster.name(),
+                Threading.VIRTUAL.isActive(context.getEnvironment()),
+                context.getEnvironment().getProperty("app.admission.enabled", "false"));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong negativeSamples = new AtomicLong();
+        Thread monitor = new Thread(() -> {
+            while (running.get()) {
+                long negative = 0;
+                for (int shard = 0; shard < shardRouting.shardCount(); shard++) {
+                    try (ShardRouting.Binding binding = shardRouting.bind(shard)) {
+                        negative += jdbcTemplate.queryForObject("select count(*) from wallets where balance < 0", Long.class);
+                    }
+                }
+                if (negative > 0) {
+                    negativeSamples.incrementAndGet();
+                }
+                sleep(100);
+            }
+        }, "load-monitor");
+
+        List<Worker> workers = new ArrayList<>(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(poster, userIds, shardOf, sampler, creditRatio, transferRatio, running, done);
+            workers.add(worker);
+            new Thread(worker, "load-worker-" + i).start();
+        }
+        monitor.start();
+        long started = System.nanoTime();
+        Thread.sleep(seconds * 1_000L);
+        running.set(false);
+        done.await();
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+        monitor.join();
+
+        report("credit", workers.stream().map(w -> w.credits).toList(), elapsedSeconds);
+        report("debit", workers.stream().map(w -> w.debits).toList(), elapsedSeconds);
+        report("transfer", workers.stream().map(w -> w.transfers).toList(), elapsedSeconds);
+        long rejected = workers.stream().mapToLong(w -> w.rejected).sum();
+        long shed = workers.stream().mapToLong(w -> w.shed).sum();
+        long lockAborts = workers.stream().mapToLong(w -> w.lockAborts).sum();
+        long errors = workers.stream().mapToLong(w -> w.errors).sum();
+        System.out.printf("rejected debits/transfers (insufficient balance): %d, shed (503): %d, "
+                + "lock aborts (deadlock or lock timeout): %d, other errors: %d%n", rejected, shed, lockAborts, errors);
+
+        String signedAmount = "case when t.type in ('CREDIT', 'TRANSFER_IN') then t.amount "
+                + "when t.type in ('DEBIT', 'TRANSFER_OUT') then -t.amount end";
+        // A striped wallet's balance is its row plus its slots.
+        String balance = "(w.balance + coalesce((select sum(s.balance) from wallet_slots s where s.wallet_id = w.id), 0))";
+        List<Map<String, Object>> mismatched = new ArrayList<>();
+        long unpairedLegs = 0;
+        for (int shard = 0; shard < shardRouting.shardCount(); shard++) {
+            try (ShardRouting.Binding binding = shardRouting.bind(shard)) {
+                mismatched.addAll(jdbcTemplate.queryForList(
+                        "select w.id, " + balance + " as balance, coalesce(sum(" + signedAmount + "), 0) as ledger "
+                                + "from wallets w left join transactions t on t.wallet_id = w.id "
+                                + "group by w.id, w.balance "
+                                + "having " + balance + " <> coalesce(sum(" + signedAmount + "), 0) or w.balance < 0"));
+                // Every transfer leg must point at a leg of the opposite direction and the same amount that points back.
+                unpairedLegs += jdbcTemplate.queryForObject(
+                        "select count(*) from transactions t where t.type in ('TRANSFER_OUT', 'TRANSFER_IN') "
+                                + "and not exists (select 1 from transactions p where p.id = t.linked_transaction_id "
+                                + "and p.linked_transaction_id = t.id and p.amount = t.amount and p.type <> t.type)",
+                        Long.class);
+            }
+        }
+        boolean consistent = mismatched.isEmpty() && negativeSamples.get() == 0 && errors == 0 && lockAborts == 0
+                && unpairedLegs == 0;
+        mismatched.stream().limit(10).forEach(row -> System.out.println("  inconsistent wallet " + row));
+        System.out.printf("invariants: balance == sum(transactions) for all %d wallets: %s, "
+                        + "negative balance observed: %s, unpaired transfer legs: %d%n",
+                walletCount, mismatched.isEmpty() ? "OK" : mismatched.size() + " mismatched",
+                negativeSamples.get() == 0 ? "never" : negativeSamples.get() + " samples", unpairedLegs);
+        return consistent ? 0 : 1;
+    }
+
+    private static void report(String operation, List<LatencyRecorder> recorders, double elapsedSeconds) {
+        long[] latencies = LatencyRecorder.merge(recorders);
+        if (latencies.length == 0) {
+            System.out.printf("%-8s no operations%n", operation);
+            return;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-8s %9d ops %10.1f ops/s   p50 %8.3f ms   p99 %8.3f ms   p99.9 %8.3f ms   max %8.3f ms%n",
+                operation, latencies.length, latencies.length / elapsedSeconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                latencies[latencies.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Worker implements Runnable {
+
+        private final Poster poster;
+        private final Long[] userIds;
+        private final int[] shardOf;
+        private final boolean[] hasPeer;
+        private final ZipfSampler sampler;
+        private final double creditRatio;
+        private final double transferRatio;
+        private final AtomicBoolean running;
+        private final CountDownLatch done;
+        private final LatencyRecorder credits = new LatencyRecorder();
+        private final LatencyRecorder debits = new LatencyRecorder();
+        private final LatencyRecorder transfers = new LatencyRecorder();
+        private long rejected;
+        private long shed;
+        private long lockAborts;
+        private long errors;
+
+        private Worker(Poster poster, Long[] userIds, int[] shardOf, ZipfSampler sampler, double creditRatio,
+                       double transferRatio, AtomicBoolean running, CountDownLatch done) {
+            this.poster = poster;
+            this.userIds = userIds;
+            this.shardOf = shardOf;
+            // Transfers stay on one shard, so a wallet alone on its shard only gets credits and debits.
+            Map<Integer, Long> perShard = Arrays.stream(shardOf).boxed()
+                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+            this.hasPeer = new boolean[shardOf.length];
+            for (int i = 0; i < shardOf.length; i++) {
+                hasPeer[i] = perShard.get(shardOf[i]) > 1;
+            }
+            this.sampler = sampler;
+            this.creditRatio = creditRatio;
+            this.transferRatio = transferRatio;
+            this.running = running;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            try {
+                while (running.get()) {
+                    int from = sampler.sample(random);
+                    Long userId = userIds[from];
+                    BigDecimal amount = BigDecimal.valueOf(1 + random.nextLong(MAX_AMOUNT_CENTS), 2);
+                    boolean transfer = hasPeer[from] && random.nextDouble() < transferRatio;
+                    boolean credit = !transfer && random.nextDouble() < creditRatio;
+                    LatencyRecorder latencies = transfer ? transfers : credit ? credits : debits;
+                    long start = System.nanoTime();
+                    try {
+                        Outcome outcome;
+                        if (transfer) {
+                            int to;
+                            do {
+                                to = sampler.sample(random);
+                            } while (to == from || shardOf[to] != shardOf[from]);
+                            outcome = poster.transfer(userId, userIds[to], amount);
+                        } else {
+                            outcome = poster.post(userId, amount, credit);
+                        }
+                        switch (outcome) {
+                            case APPLIED -> latencies.record(System.nanoTime() - start);
+                            case INSUFFICIENT -> {
+                                rejected++;
+                                latencies.record(System.nanoTime() - start);
+                            }
+                            case SHED -> shed++;
+                        }
+                    } catch (Exception ex) {
+                        if (isLockAbort(ex)) {
+                            lockAborts++;
+                        } else {
+                            errors++;
+                        }
+                        System.err.println((transfer ? "transfer" : "posting") + " failed: " + ex);
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private static boolean isLockAbort(Throwable ex) {
+            for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+                if (cause instanceof PessimisticLockingFailureException) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private enum Outcome { APPLIED, INSUFFICIENT, SHED }
+
+    private interface Poster {
+
+        Outcome post(Long userId, BigDecimal amount, boolean credit) throws Exception;
+
+        Outcome transfer(Long fromUserId, Long toUserId, BigDecimal amount) throws Exception;
+
+        String name();
+    }
+
+    private record EnginePoster(LedgerEngine ledgerEngine) implements Poster {
+
+        @Override
+        public Outcome post(Long userId, BigDecimal amount, boolean credit) {
+            try {
+                (credit ? ledgerEngine.credit(userId, amount) : ledgerEngine.debit(userId, amount)).join();
+                return Outcome.APPLIED;
+            } catch (CompletionException | InsufficientBalanceException ex) {
+                return outcomeOf(ex);
+            }
+        }
+
+        @Override
+        public Outcome transfer(Long fromUserId, Long toUserId, BigDecimal amount) {
+            try {
+                ledgerEngine.transfer(fromUserId, toUserId, amount).join();
+                return Outcome.APPLIED;
+            } catch (CompletionException | InsufficientBalanceException ex) {
+                return outcomeOf(ex);
+            }
+        }
+
+        private static Outcome outcomeOf(RuntimeException ex) {
+            Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+            if (cause instanceof InsufficientBalanceException) {
+                return Outcome.INSUFFICIENT;
+            }
+            if (cause instanceof ServiceOverloadedException) {
+                return Outcome.SHED;
+            }
+            throw ex;
+        }
+
+        @Override
+        public String name() {
+            return "engine";
+        }
+    }
+
+    /** Posts over HTTP/1.1 keep-alive connections; 400 from a debit or transfer is an insufficient balance. */
+    private static final class HttpPoster implements Poster {
+
+        private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        private final String baseUrl;
+
+        private HttpPoster(ConfigurableApplicationContext context) {
+            this.baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + "/api/transactions/";
+        }
+
+        @Override
+        public Outcome post(Long userId, BigDecimal amount, boolean credit) throws Exception {
+            return send(credit ? "credit" : "debit",
+                    "{\"userId\":" + userId + ",\"amount\":" + amount.toPlainString() + "}", !credit);
+        }
+
+        @Override
+        public Outcome transfer(Long fromUserId, Long toUserId, BigDecimal amount) throws Exception {
+            return send("transfer", "{\"fromUserId\":" + fromUserId + ",\"toUserId\":" + toUserId
+                    + ",\"amount\":" + amount.toPlainString() + "}", true);
+        }
+
+        private Outcome send(String path, String body, boolean mayBeInsufficient) throws Exception {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            return switch (response.statusCode()) {
+                case 201 -> Outcome.APPLIED;
+                case 400 -> {
+                    if (!mayBeInsufficient) {
+                        throw new IllegalStateException(path + " rejected: " + response.body());
+                    }
+                    yield Outcome.INSUFFICIENT;
+                }
+                case 503 -> Outcome.SHED;
+                default -> throw new IllegalStateException("HTTP " + response.statusCode() + ": " + response.body());
+            };
+        }
+
+        @Override
+        public String name() {
+            return "http";
+        }
+    }
+
+    /**
+     * Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^exponent, by binary search over the
+     * cumulative distribution.
+     */
+    private static final class ZipfSampler {
+
+        private final double[] cumulative;
+
+        private ZipfSampler(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 0; rank < n; rank++) {
+                sum += 1 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+            for (int rank = 0; rank < n; rank++) {
+                cumulative[rank] /= sum;
+            }
+        }
+
+        private int sample(ThreadLocalRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+
+    /**
+     * Per-thread latency log in nanoseconds; growing array so recording does not allocate per sample.
+     */
+    private static final class LatencyRecorder {
+
+        private long[] samples = new long[1 << 14];
+        private int size;
+
+        private void record(long nanos) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+        }
+
+        private static long[] merge(List<LatencyRecorder> recorders) {
+            long[] merged = new long[recorders.stream().mapToInt(r -> r.size).sum()];
+            int offset = 0;
+            for (LatencyRecorder recorder : recorders) {
+                System.arraycopy(recorder.samples, 0, merged, offset, recorder.size);
+                offset += recorder.size;
+            }
+            return merged;
+        }
+    }
+}
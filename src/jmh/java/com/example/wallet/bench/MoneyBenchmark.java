@@ -0,0 +1,54 @@
+package com.example.wallet.bench;
+
+import com.example.wallet.model.Money;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Balance arithmetic of a posting, a credit followed by a checked debit, on {@link BigDecimal} against
+ * {@link Money} units. Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm} (bytes per operation).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    // Request amounts arrive with whatever scale the client sent; stored balances carry scale 4.
+    private BigDecimal decimalAmount = new BigDecimal("12.34");
+    private BigDecimal decimalBalance = new BigDecimal("1000.0000");
+
+    private long unitsAmount = Money.of(new BigDecimal("12.34"));
+    private long unitsBalance = Money.of(new BigDecimal("1000.0000"));
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        BigDecimal balance = decimalBalance.add(decimalAmount);
+        if (balance.compareTo(decimalAmount) >= 0) {
+            balance = balance.subtract(decimalAmount);
+        }
+        decimalBalance = balance;
+        return balance;
+    }
+
+    @Benchmark
+    public long units() {
+        long balance = Money.add(unitsBalance, unitsAmount);
+        if (balance >= unitsAmount) {
+            balance = Money.subtract(balance, unitsAmount);
+        }
+        unitsBalance = balance;
+        return balance;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.wallet.bench;
+
+import com.example.wallet.dto.TransactionResponse;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.Transaction;
+import com.example.wallet.model.Wallet;
+import com.example.wallet.model.enums.TransactionStatus;
+import com.example.wallet.model.enums.TransactionType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Turning a written {@link Transaction} into the API response: {@link TransactionResponse#of} alone and followed
+ * by JSON serialization as the controller returns it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseMappingBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private Transaction transaction;
+    private Long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userId = 361398651682816L;
+        Wallet wallet = Wallet.builder().id(361398651879424L).balance(Money.of(BigDecimal.TEN)).version(1L).build();
+        transaction = Transaction.builder()
+                .id(361398653440004L)
+                .wallet(wallet)
+                .amount(Money.of(new BigDecimal("1234.5600")))
+                .type(TransactionType.CREDIT)
+                .status(TransactionStatus.SUCCESS)
+                .timestamp(Instant.now())
+                .build();
+    }
+
+    @Benchmark
+    public TransactionResponse map() {
+        return TransactionResponse.of(transaction, userId);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(TransactionResponse.of(transaction, userId));
+    }
+}
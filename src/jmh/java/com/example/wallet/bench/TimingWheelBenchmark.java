@@ -0,0 +1,69 @@
+package com.example.wallet.bench;
+
+import com.example.wallet.service.TimingWheel;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Hold expiry bookkeeping with {@code pending} holds already in the wheel, spread over a week at one-second ticks:
+ * placing and capturing a hold, and placing one while the clock moves a tick. Costs should not grow with
+ * {@code pending}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimingWheelBenchmark {
+
+    private static final long TICK_MS = 1000;
+
+    private static final long WEEK_MS = TimeUnit.DAYS.toMillis(7);
+
+    @Param({"10000", "1000000"})
+    private int pending;
+
+    private TimingWheel<Long> wheel;
+
+    private long now;
+
+    private long next;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        wheel = new TimingWheel<>(TICK_MS, 512, 0);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long id = 0; id < pending; id++) {
+            wheel.schedule(id, random.nextLong(WEEK_MS));
+        }
+        now = 0;
+        next = pending;
+    }
+
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        TimingWheel.Entry<Long> entry = wheel.schedule(next++, now + ThreadLocalRandom.current().nextLong(WEEK_MS));
+        return wheel.cancel(entry);
+    }
+
+    @Benchmark
+    public void scheduleAndTick(Blackhole expired) {
+        wheel.schedule(next++, now + ThreadLocalRandom.current().nextLong(WEEK_MS));
+        now += TICK_MS;
+        wheel.advance(now, expired::consume);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.wallet.bench;
+
+import com.example.wallet.kafka.TransactionEvent;
+import com.example.wallet.kafka.TransactionEventDeserializer;
+import com.example.wallet.kafka.TransactionEventSerializer;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.enums.TransactionType;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+/**
+ * Kafka value encoding of a {@link TransactionEvent}: the JSON serde against the binary one. Encoded sizes are
+ * printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionEventSerdeBenchmark {
+
+    private static final String TOPIC = "wallet-transactions";
+
+    private final JsonSerializer<TransactionEvent> jsonSerializer = new JsonSerializer<>();
+    private final JsonDeserializer<TransactionEvent> jsonDeserializer = new JsonDeserializer<>(TransactionEvent.class, false);
+    private final TransactionEventSerializer binarySerializer = new TransactionEventSerializer();
+    private final TransactionEventDeserializer binaryDeserializer = new TransactionEventDeserializer();
+
+    private TransactionEvent event;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        event = new TransactionEvent(361398653440004L, 361398651682816L, 361398651879424L,
+                Money.of(new BigDecimal("1234.5600")), TransactionType.DEBIT, Instant.now());
+        json = jsonSerializer.serialize(TOPIC, event);
+        binary = binarySerializer.serialize(TOPIC, event);
+        System.out.printf("%nbytes per event: json=%d binary=%d%n", json.length, binary.length);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return jsonSerializer.serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return binarySerializer.serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public TransactionEvent decodeJson() {
+        return jsonDeserializer.deserialize(TOPIC, json);
+    }
+
+    @Benchmark
+    public TransactionEvent decodeBinary() {
+        return binaryDeserializer.deserialize(TOPIC, binary);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.wallet.config;
+
+import com.example.wallet.model.id.Snowflake;
+import com.example.wallet.model.id.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * This instance's {@link Snowflake}; its node id ({@code app.id.node-id}, 0-31) must differ between instances.
+ */
+@Slf4j
+@Configuration
+public class IdConfig {
+
+    @Value("${app.id.node-id:}")
+    private String nodeId;
+
+    @Value("${app.id.require-node-id:false}")
+    private boolean requireNodeId;
+
+    @Value("${app.kafka.enabled:true}")
+    private boolean kafkaEnabled;
+
+    @Value("${app.datasource.read-replicas.enabled:false}")
+    private boolean readReplicasEnabled;
+
+    @Bean
+    public Snowflake snowflake() {
+        if (!nodeId.isBlank()) {
+            return Snowflake.forNode(Integer.parseInt(nodeId.trim()));
+        }
+        if (requireNodeId || readReplicasEnabled) {
+            throw new IllegalStateException("Set app.id.node-id (APP_NODE_ID) to an id unique to this instance");
+        }
+        if (kafkaEnabled) {
+            log.warn("app.id.node-id (APP_NODE_ID) is not set, using node 0; "
+                    + "give each instance its own id before running more than one");
+        }
+        return Snowflake.forNode(0);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer snowflakeNodeId(Snowflake snowflake) {
+        return properties -> properties.put(SnowflakeIdGenerator.NODE_ID_SETTING, snowflake.nodeId());
+    }
+}
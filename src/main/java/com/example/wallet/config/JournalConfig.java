@@ -0,0 +1,61 @@
+package com.example.wallet.config;
+
+import com.example.wallet.kafka.EventJournal;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The {@link EventJournal} of the Kafka publisher, kept in {@code app.journal.dir}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.journal.enabled", havingValue = "true")
+public class JournalConfig {
+
+    @Value("${app.journal.dir:journal}")
+    private Path directory;
+
+    @Value("${app.journal.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    /** {@code always}, {@code interval} or {@code group}, see {@link EventJournal.FsyncPolicy}. */
+    @Value("${app.journal.fsync:group}")
+    private String fsync;
+
+    @Value("${app.journal.fsync-interval-ms:100}")
+    private long fsyncIntervalMs;
+
+    @Value("${app.journal.retained-segments:8}")
+    private int retainedSegments;
+
+    @Value("${app.events.publisher:kafka}")
+    private String publisher;
+
+    @Bean(destroyMethod = "close")
+    public EventJournal eventJournal(MeterRegistry meterRegistry) throws IOException {
+        if (!"kafka".equals(publisher)) {
+            throw new IllegalStateException("app.journal requires app.events.publisher=kafka");
+        }
+        EventJournal journal = new EventJournal(directory, segmentBytes, fsyncPolicy(), fsyncIntervalMs,
+                retainedSegments);
+        Gauge.builder("wallet.journal.unacknowledged", journal, j -> j.position() - j.acknowledgedPosition())
+                .description("Journaled transaction events not yet acknowledged by Kafka")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        return journal;
+    }
+
+    private EventJournal.FsyncPolicy fsyncPolicy() {
+        return switch (fsync) {
+            case "always" -> EventJournal.FsyncPolicy.ALWAYS;
+            case "interval" -> EventJournal.FsyncPolicy.INTERVAL;
+            case "group" -> EventJournal.FsyncPolicy.GROUP;
+            default -> throw new IllegalStateException("Unknown app.journal.fsync: " + fsync);
+        };
+    }
+}
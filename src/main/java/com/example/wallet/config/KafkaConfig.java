@@ -1,63 +1,147 @@
 package com.example.wallet.config;
 
 import com.example.wallet.kafka.TransactionEvent;
+import com.example.wallet.kafka.TransactionEventCodec;
+import com.example.wallet.kafka.TransactionEventDeserializer;
+import com.example.wallet.kafka.TransactionEventSerializer;
 import java.util.HashMap;
 import java.util.Map;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.admin.NewTopic;
-import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.FixedBackOff;
 
+/** Off with {@code app.kafka.enabled=false}, when Kafka's auto-configuration is excluded (the {@code inprocess} profile). */
 @Configuration
+@ConditionalOnProperty(name = "app.kafka.enabled", havingValue = "true", matchIfMissing = true)
 public class KafkaConfig {
 
     @Value("${app.kafka.topic.transaction}")
     private String transactionTopic;
 
-    @Value("${spring.kafka.bootstrap-servers}")
-    private String bootstrapServers;
+    /** Value format on the wire: {@code json} or {@code binary} ({@link TransactionEventCodec}). */
+    @Value("${app.kafka.serde:json}")
+    private String serde;
+
+    private final KafkaProperties kafkaProperties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Environment environment;
+
+    public KafkaConfig(KafkaProperties kafkaProperties, MeterRegistry meterRegistry, Environment environment) {
+        this.kafkaProperties = kafkaProperties;
+        this.meterRegistry = meterRegistry;
+        this.environment = environment;
+    }
+
+    @Value("${app.kafka.topic.partitions:6}")
+    private int transactionTopicPartitions;
+
+    @Value("${app.projection.concurrency:3}")
+    private int projectionConcurrency;
+
+    @Value("${app.projection.retry-backoff-ms:1000}")
+    private long projectionRetryBackoffMs;
 
     @Bean
     public NewTopic transactionTopic() {
-        return TopicBuilder.name(transactionTopic).build();
+        return TopicBuilder.name(transactionTopic).partitions(transactionTopicPartitions).build();
     }
 
     @Bean
     public ProducerFactory<String, TransactionEvent> producerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        // Start from spring.kafka.producer.* so batching, compression and acks are tuned in configuration.
+        Map<String, Object> configProps = new HashMap<>(kafkaProperties.buildProducerProperties(null));
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+                isBinary() ? TransactionEventSerializer.class : JsonSerializer.class);
+        DefaultKafkaProducerFactory<String, TransactionEvent> factory = new DefaultKafkaProducerFactory<>(configProps);
+        // Client metrics (record send rate, request latency, buffer use); send latency per result comes from the template.
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
     }
 
+    /** Observed, so every send is timed as spring.kafka.template with its outcome. */
     @Bean
     public KafkaTemplate<String, TransactionEvent> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+        KafkaTemplate<String, TransactionEvent> template = new KafkaTemplate<>(producerFactory());
+        template.setObservationEnabled(true);
+        return template;
     }
 
     @Bean
     public ConsumerFactory<String, TransactionEvent> consumerFactory() {
-        JsonDeserializer<TransactionEvent> deserializer = new JsonDeserializer<>(TransactionEvent.class, false);
-        deserializer.addTrustedPackages("*");
-
-        Map<String, Object> props = new HashMap<>();
-        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, deserializer);
-        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), deserializer);
+        Deserializer<TransactionEvent> deserializer;
+        if (isBinary()) {
+            deserializer = new TransactionEventDeserializer();
+        } else {
+            JsonDeserializer<TransactionEvent> jsonDeserializer = new JsonDeserializer<>(TransactionEvent.class, false);
+            jsonDeserializer.addTrustedPackages("*");
+            deserializer = jsonDeserializer;
+        }
+
+        Map<String, Object> props = new HashMap<>(kafkaProperties.buildConsumerProperties(null));
+        DefaultKafkaConsumerFactory<String, TransactionEvent> factory =
+                new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), deserializer);
+        // Includes kafka.consumer.fetch.manager.records.lag per partition.
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
+    }
+
+    /**
+     * Batch listener for the wallet projection. A failed batch is retried indefinitely rather than skipped,
+     * since dropping events would leave the projection permanently wrong. With
+     * {@code spring.threads.virtual.enabled} on Java 21 the consumer threads are virtual, as Boot does for
+     * its own listener factory. Listener calls are observed and timed as spring.kafka.listener.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, TransactionEvent> transactionEventListenerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, TransactionEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(projectionConcurrency);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(
+                new FixedBackOff(projectionRetryBackoffMs, FixedBackOff.UNLIMITED_ATTEMPTS)));
+        factory.getContainerProperties().setObservationEnabled(true);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            executor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(executor);
+        }
+        return factory;
+    }
+
+    private boolean isBinary() {
+        return switch (serde) {
+            case "binary" -> true;
+            case "json" -> false;
+            default -> throw new IllegalStateException("Unknown app.kafka.serde: " + serde);
+        };
     }
 }
 
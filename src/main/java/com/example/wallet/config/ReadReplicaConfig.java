@@ -0,0 +1,91 @@
+package com.example.wallet.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Sends read-only transactions to read replicas and everything else to the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.read-replicas.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    /** JDBC URLs of the replicas; they use the primary's credentials and driver. */
+    @Value("${app.datasource.read-replicas.urls}")
+    private List<String> replicaUrls;
+
+    /** {@code round-robin} or {@code least-busy} (fewest connections in use). */
+    @Value("${app.datasource.read-replicas.selection:round-robin}")
+    private String selection;
+
+    @Value("${app.datasource.read-replicas.maximum-pool-size:${spring.datasource.hikari.maximum-pool-size:10}}")
+    private int maximumPoolSize;
+
+    @Value("${app.datasource.read-replicas.connection-timeout-ms:250}")
+    private long connectionTimeoutMs;
+
+    @Value("${app.datasource.read-replicas.failure-cooldown-ms:5000}")
+    private long failureCooldownMs;
+
+    // A session held open across the request would keep its first connection, so routing per transaction needs it off.
+    @Value("${spring.jpa.open-in-view:true}")
+    private boolean openInView;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties,
+                                                      MeterRegistry meterRegistry) {
+        if (openInView) {
+            throw new IllegalStateException("Read replicas require spring.jpa.open-in-view=false");
+        }
+        List<HikariDataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (String url : replicaUrls) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + replicas.size());
+            config.setJdbcUrl(url);
+            config.setUsername(properties.determineUsername());
+            config.setPassword(properties.determinePassword());
+            config.setDriverClassName(properties.determineDriverClassName());
+            config.setMaximumPoolSize(maximumPoolSize);
+            config.setReadOnly(true);
+            // Fail over quickly instead of waiting out the primary's connection timeout, and start even if down.
+            config.setConnectionTimeout(connectionTimeoutMs);
+            config.setInitializationFailTimeout(-1);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new HikariDataSource(config));
+        }
+        ReplicaRoutingDataSource.Selection mode = switch (selection) {
+            case "round-robin" -> ReplicaRoutingDataSource.Selection.ROUND_ROBIN;
+            case "least-busy" -> ReplicaRoutingDataSource.Selection.LEAST_BUSY;
+            default -> throw new IllegalStateException("Unknown app.datasource.read-replicas.selection: " + selection);
+        };
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, mode, failureCooldownMs, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        // Takes the connection at the first statement, once the transaction has said whether it is read-only.
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.wallet.config;
+
+import com.example.wallet.service.ReplicaReads;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * Connections for read-only transactions, from a replica pool unless pinned or no replica is reachable.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    public enum Selection { ROUND_ROBIN, LEAST_BUSY }
+
+    private final DataSource primary;
+    private final List<HikariDataSource> replicas;
+    private final Selection selection;
+    private final long cooldownNanos;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLongArray downUntil;
+
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+    private final Counter replicaFailures;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, Selection selection,
+                                    long cooldownMs, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.selection = selection;
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMs);
+        this.downUntil = new AtomicLongArray(replicas.size());
+        this.replicaReads = Counter.builder("wallet.datasource.reads").tag("target", "replica")
+                .description("Read-only transactions by the database they ran on").register(meterRegistry);
+        this.primaryReads = Counter.builder("wallet.datasource.reads").tag("target", "primary")
+                .description("Read-only transactions by the database they ran on").register(meterRegistry);
+        this.replicaFailures = Counter.builder("wallet.datasource.replica.failures")
+                .description("Replica connection failures that sent reads elsewhere").register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!ReplicaReads.isPinnedToPrimary()) {
+            for (int index : candidates()) {
+                try {
+                    Connection connection = replicas.get(index).getConnection();
+                    replicaReads.increment();
+                    return connection;
+                } catch (SQLException ex) {
+                    replicaFailures.increment();
+                    downUntil.set(index, System.nanoTime() + cooldownNanos);
+                    log.warn("Replica {} unavailable, skipping it for {} ms: {}", replicas.get(index).getPoolName(),
+                            TimeUnit.NANOSECONDS.toMillis(cooldownNanos), ex.getMessage());
+                }
+            }
+        }
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica pools use their configured credentials");
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+    }
+
+    /** Replicas not cooling down, in the order to try them. */
+    private List<Integer> candidates() {
+        long now = System.nanoTime();
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        List<Integer> healthy = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            if (downUntil.get(index) - now <= 0) {
+                healthy.add(index);
+            }
+        }
+        if (selection == Selection.LEAST_BUSY && healthy.size() > 1) {
+            // Stable sort: ties keep the round-robin order, so idle pools still share the load.
+            healthy.sort(Comparator.comparingInt(index -> replicas.get(index).getHikariPoolMXBean().getActiveConnections()));
+        }
+        return healthy;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.wallet.config;
+
+import com.example.wallet.service.ShardRouting;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * One connection pool per database in {@code app.sharding.urls}, routed by {@link ShardRouting}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Value("${app.sharding.urls}")
+    private List<String> shardUrls;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int maximumPoolSize;
+
+    @Value("${app.datasource.read-replicas.enabled:false}")
+    private boolean readReplicas;
+
+    // A session held open across the request would keep its first connection, so routing per transaction needs it off.
+    @Value("${spring.jpa.open-in-view:true}")
+    private boolean openInView;
+
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(DataSourceProperties properties, MeterRegistry meterRegistry) {
+        if (openInView) {
+            throw new IllegalStateException("Sharding requires spring.jpa.open-in-view=false");
+        }
+        if (readReplicas) {
+            throw new IllegalStateException("Sharding cannot be combined with app.datasource.read-replicas");
+        }
+        List<HikariDataSource> shards = new ArrayList<>(shardUrls.size());
+        for (String url : shardUrls) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("shard-" + shards.size());
+            config.setJdbcUrl(url);
+            config.setUsername(properties.determineUsername());
+            config.setPassword(properties.determinePassword());
+            config.setDriverClassName(properties.determineDriverClassName());
+            config.setMaximumPoolSize(maximumPoolSize);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            shards.add(new HikariDataSource(config));
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardSchemaCustomizer(ShardRouting shardRouting) {
+        Integrator schemaOnEveryShard = new Integrator() {
+            @Override
+            public void integrate(Metadata metadata, BootstrapContext bootstrapContext,
+                                  SessionFactoryImplementor sessionFactory) {
+                // Hibernate itself handles the schema of shard 0, the DataSource's default.
+                for (int shard = 1; shard < shardRouting.shardCount(); shard++) {
+                    try (ShardRouting.Binding binding = shardRouting.bind(shard)) {
+                        SchemaManagementToolCoordinator.process(metadata, sessionFactory.getServiceRegistry(),
+                                new HashMap<>(sessionFactory.getProperties()), action -> { });
+                    }
+                }
+            }
+
+            @Override
+            public void disintegrate(SessionFactoryImplementor sessionFactory,
+                                     SessionFactoryServiceRegistry serviceRegistry) {
+            }
+        };
+        return properties -> properties.put("hibernate.integrator_provider",
+                (IntegratorProvider) () -> List.of(schemaOnEveryShard));
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.wallet.controller;
+
+import com.example.wallet.dto.HoldRequest;
+import com.example.wallet.dto.TransactionResponse;
+import com.example.wallet.engine.LedgerMetrics;
+import com.example.wallet.model.Money;
+import com.example.wallet.service.HoldService;
+import com.example.wallet.service.IdempotencyGuard;
+import com.example.wallet.service.Posting;
+import jakarta.validation.Valid;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/holds")
+@RequiredArgsConstructor
+public class HoldController {
+
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final HoldService holdService;
+    private final IdempotencyGuard idempotencyGuard;
+    private final LedgerMetrics ledgerMetrics;
+
+    /** Returns the PENDING hold, whose id {@link #capture} and {@link #voidHold} take. */
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public CompletableFuture<TransactionResponse> authorize(@Valid @RequestBody HoldRequest request,
+                                                            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        String key = idempotencyKey != null ? idempotencyKey : request.getIdempotencyKey();
+        Long ttlMs = request.getTtlSeconds() == null ? null : TimeUnit.SECONDS.toMillis(request.getTtlSeconds());
+        Posting posting = Posting.hold(request.getUserId(), Money.of(request.getAmount()), key);
+        return ledgerMetrics.record("authorize", () -> idempotencyGuard.execute(posting,
+                        p -> CompletableFuture.completedFuture(holdService.authorize(p.userId(), p.amount(), ttlMs, key))))
+                .thenApply(tx -> TransactionResponse.of(tx, request.getUserId(), request.getAmount()));
+    }
+
+    @GetMapping("/{userId}")
+    public List<TransactionResponse> pending(@PathVariable Long userId) {
+        return holdService.getPendingHolds(userId);
+    }
+
+    @PostMapping("/{userId}/{holdId}/capture")
+    public TransactionResponse capture(@PathVariable Long userId, @PathVariable Long holdId) {
+        return TransactionResponse.of(holdService.capture(userId, holdId), userId);
+    }
+
+    @PostMapping("/{userId}/{holdId}/void")
+    public TransactionResponse voidHold(@PathVariable Long userId, @PathVariable Long holdId) {
+        return TransactionResponse.of(holdService.voidHold(userId, holdId), userId);
+    }
+}
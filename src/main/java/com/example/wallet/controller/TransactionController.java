@@ -1,61 +1,259 @@
 package com.example.wallet.controller;
 
+import com.example.wallet.dto.BatchItemResult;
+import com.example.wallet.dto.BatchTransactionItem;
+import com.example.wallet.dto.BatchTransactionRequest;
+import com.example.wallet.dto.BatchTransactionResponse;
+import com.example.wallet.dto.TransactionPageResponse;
 import com.example.wallet.dto.TransactionRequest;
 import com.example.wallet.dto.TransactionResponse;
-import com.example.wallet.model.Transaction;
+import com.example.wallet.dto.TransferRequest;
+import com.example.wallet.dto.TransferResponse;
+import com.example.wallet.engine.LedgerEngine;
+import com.example.wallet.engine.LedgerMetrics;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.enums.TransactionStatus;
+import com.example.wallet.service.HistoryCursor;
+import com.example.wallet.service.Posting;
+import com.example.wallet.service.PostingResult;
+import com.example.wallet.service.TransactionPage;
 import com.example.wallet.service.TransactionService;
+import com.example.wallet.service.WalletService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/transactions")
 @RequiredArgsConstructor
 public class TransactionController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final TransactionService transactionService;
+    private final WalletService walletService;
+    private final LedgerEngine ledgerEngine;
+    private final LedgerMetrics ledgerMetrics;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${app.batch.chunk-size:500}")
+    private int batchChunkSize;
 
+    /**
+     * With an {@code Idempotency-Key} header (or {@code idempotencyKey} field) a retried request returns the
+     * original transaction instead of posting again.
+     */
     @PostMapping("/credit")
     @ResponseStatus(HttpStatus.CREATED)
-    public TransactionResponse credit(@Valid @RequestBody TransactionRequest request) {
-        Transaction tx = transactionService.credit(request.getUserId(), request.getAmount());
-        return toResponse(tx);
+    public CompletableFuture<TransactionResponse> credit(@Valid @RequestBody TransactionRequest request,
+                                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        String key = idempotencyKey != null ? idempotencyKey : request.getIdempotencyKey();
+        return ledgerMetrics.record("credit", () -> ledgerEngine.credit(request.getUserId(), request.getAmount(), key))
+                .thenApply(tx -> TransactionResponse.of(tx, request.getUserId(), request.getAmount()));
     }
 
     @PostMapping("/debit")
     @ResponseStatus(HttpStatus.CREATED)
-    public TransactionResponse debit(@Valid @RequestBody TransactionRequest request) {
-        Transaction tx = transactionService.debit(request.getUserId(), request.getAmount());
-        return toResponse(tx);
+    public CompletableFuture<TransactionResponse> debit(@Valid @RequestBody TransactionRequest request,
+                                                        @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        String key = idempotencyKey != null ? idempotencyKey : request.getIdempotencyKey();
+        return ledgerMetrics.record("debit", () -> ledgerEngine.debit(request.getUserId(), request.getAmount(), key))
+                .thenApply(tx -> TransactionResponse.of(tx, request.getUserId(), request.getAmount()));
+    }
+
+    /**
+     * Debits one wallet and credits the other in a single database transaction; either both legs are recorded
+     * or neither is.
+     */
+    @PostMapping("/transfer")
+    @ResponseStatus(HttpStatus.CREATED)
+    public CompletableFuture<TransferResponse> transfer(@Valid @RequestBody TransferRequest request) {
+        return ledgerMetrics.record("transfer",
+                        () -> ledgerEngine.transfer(request.getFromUserId(), request.getToUserId(), request.getAmount()))
+                .thenApply(transfer -> new TransferResponse(
+                        TransactionResponse.of(transfer.outgoing(), request.getFromUserId(), request.getAmount()),
+                        TransactionResponse.of(transfer.incoming(), request.getToUserId(), request.getAmount())));
+    }
+
+    /** An item's {@code idempotencyKey} applies as it does to a single credit or debit. */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<BatchTransactionResponse> batch(@Valid @RequestBody BatchTransactionRequest request) {
+        List<Posting> postings = request.getItems().stream().map(this::toPosting).toList();
+        return ledgerMetrics.record("batch", () -> ledgerEngine.applyBatch(postings)).thenApply(applied -> {
+            List<BatchItemResult> results = new ArrayList<>(applied.size());
+            for (int i = 0; i < applied.size(); i++) {
+                results.add(toBatchResult(i, applied.get(i)));
+            }
+            int succeeded = (int) applied.stream().filter(PostingResult::isSuccess).count();
+            return new BatchTransactionResponse(succeeded, applied.size() - succeeded, results);
+        });
     }
 
+    /**
+     * Streaming variant of {@link #batch}: reads one item per line and writes one result per line as each
+     * chunk completes, so neither the request nor the response is held in memory. The 200 is sent with the first
+     * chunk, so a line that is not a valid item gets a failed result of its own instead of an error status.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody batchStream(HttpServletRequest request) throws IOException {
+        InputStream body = request.getInputStream();
+        return out -> {
+            try (BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+                List<StreamedItem> chunk = new ArrayList<>(batchChunkSize);
+                int offset = 0;
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    chunk.add(parseStreamedItem(line));
+                    if (chunk.size() == batchChunkSize) {
+                        writeLines(out, applyStreamedChunk(chunk, offset));
+                        offset += chunk.size();
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    writeLines(out, applyStreamedChunk(chunk, offset));
+                }
+            }
+        };
+    }
+
+    /**
+     * Answers 304 to an {@code If-None-Match} with the current ETag without reading any transactions; so does
+     * {@link #page}.
+     */
     @GetMapping("/{userId}")
-    public List<TransactionResponse> list(@PathVariable Long userId) {
-        return transactionService.getTransactionsForUser(userId)
-                .stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
-    }
-
-    private TransactionResponse toResponse(Transaction tx) {
-        return new TransactionResponse(
-                tx.getId(),
-                tx.getWallet().getUser().getId(),
-                tx.getWallet().getId(),
-                tx.getAmount(),
-                tx.getType(),
-                tx.getStatus(),
-                tx.getTimestamp()
-        );
+    public List<TransactionResponse> list(@PathVariable Long userId, ServletWebRequest request) {
+        if (VersionETags.notModified(request, VersionETags.weak(walletService.getHistoryVersion(userId)))) {
+            return null;
+        }
+        TransactionPage history = transactionService.getTransactionsForUser(userId);
+        VersionETags.tag(request, VersionETags.weak(history.version()));
+        return history.transactions();
+    }
+
+    @GetMapping("/{userId}/page")
+    public TransactionPageResponse page(@PathVariable Long userId,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "50") int limit,
+                                        ServletWebRequest request) {
+        if (VersionETags.notModified(request, VersionETags.weak(walletService.getHistoryVersion(userId)))) {
+            return null;
+        }
+        TransactionPage page = transactionService.getTransactionPage(
+                userId, cursor == null ? null : HistoryCursor.decode(cursor), limit);
+        VersionETags.tag(request, VersionETags.weak(page.version()));
+        return new TransactionPageResponse(page.transactions(), page.next() == null ? null : page.next().encode());
+    }
+
+    @GetMapping(value = "/{userId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody stream(@PathVariable Long userId) {
+        // Resolve the wallet before streaming starts so an unknown user still gets a regular 404.
+        walletService.getWalletId(userId);
+        return out -> {
+            transactionService.streamTransactions(userId, tx -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(tx));
+                    out.write('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            out.flush();
+        };
+    }
+
+    private StreamedItem parseStreamedItem(String line) {
+        try {
+            return new StreamedItem(objectMapper.readValue(line, BatchTransactionItem.class), null);
+        } catch (JsonProcessingException ex) {
+            return new StreamedItem(null, "Malformed item: " + ex.getOriginalMessage());
+        }
+    }
+
+    private List<BatchItemResult> applyStreamedChunk(List<StreamedItem> items, int offset) {
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        List<Posting> postings = new ArrayList<>(items.size());
+        List<Integer> positions = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            StreamedItem streamed = items.get(i);
+            if (streamed.error() != null) {
+                results[i] = new BatchItemResult(offset + i, TransactionStatus.FAILED, null, streamed.error());
+                continue;
+            }
+            Set<ConstraintViolation<BatchTransactionItem>> violations = validator.validate(streamed.item());
+            if (violations.isEmpty()) {
+                postings.add(toPosting(streamed.item()));
+                positions.add(i);
+            } else {
+                String message = violations.stream()
+                        .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                        .collect(Collectors.joining(", "));
+                results[i] = new BatchItemResult(offset + i, TransactionStatus.FAILED, null, message);
+            }
+        }
+        List<PostingResult> applied = ledgerMetrics.record("batch", () -> ledgerEngine.applyBatch(postings)).join();
+        for (int j = 0; j < applied.size(); j++) {
+            int position = positions.get(j);
+            results[position] = toBatchResult(offset + position, applied.get(j));
+        }
+        return Arrays.asList(results);
+    }
+
+    private void writeLines(OutputStream out, List<BatchItemResult> results) throws IOException {
+        for (BatchItemResult result : results) {
+            out.write(objectMapper.writeValueAsBytes(result));
+            out.write('\n');
+        }
+        out.flush();
     }
-}
 
+    private Posting toPosting(BatchTransactionItem item) {
+        return new Posting(item.getUserId(), Money.of(item.getAmount()), item.getType(), item.getIdempotencyKey());
+    }
+
+    private BatchItemResult toBatchResult(int index, PostingResult result) {
+        if (result.isSuccess()) {
+            return new BatchItemResult(index, TransactionStatus.SUCCESS, TransactionResponse.of(result.transaction(), result.userId()), null);
+        }
+        return new BatchItemResult(index, TransactionStatus.FAILED, null, result.error().getMessage());
+    }
+
+    /** A line of a streamed batch: the item, or why the line is not one. */
+    private record StreamedItem(BatchTransactionItem item, String error) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.wallet.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Conditional GETs on wallet reads, with the wallet's version as the ETag.
+ */
+final class VersionETags {
+
+    private static final String CACHE_CONTROL = CacheControl.noCache().getHeaderValue();
+
+    private VersionETags() {
+    }
+
+    static String strong(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * For bodies that may be gzipped: Tomcat does not compress a response with a strong ETag, since the compressed
+     * bytes are not the ones it names. {@code If-None-Match} compares weakly either way.
+     */
+    static String weak(long version) {
+        return "W/" + strong(version);
+    }
+
+    /**
+     * Sets the ETag and returns true, with the response turned into a 304, if the client already holds it. Caches
+     * may store the response but have to revalidate it on every use.
+     */
+    static boolean notModified(ServletWebRequest request, String etag) {
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        }
+        return request.checkNotModified(etag);
+    }
+
+    /**
+     * Replaces the ETag with the one of the version the body was read at. The check's version may come from another
+     * replica or a fresher cache; tagging the body with it could pin a client to a stale body.
+     */
+    static void tag(ServletWebRequest request, String etag) {
+        if (request.getResponse() != null) {
+            request.getResponse().setHeader(HttpHeaders.ETAG, etag);
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package com.example.wallet.controller;
 
 import com.example.wallet.dto.WalletBalanceResponse;
+import com.example.wallet.dto.WalletStatsResponse;
+import com.example.wallet.dto.WalletStripingResponse;
+import com.example.wallet.model.BalanceSnapshot;
+import com.example.wallet.model.Money;
+import com.example.wallet.service.BalanceUpdateHub;
+import com.example.wallet.service.WalletProjectionService;
 import com.example.wallet.service.WalletService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/wallet")
@@ -14,10 +25,46 @@ import org.springframework.web.bind.annotation.RestController;
 public class WalletController {
 
     private final WalletService walletService;
+    private final WalletProjectionService walletProjectionService;
+    private final BalanceUpdateHub balanceUpdateHub;
 
+    /**
+     * Answers 304 to an {@code If-None-Match} with the current ETag without reading the balance.
+     */
     @GetMapping("/{userId}")
-    public WalletBalanceResponse getBalance(@PathVariable Long userId) {
-        return new WalletBalanceResponse(userId, walletService.getBalance(userId));
+    public WalletBalanceResponse getBalance(@PathVariable Long userId,
+                                            @RequestParam(defaultValue = "false") boolean strict,
+                                            ServletWebRequest request) {
+        if (VersionETags.notModified(request, VersionETags.strong(walletService.getBalanceVersion(userId, strict)))) {
+            return null;
+        }
+        BalanceSnapshot balance = walletService.getBalanceSnapshot(userId, strict);
+        VersionETags.tag(request, VersionETags.strong(balance.version()));
+        return new WalletBalanceResponse(userId, Money.toBigDecimal(balance.balance()),
+                Money.toBigDecimal(balance.available()));
+    }
+
+    /** Server-sent {@code balance} events, pushed as writes commit. */
+    @GetMapping(value = "/{userId}/updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter updates(@PathVariable Long userId) {
+        return balanceUpdateHub.subscribe(userId);
+    }
+
+    /**
+     * Served from the event projection, so it trails the ledger by the outbox and consumer lag, and only counts
+     * transactions made since the projection was deployed.
+     */
+    @GetMapping("/{userId}/stats")
+    public WalletStatsResponse getStats(@PathVariable Long userId) {
+        return walletProjectionService.getStats(userId);
+    }
+
+    /**
+     * Opts a hot wallet into striped credits over {@code slots} balance slots. Slots are never removed.
+     */
+    @PutMapping("/{userId}/striping")
+    public WalletStripingResponse stripe(@PathVariable Long userId, @RequestParam(defaultValue = "8") int slots) {
+        return new WalletStripingResponse(userId, walletService.stripe(userId, slots));
     }
 }
 
@@ -0,0 +1,18 @@
+package com.example.wallet.dto;
+
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One pushed balance; {@code delta} is relative to the previous push on the stream, zero on the first.
+ */
+@Getter
+@AllArgsConstructor
+public class BalanceUpdateResponse {
+
+    private Long userId;
+    private BigDecimal balance;
+    private BigDecimal available;
+    private BigDecimal delta;
+}
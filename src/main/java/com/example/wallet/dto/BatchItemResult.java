@@ -0,0 +1,15 @@
+package com.example.wallet.dto;
+
+import com.example.wallet.model.enums.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class BatchItemResult {
+
+    private int index;
+    private TransactionStatus status;
+    private TransactionResponse transaction;
+    private String error;
+}
@@ -0,0 +1,14 @@
+package com.example.wallet.dto;
+
+import com.example.wallet.model.enums.TransactionType;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class BatchTransactionItem extends TransactionRequest {
+
+    @NotNull
+    private TransactionType type;
+}
@@ -0,0 +1,18 @@
+package com.example.wallet.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class BatchTransactionRequest {
+
+    @NotEmpty
+    @Size(max = 10_000)
+    private List<@Valid @NotNull BatchTransactionItem> items;
+}
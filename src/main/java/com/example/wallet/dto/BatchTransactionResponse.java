@@ -0,0 +1,14 @@
+package com.example.wallet.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class BatchTransactionResponse {
+
+    private int succeeded;
+    private int failed;
+    private List<BatchItemResult> results;
+}
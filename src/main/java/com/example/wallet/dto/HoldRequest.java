@@ -0,0 +1,14 @@
+package com.example.wallet.dto;
+
+import jakarta.validation.constraints.Positive;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class HoldRequest extends TransactionRequest {
+
+    /** How long the hold stays open unless captured or voided; {@code app.holds.default-ttl-ms} when omitted. */
+    @Positive
+    private Long ttlSeconds;
+}
@@ -0,0 +1,13 @@
+package com.example.wallet.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class TransactionPageResponse {
+
+    private List<TransactionResponse> items;
+    private String nextCursor;
+}
@@ -1,7 +1,9 @@
 package com.example.wallet.dto;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import java.math.BigDecimal;
 import lombok.Getter;
 import lombok.Setter;
@@ -15,6 +17,11 @@ public class TransactionRequest {
 
     @NotNull
     @DecimalMin(value = "0.01")
+    @Digits(integer = 14, fraction = 4)
     private BigDecimal amount;
+
+    /** Alternative to the {@code Idempotency-Key} header; the header wins when both are sent. */
+    @Size(max = 64)
+    private String idempotencyKey;
 }
 
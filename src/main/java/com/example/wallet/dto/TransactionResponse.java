@@ -1,7 +1,10 @@
 package com.example.wallet.dto;
 
+import com.example.wallet.model.Money;
+import com.example.wallet.model.Transaction;
 import com.example.wallet.model.enums.TransactionStatus;
 import com.example.wallet.model.enums.TransactionType;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.math.BigDecimal;
 import java.time.Instant;
 import lombok.AllArgsConstructor;
@@ -18,5 +21,48 @@ public class TransactionResponse {
     private TransactionType type;
     private TransactionStatus status;
     private Instant timestamp;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long linkedTransactionId;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Instant expiresAt;
+
+    /**
+     * Used by the history queries, which select the amount as {@link Money} units.
+     */
+    public TransactionResponse(Long id, Long userId, Long walletId, long amount, TransactionType type,
+                               TransactionStatus status, Instant timestamp, Long linkedTransactionId,
+                               Instant expiresAt) {
+        this(id, userId, walletId, Money.toBigDecimal(amount), type, status, timestamp, linkedTransactionId,
+                expiresAt);
+    }
+
+    public static TransactionResponse of(Transaction tx, Long userId) {
+        return of(tx, userId, null);
+    }
+
+    /**
+     * The response to a posting, echoing the amount as the client sent it ({@code 100}, not {@code 100.0000}), as
+     * these responses always have, unless the two differ in value.
+     */
+    public static TransactionResponse of(Transaction tx, Long userId, BigDecimal requestedAmount) {
+        BigDecimal amount = Money.toBigDecimal(tx.getAmount());
+        if (requestedAmount != null && requestedAmount.compareTo(amount) == 0) {
+            amount = requestedAmount;
+        }
+        // userId is always known to the caller; reading it through tx.getWallet() would initialize the lazy wallet.
+        return new TransactionResponse(
+                tx.getId(),
+                userId,
+                tx.getWallet().getId(),
+                amount,
+                tx.getType(),
+                tx.getStatus(),
+                tx.getTimestamp(),
+                tx.getLinkedTransactionId(),
+                tx.getExpiresAt()
+        );
+    }
 }
 
@@ -0,0 +1,33 @@
+package com.example.wallet.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.util.Objects;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class TransferRequest {
+
+    @NotNull
+    private Long fromUserId;
+
+    @NotNull
+    private Long toUserId;
+
+    @NotNull
+    @DecimalMin(value = "0.01")
+    @Digits(integer = 14, fraction = 4)
+    private BigDecimal amount;
+
+    @JsonIgnore
+    @AssertTrue(message = "fromUserId and toUserId must differ")
+    public boolean isDistinctUsers() {
+        return !Objects.equals(fromUserId, toUserId);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.wallet.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class TransferResponse {
+
+    private TransactionResponse outgoing;
+    private TransactionResponse incoming;
+}
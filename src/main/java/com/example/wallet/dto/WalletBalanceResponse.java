@@ -10,5 +10,8 @@ public class WalletBalanceResponse {
 
     private Long userId;
     private BigDecimal balance;
+
+    /** The balance less what pending holds reserve. */
+    private BigDecimal available;
 }
 
@@ -0,0 +1,17 @@
+package com.example.wallet.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class WalletStatsResponse {
+
+    private Long userId;
+    private Long walletId;
+    private BigDecimal balance;
+    private Long transactionCount;
+    private Instant lastEventAt;
+}
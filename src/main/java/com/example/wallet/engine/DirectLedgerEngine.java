@@ -0,0 +1,79 @@
+package com.example.wallet.engine;
+
+import com.example.wallet.model.Money;
+import com.example.wallet.model.Transaction;
+import com.example.wallet.model.enums.TransactionType;
+import com.example.wallet.service.IdempotencyGuard;
+import com.example.wallet.service.Posting;
+import com.example.wallet.service.PostingResult;
+import com.example.wallet.service.TransactionService;
+import com.example.wallet.service.Transfer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.engine.mode", havingValue = "direct", matchIfMissing = true)
+public class DirectLedgerEngine implements LedgerEngine {
+
+    private final TransactionService transactionService;
+    private final IdempotencyGuard idempotencyGuard;
+
+    @Override
+    public CompletableFuture<Transaction> credit(Long userId, BigDecimal amount, String idempotencyKey) {
+        return idempotencyGuard.execute(new Posting(userId, Money.of(amount), TransactionType.CREDIT, idempotencyKey), this::post);
+    }
+
+    @Override
+    public CompletableFuture<Transaction> debit(Long userId, BigDecimal amount, String idempotencyKey) {
+        return idempotencyGuard.execute(new Posting(userId, Money.of(amount), TransactionType.DEBIT, idempotencyKey), this::post);
+    }
+
+    @Override
+    public CompletableFuture<Transfer> transfer(Long fromUserId, Long toUserId, BigDecimal amount) {
+        return CompletableFuture.completedFuture(transactionService.transfer(fromUserId, toUserId, Money.of(amount)));
+    }
+
+    /** Keyed postings go through the guard one by one, so a replayed key cannot fail a whole chunk. */
+    @Override
+    public CompletableFuture<List<PostingResult>> applyBatch(List<Posting> postings) {
+        List<PostingResult> results = new ArrayList<>(postings.size());
+        int from = 0;
+        for (int i = 0; i < postings.size(); i++) {
+            Posting posting = postings.get(i);
+            if (posting.idempotencyKey() != null) {
+                results.addAll(transactionService.applyBatch(postings.subList(from, i)));
+                results.add(applyKeyed(posting));
+                from = i + 1;
+            }
+        }
+        results.addAll(transactionService.applyBatch(postings.subList(from, postings.size())));
+        return CompletableFuture.completedFuture(results);
+    }
+
+    private PostingResult applyKeyed(Posting posting) {
+        try {
+            return PostingResult.success(posting.userId(), idempotencyGuard.execute(posting, this::post).join());
+        } catch (CompletionException ex) {
+            return PostingResult.failure(posting.userId(),
+                    ex.getCause() instanceof RuntimeException cause ? cause : ex);
+        } catch (RuntimeException ex) {
+            return PostingResult.failure(posting.userId(), ex);
+        }
+    }
+
+    private CompletableFuture<Transaction> post(Posting posting) {
+        Transaction tx = switch (posting.type()) {
+            case CREDIT -> transactionService.credit(posting.userId(), posting.amount(), posting.idempotencyKey());
+            case DEBIT -> transactionService.debit(posting.userId(), posting.amount(), posting.idempotencyKey());
+            default -> throw new IllegalArgumentException("Unsupported transaction type: " + posting.type());
+        };
+        return CompletableFuture.completedFuture(tx);
+    }
+}
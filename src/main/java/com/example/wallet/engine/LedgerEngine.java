@@ -0,0 +1,40 @@
+package com.example.wallet.engine;
+
+import com.example.wallet.model.Transaction;
+import com.example.wallet.service.Posting;
+import com.example.wallet.service.PostingResult;
+import com.example.wallet.service.Transfer;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Entry point for balance mutations. The implementation is selected with {@code app.engine.mode}:
+ * {@code direct} runs each posting in its own database transaction on the caller's thread,
+ * {@code sharded} hands it to a single-writer shard that group-commits postings.
+ */
+public interface LedgerEngine {
+
+    default CompletableFuture<Transaction> credit(Long userId, BigDecimal amount) {
+        return credit(userId, amount, null);
+    }
+
+    default CompletableFuture<Transaction> debit(Long userId, BigDecimal amount) {
+        return debit(userId, amount, null);
+    }
+
+    /** A repeated non-null {@code idempotencyKey} completes with the transaction that first used it. */
+    CompletableFuture<Transaction> credit(Long userId, BigDecimal amount, String idempotencyKey);
+
+    CompletableFuture<Transaction> debit(Long userId, BigDecimal amount, String idempotencyKey);
+
+    /**
+     * Moves {@code amount} between two users' wallets atomically, recording a linked pair of transfer legs.
+     */
+    CompletableFuture<Transfer> transfer(Long fromUserId, Long toUserId, BigDecimal amount);
+
+    /**
+     * Applies many postings at once; results are in input order and failures are reported per posting.
+     */
+    CompletableFuture<List<PostingResult>> applyBatch(List<Posting> postings);
+}
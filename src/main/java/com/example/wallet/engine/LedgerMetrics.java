@@ -0,0 +1,75 @@
+package com.example.wallet.engine;
+
+import com.example.wallet.exception.InsufficientBalanceException;
+import com.example.wallet.exception.UserNotFoundException;
+import com.example.wallet.exception.WalletNotFoundException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times {@link LedgerEngine} calls from submission until their future completes, so queueing in the sharded
+ * engine is included, and tracks how many are in flight. Meters are tagged only by operation and outcome.
+ */
+@Component
+@RequiredArgsConstructor
+public class LedgerMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public <T> CompletableFuture<T> record(String operation, Supplier<CompletableFuture<T>> call) {
+        AtomicInteger active = inFlight.computeIfAbsent(operation, this::registerInFlight);
+        active.incrementAndGet();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<T> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException ex) {
+            stop(sample, operation, ex, active);
+            throw ex;
+        }
+        return result.whenComplete((value, ex) -> stop(sample, operation, ex, active));
+    }
+
+    private void stop(Timer.Sample sample, String operation, Throwable error, AtomicInteger active) {
+        active.decrementAndGet();
+        sample.stop(Timer.builder("wallet.ledger.operation")
+                .description("Ledger operations from submission to completion")
+                .tag("operation", operation)
+                .tag("outcome", outcome(error))
+                .register(meterRegistry));
+    }
+
+    private AtomicInteger registerInFlight(String operation) {
+        AtomicInteger active = new AtomicInteger();
+        Gauge.builder("wallet.ledger.in.flight", active, AtomicInteger::get)
+                .description("Ledger operations submitted but not yet completed")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        return active;
+    }
+
+    private static String outcome(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause == null) {
+            return "success";
+        }
+        if (cause instanceof InsufficientBalanceException) {
+            return "insufficient_balance";
+        }
+        if (cause instanceof WalletNotFoundException || cause instanceof UserNotFoundException) {
+            return "not_found";
+        }
+        return "error";
+    }
+}
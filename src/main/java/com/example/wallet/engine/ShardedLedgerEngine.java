@@ -0,0 +1,519 @@
+package com.example.wallet.engine;
+
+import com.example.wallet.exception.InsufficientBalanceException;
+import com.example.wallet.exception.WalletNotFoundException;
+import com.example.wallet.kafka.TransactionEvent;
+import com.example.wallet.kafka.TransactionEventPublisher;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.Transaction;
+import com.example.wallet.model.Wallet;
+import com.example.wallet.model.enums.TransactionStatus;
+import com.example.wallet.model.enums.TransactionType;
+import com.example.wallet.repository.TransactionRepository;
+import com.example.wallet.repository.WalletRepository;
+import com.example.wallet.service.BalanceStriping;
+import com.example.wallet.service.HoldSettledEvent;
+import com.example.wallet.service.IdempotencyGuard;
+import com.example.wallet.service.OptimisticRetry;
+import com.example.wallet.service.Posting;
+import com.example.wallet.service.PostingResult;
+import com.example.wallet.service.ReplicaReads;
+import com.example.wallet.service.ShardRouting;
+import com.example.wallet.service.TransactionService;
+import com.example.wallet.service.Transfer;
+import com.example.wallet.service.WalletBalanceChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Routes every posting to one of a fixed set of single-threaded shards, chosen by hashing the userId.
+ * A shard is the only writer of its wallets: it keeps their balances in memory, applies postings in
+ * arrival order without locking, and persists whatever it drained from its queue in one database
+ * transaction. If that commit fails, the shard forgets the wallets it touched so their balances are
+ * reloaded from the database before the batch is retried or the next posting is applied.
+ *
+ * <p>A transfer touches two wallets that may belong to different shards. It runs as a regular database
+ * transaction on the caller's thread while the owning shards are paused, and the shards drop their copies of
+ * both wallets before resuming.
+
+ *
+ * <p>With database sharding ({@link ShardRouting}) each writer shard serves the users of one database shard, so its
+ * batches commit on a single database; there are at least as many writer shards as database shards.
+ *
+ * <p>This mode assumes it is the only writer of wallet balances, i.e. a single application node.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.engine.mode", havingValue = "sharded")
+public class ShardedLedgerEngine implements LedgerEngine {
+
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final OptimisticRetry optimisticRetry;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final IdempotencyGuard idempotencyGuard;
+    private final TransactionService transactionService;
+    private final BalanceStriping balanceStriping;
+    private final ReplicaReads replicaReads;
+    private final ShardRouting shardRouting;
+
+    @Value("${app.engine.shards:0}")
+    private int shardCount;
+
+    @Value("${app.engine.batch-size:256}")
+    private int batchSize;
+
+    @Value("${app.engine.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.engine.cached-wallets-per-shard:100000}")
+    private int cachedWalletsPerShard;
+
+    private Shard[] shards;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        int count = Math.max(shardRouting.shardCount(),
+                shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors());
+        shards = new Shard[count];
+        running = true;
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(i);
+            Gauge.builder("wallet.engine.queue.size", shards[i].queue, BlockingQueue::size)
+                    .description("Postings waiting for a ledger shard")
+                    .tag("shard", String.valueOf(i))
+                    .register(meterRegistry);
+            shards[i].thread.start();
+        }
+        log.info("Started sharded ledger engine with {} shards (batch size {})", count, batchSize);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Shard shard : shards) {
+            shard.thread.interrupt();
+        }
+        for (Shard shard : shards) {
+            shard.thread.join();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Transaction> credit(Long userId, BigDecimal amount, String idempotencyKey) {
+        return idempotencyGuard.execute(new Posting(userId, Money.of(amount), TransactionType.CREDIT, idempotencyKey), this::submit);
+    }
+
+    @Override
+    public CompletableFuture<Transaction> debit(Long userId, BigDecimal amount, String idempotencyKey) {
+        return idempotencyGuard.execute(new Posting(userId, Money.of(amount), TransactionType.DEBIT, idempotencyKey), this::submit);
+    }
+
+    /**
+     * Shards are paused in index order, so two transfers needing the same shards always queue on the first one
+     * and can never hold one shard each while waiting for the other.
+     */
+    @Override
+    public CompletableFuture<Transfer> transfer(Long fromUserId, Long toUserId, BigDecimal amount) {
+        long units = Money.of(amount);
+        List<Shard> owners = Stream.of(shardFor(fromUserId), shardFor(toUserId))
+                .distinct()
+                .sorted(Comparator.comparingInt(shard -> shard.index))
+                .toList();
+        Set<Long> userIds = Set.of(fromUserId, toUserId);
+        List<Pause> pauses = new ArrayList<>(owners.size());
+        try {
+            for (Shard shard : owners) {
+                pauses.add(shard.pause(userIds));
+            }
+            return CompletableFuture.completedFuture(transactionService.transfer(fromUserId, toUserId, units));
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        } finally {
+            pauses.forEach(Pause::release);
+        }
+    }
+
+    /**
+     * Postings are spread over their shards like individual ones and committed with whatever else those
+     * shards drain, so a batch needs no transaction of its own.
+     */
+    @Override
+    public CompletableFuture<List<PostingResult>> applyBatch(List<Posting> postings) {
+        List<CompletableFuture<PostingResult>> results = postings.stream()
+                .map(posting -> guarded(posting).handle((tx, ex) -> ex == null
+                        ? PostingResult.success(posting.userId(), tx)
+                        : PostingResult.failure(posting.userId(), unwrap(ex))))
+                .toList();
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(done -> results.stream().map(CompletableFuture::join).toList());
+    }
+
+    /** A batch posting with an idempotency key is deduplicated like a single one; the guard may reject it outright. */
+    private CompletableFuture<Transaction> guarded(Posting posting) {
+        try {
+            return idempotencyGuard.execute(posting, this::submit);
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private CompletableFuture<Transaction> submit(Posting posting) {
+        PendingPosting pending = new PendingPosting(posting, new CompletableFuture<>(), null);
+        if (!running) {
+            pending.result().completeExceptionally(new RejectedExecutionException("Ledger engine is stopped"));
+            return pending.result();
+        }
+        shardFor(posting.userId()).enqueue(pending);
+        return pending.result();
+    }
+
+    private static RuntimeException unwrap(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        return cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+    }
+
+    /**
+     * Writer shards {@code d, d + D, d + 2D, ...} serve database shard {@code d} of {@code D}; the user is hashed over
+     * the writers of its database shard.
+     */
+    private Shard shardFor(Long userId) {
+        int database = shardRouting.shardOf(userId);
+        int databases = shardRouting.shardCount();
+        int writers = (shards.length - database + databases - 1) / databases;
+        // Spread the id bits first: time-ordered or sequential ids would otherwise cluster on a few shards.
+        return shards[database + databases * Math.floorMod(Long.hashCode(userId * 0x9E3779B97F4A7C15L), writers)];
+    }
+
+    /**
+     * A hold captured, voided or expired outside the shards lowered the wallet's held amount, which no version check
+     * on this engine's side would notice: a debit rejected against the cached held amount writes nothing back. The
+     * owning shard forgets the wallet, so postings queued from now on see the release.
+     */
+    @TransactionalEventListener
+    public void onHoldSettled(HoldSettledEvent event) {
+        if (running) {
+            shardFor(event.userId()).forget(Set.of(event.userId()));
+        }
+    }
+
+    /** A queued posting, or a pause request ({@code pause} set, no posting) for an exclusive operation. */
+    private record PendingPosting(Posting posting, CompletableFuture<Transaction> result, Pause pause) {
+    }
+
+    /**
+     * Hand-off between a caller that needs a shard to stand still and the shard thread: the shard signals that it
+     * is parked, waits for the release, then forgets the given wallets so it reloads them from the database.
+     */
+    private static final class Pause {
+
+        private final Set<Long> userIds;
+        private final CountDownLatch parked = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private volatile boolean rejected;
+
+        private Pause(Set<Long> userIds) {
+            this.userIds = userIds;
+        }
+
+        private void awaitParked() {
+            try {
+                parked.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                release();
+                throw new RejectedExecutionException("Interrupted while pausing ledger shard", ex);
+            }
+            if (rejected) {
+                throw new RejectedExecutionException("Ledger engine is stopped");
+            }
+        }
+
+        private void hold(Map<Long, Wallet> wallets) {
+            parked.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            userIds.forEach(wallets::remove);
+        }
+
+        private void reject() {
+            rejected = true;
+            parked.countDown();
+        }
+
+        private void release() {
+            released.countDown();
+        }
+    }
+
+    private record Outcome(Transaction transaction, RuntimeException error) {
+    }
+
+    private final class Shard implements Runnable {
+
+        private final BlockingQueue<PendingPosting> queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        /** Wallets owned by this shard keyed by userId, in access order so the coldest are trimmed first. */
+        private final LinkedHashMap<Long, Wallet> wallets = new LinkedHashMap<>(1024, 0.75f, true);
+
+        private final int index;
+
+        private final Thread thread;
+
+        private Shard(int index) {
+            this.index = index;
+            this.thread = new Thread(this, "ledger-shard-" + index);
+        }
+
+        /**
+         * Queues a pause behind the postings already waiting and blocks until the shard has applied them and parked.
+         */
+        private Pause pause(Set<Long> userIds) {
+            Pause pause = new Pause(userIds);
+            if (!running) {
+                throw new RejectedExecutionException("Ledger engine is stopped");
+            }
+            enqueue(new PendingPosting(null, null, pause));
+            pause.awaitParked();
+            return pause;
+        }
+
+        /**
+         * Queues a pause that is already released, so the shard drops the wallets when it reaches it without the
+         * caller waiting for the postings ahead of it.
+         */
+        private void forget(Set<Long> userIds) {
+            Pause pause = new Pause(userIds);
+            pause.release();
+            enqueue(new PendingPosting(null, null, pause));
+        }
+
+        private void enqueue(PendingPosting pending) {
+            try {
+                queue.put(pending);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                if (pending.pause() != null) {
+                    pending.pause().reject();
+                } else {
+                    pending.result().completeExceptionally(ex);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            List<PendingPosting> batch = new ArrayList<>(batchSize);
+            try (ShardRouting.Binding binding = shardRouting.bind(index % shardRouting.shardCount())) {
+                while (running) {
+                    try {
+                        batch.add(queue.take());
+                    } catch (InterruptedException ex) {
+                        break;
+                    }
+                    queue.drainTo(batch, batchSize - 1);
+                    processUpToPauses(batch);
+                    batch.clear();
+                }
+            }
+            queue.drainTo(batch);
+            batch.forEach(p -> {
+                if (p.pause() != null) {
+                    p.pause().reject();
+                } else {
+                    p.result().completeExceptionally(new RejectedExecutionException("Ledger engine is stopped"));
+                }
+            });
+        }
+
+        /**
+         * Commits the postings between pause requests as batches and holds each pause in queue order, so a pause
+         * sees every posting queued before it applied.
+         */
+        private void processUpToPauses(List<PendingPosting> batch) {
+            int from = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Pause pause = batch.get(i).pause();
+                if (pause != null) {
+                    if (i > from) {
+                        process(batch.subList(from, i));
+                    }
+                    pause.hold(wallets);
+                    from = i + 1;
+                }
+            }
+            if (from < batch.size()) {
+                process(batch.subList(from, batch.size()));
+            }
+        }
+
+        private void process(List<PendingPosting> batch) {
+            List<Outcome> outcomes;
+            try {
+                outcomes = optimisticRetry.execute(() -> applyAndCommit(batch));
+            } catch (DataIntegrityViolationException ex) {
+                if (batch.size() == 1) {
+                    batch.get(0).result().completeExceptionally(ex);
+                    return;
+                }
+                // One posting, typically a repeated idempotency key, poisons the whole commit: apply the batch one
+                // posting per transaction so only the offending one fails.
+                log.debug("Constraint violation in batch of {} postings on {}, isolating", batch.size(), thread.getName());
+                batch.forEach(pending -> process(List.of(pending)));
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Failed to commit batch of {} postings on {}", batch.size(), thread.getName(), ex);
+                batch.forEach(p -> p.result().completeExceptionally(ex));
+                return;
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                Outcome outcome = outcomes.get(i);
+                if (outcome.error() != null) {
+                    batch.get(i).result().completeExceptionally(outcome.error());
+                } else {
+                    batch.get(i).result().complete(outcome.transaction());
+                }
+            }
+            trim();
+        }
+
+        /**
+         * Applies the batch to the in-memory wallets and persists it. Wallets are written back with a version
+         * check, so a concurrent writer outside this shard surfaces as an optimistic failure; the touched
+         * wallets are then dropped and the retry re-applies the whole batch on freshly loaded balances.
+         */
+        private List<Outcome> applyAndCommit(List<PendingPosting> batch) {
+            Map<Long, Wallet> touched = new LinkedHashMap<>();
+            List<Outcome> outcomes = new ArrayList<>(batch.size());
+            List<Transaction> transactions = new ArrayList<>(batch.size());
+
+            for (PendingPosting pending : batch) {
+                Posting posting = pending.posting();
+                try {
+                    Wallet wallet = wallets.computeIfAbsent(posting.userId(), this::loadWallet);
+                    Transaction tx = apply(wallet, posting);
+                    touched.put(posting.userId(), wallet);
+                    transactions.add(tx);
+                    outcomes.add(new Outcome(tx, null));
+                } catch (RuntimeException ex) {
+                    outcomes.add(new Outcome(null, ex));
+                }
+            }
+            if (transactions.isEmpty()) {
+                return outcomes;
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    touched.forEach((userId, wallet) -> {
+                        if (walletRepository.updateBalance(wallet.getId(), wallet.getBalance(), wallet.getVersion()) == 0) {
+                            throw new ObjectOptimisticLockingFailureException(Wallet.class, wallet.getId());
+                        }
+                        wallet.setVersion(wallet.getVersion() + 1);
+                        replicaReads.recordWrite(userId);
+                    });
+                    transactionRepository.saveAll(transactions);
+                    // The row version alone trails the cached one once the wallet has slots; read them in.
+                    walletRepository.findBalancesByUserIdIn(touched.keySet()).forEach(snapshot ->
+                            applicationEventPublisher.publishEvent(new WalletBalanceChangedEvent(snapshot.userId(),
+                                    snapshot.balance(), snapshot.held(), snapshot.version())));
+                    eventPublisher.publishAll(transactions.stream()
+                            .map(tx -> TransactionEvent.of(tx, tx.getWallet().getUser().getId()))
+                            .toList());
+                });
+            } catch (RuntimeException ex) {
+                touched.keySet().forEach(wallets::remove);
+                throw ex;
+            }
+            return outcomes;
+        }
+
+        /**
+         * The swept amount is written to the row in the same transaction, so dropping the wallet before its next
+         * write-back cannot lose it. Read-write, so a replica never supplies the balance written back.
+         */
+        private Wallet loadWallet(Long userId) {
+            return transactionTemplate.execute(status -> {
+                Long walletId = walletRepository.findIdByUserId(userId)
+                        .orElseThrow(() -> new WalletNotFoundException(userId));
+                // Every load sweeps: whether another node striped the wallet is only known from its slots.
+                long swept = balanceStriping.sweep(walletId);
+                Wallet wallet = walletRepository.findByUserId(userId)
+                        .orElseThrow(() -> new WalletNotFoundException(userId));
+                if (swept != Money.ZERO) {
+                    wallet.setBalance(Money.add(wallet.getBalance(), swept));
+                    walletRepository.flush();
+                }
+                return wallet;
+            });
+        }
+
+        private Transaction apply(Wallet wallet, Posting posting) {
+            switch (posting.type()) {
+                case CREDIT -> wallet.setBalance(Money.add(wallet.getBalance(), posting.amount()));
+                case DEBIT -> {
+                    // Holds are placed outside the shard; one placed since the wallet was loaded fails the version
+                    // check on write-back, and the retry sees it. One settled there made the shard forget the wallet
+                    // (onHoldSettled), so a debit queued after it is not rejected against the released amount.
+                    if (Money.subtract(wallet.getBalance(), wallet.getHeld()) < posting.amount()) {
+                        throw new InsufficientBalanceException(posting.amount());
+                    }
+                    wallet.setBalance(Money.subtract(wallet.getBalance(), posting.amount()));
+                }
+                default -> throw new IllegalArgumentException("Unsupported transaction type: " + posting.type());
+            }
+            return Transaction.builder()
+                    .wallet(wallet)
+                    .amount(posting.amount())
+                    .type(posting.type())
+                    .status(TransactionStatus.SUCCESS)
+                    .idempotencyKey(posting.idempotencyKey())
+                    .build();
+        }
+
+        private void trim() {
+            Iterator<Long> eldest = wallets.keySet().iterator();
+            while (wallets.size() > cachedWalletsPerShard && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+}
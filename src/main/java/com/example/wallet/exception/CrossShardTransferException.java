@@ -0,0 +1,8 @@
+package com.example.wallet.exception;
+
+public class CrossShardTransferException extends RuntimeException {
+
+    public CrossShardTransferException(Long fromUserId, Long toUserId) {
+        super("Transfers between users on different shards are not supported: " + fromUserId + " -> " + toUserId);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.wallet.exception;
+
+public class HoldNotFoundException extends RuntimeException {
+
+    public HoldNotFoundException(Long holdId, Long userId) {
+        super("Hold " + holdId + " not found for user: " + userId);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.wallet.exception;
+
+import com.example.wallet.model.enums.TransactionStatus;
+
+public class HoldNotPendingException extends RuntimeException {
+
+    public HoldNotPendingException(Long holdId, TransactionStatus status) {
+        super("Hold " + holdId + " is no longer pending: " + status);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.wallet.exception;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String idempotencyKey) {
+        super("Idempotency key already used for a different posting: " + idempotencyKey);
+    }
+}
@@ -1,11 +1,11 @@
 package com.example.wallet.exception;
 
-import java.math.BigDecimal;
+import com.example.wallet.model.Money;
 
 public class InsufficientBalanceException extends RuntimeException {
 
-    public InsufficientBalanceException(BigDecimal attemptedAmount) {
-        super("Insufficient balance for debit amount: " + attemptedAmount);
+    public InsufficientBalanceException(long attemptedAmount) {
+        super("Insufficient balance for debit amount: " + Money.format(attemptedAmount));
     }
 }
 
@@ -0,0 +1,8 @@
+package com.example.wallet.exception;
+
+public class InvalidIdempotencyKeyException extends RuntimeException {
+
+    public InvalidIdempotencyKeyException(int maxLength) {
+        super("Idempotency key must be 1 to " + maxLength + " characters");
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.wallet.exception;
+
+public class ServiceOverloadedException extends RuntimeException {
+
+    public ServiceOverloadedException(long waitedMillis) {
+        super("Service is at capacity, no database slot within " + waitedMillis + " ms; retry later");
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.wallet.exception;
+
+public class TooManySubscribersException extends RuntimeException {
+
+    public TooManySubscribersException(int maxSubscribers) {
+        super("This node already serves " + maxSubscribers + " update streams; retry later");
+    }
+}
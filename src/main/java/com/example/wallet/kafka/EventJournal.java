@@ -0,0 +1,475 @@
+package com.example.wallet.kafka;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only journal of transaction events in memory-mapped segments, replayable from the last acknowledged
+ * position. Each record is framed as
+ *
+ * <pre>
+ * int     payload length
+ * int     CRC-32C of the payload
+ * byte[]  payload ({@link TransactionEventCodec})
+ * </pre>
+ *
+ * and addressed by its position, the number of record bytes written before it; segments are named after the
+ * position of their first record.
+ */
+@Slf4j
+public final class EventJournal implements AutoCloseable {
+
+    /** When appended records are forced to disk. */
+    public enum FsyncPolicy {
+        /** Every append is forced before it returns; slowest, nothing acknowledged to the caller is lost. */
+        ALWAYS,
+        /** A background thread forces every {@code fsyncIntervalMs}; a crash loses at most that much. */
+        INTERVAL,
+        /** Appends wait for the next force, and one force covers every append that arrived while it ran. */
+        GROUP
+    }
+
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final String CHECKPOINT_FILE = "acknowledged.checkpoint";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMs;
+    private final int retainedSegments;
+
+    private final ByteBuffer scratch = ByteBuffer.allocate(TransactionEventCodec.V2_SIZE);
+    private final CRC32C crc = new CRC32C();
+
+    /** Segments oldest first; the last one is being written. Guarded by {@code this}. */
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    /** Position after the last appended record. */
+    private volatile long position;
+
+    /** Position up to which records are known to be on disk. */
+    private final AtomicLong forced = new AtomicLong();
+
+    /** Position and append time ({@link System#nanoTime()}) of every record not acknowledged yet. */
+    private final ConcurrentSkipListMap<Long, Long> unacknowledged = new ConcurrentSkipListMap<>();
+
+    private final FileChannel checkpoint;
+    private long checkpointed;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushRequested = flushLock.newCondition();
+    private final Condition flushed = flushLock.newCondition();
+    private boolean flushWanted;
+
+    private final Thread flusher;
+
+    private volatile boolean running = true;
+
+    public EventJournal(Path directory, int segmentBytes, FsyncPolicy fsyncPolicy, long fsyncIntervalMs,
+                        int retainedSegments) throws IOException {
+        if (segmentBytes < HEADER_SIZE + TransactionEventCodec.V2_SIZE) {
+            throw new IllegalArgumentException("Journal segments of " + segmentBytes + " bytes cannot hold a record");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalMs = fsyncIntervalMs;
+        this.retainedSegments = Math.max(1, retainedSegments);
+
+        Files.createDirectories(directory);
+        this.checkpoint = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpointed = readCheckpoint();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .map(Segment::new)
+                    .sorted((a, b) -> Long.compare(a.base, b.base))
+                    .forEach(segments::add);
+        }
+        if (segments.isEmpty()) {
+            segments.add(new Segment(checkpointed, directory));
+        }
+        Segment active = segments.getLast();
+        long existing = Files.exists(active.path) ? Files.size(active.path) : 0;
+        active.map((int) Math.min(Integer.MAX_VALUE, Math.max(segmentBytes, existing)));
+        active.buffer.position(recover(active));
+        position = active.base + active.buffer.position();
+        forced.set(position);
+
+        long from = Math.max(checkpointed, segments.getFirst().base);
+        if (from < position) {
+            // Everything after the checkpoint is one unacknowledged range until a replay acknowledges it.
+            unacknowledged.put(from, System.nanoTime());
+            log.info("Event journal in {} has {} unacknowledged bytes from position {}", directory,
+                    position - from, from);
+        }
+
+        this.flusher = new Thread(this::runFlusher, "event-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /** Appends the event and returns its position, to pass to {@link #acknowledge} once it was delivered. */
+    public long append(TransactionEvent event) {
+        long start;
+        long end;
+        synchronized (this) {
+            start = position;
+            write(event);
+            forceIfAlways(start);
+            end = position;
+        }
+        awaitIfGroup(end);
+        return start;
+    }
+
+    /** Appends the events in order and returns their positions. */
+    public long[] appendAll(List<TransactionEvent> events) {
+        long[] positions = new long[events.size()];
+        long end;
+        synchronized (this) {
+            long start = position;
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = position;
+                write(events.get(i));
+            }
+            forceIfAlways(start);
+            end = position;
+        }
+        awaitIfGroup(end);
+        return positions;
+    }
+
+    public void acknowledge(long recordPosition) {
+        unacknowledged.remove(recordPosition);
+    }
+
+    /** Acknowledges every record before {@code end}, e.g. after {@link #replay} re-published them. */
+    public void acknowledgeThrough(long end) {
+        unacknowledged.headMap(end).clear();
+    }
+
+    /** Position up to which every record is acknowledged; the end of the journal if all are. */
+    public long acknowledgedPosition() {
+        // Read before the map: records are registered as unacknowledged before the position moves past them.
+        long end = position;
+        Map.Entry<Long, Long> oldest = unacknowledged.firstEntry();
+        return oldest == null ? end : Math.min(end, oldest.getKey());
+    }
+
+    /** How long the oldest unacknowledged record has been waiting, zero if there is none. */
+    public Duration oldestUnacknowledgedAge() {
+        Map.Entry<Long, Long> oldest = unacknowledged.firstEntry();
+        return oldest == null ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - oldest.getValue());
+    }
+
+    public long position() {
+        return position;
+    }
+
+    /** Position of the oldest record still on disk. */
+    public synchronized long firstPosition() {
+        return segments.getFirst().base;
+    }
+
+    /**
+     * Streams the records from {@code from} to {@code handler} in batches; the batch list is reused, so the handler
+     * must not keep it. Returns the position after the last record replayed.
+     */
+    public long replay(long from, int batchSize, Consumer<List<TransactionEvent>> handler) throws IOException {
+        List<Segment> snapshot;
+        long end;
+        synchronized (this) {
+            snapshot = new ArrayList<>(segments);
+            end = position;
+        }
+        List<TransactionEvent> batch = new ArrayList<>(batchSize);
+        CRC32C checksum = new CRC32C();
+        for (int i = 0; i < snapshot.size(); i++) {
+            Segment segment = snapshot.get(i);
+            long segmentEnd = i + 1 < snapshot.size() ? snapshot.get(i + 1).base : end;
+            if (segmentEnd <= from || segmentEnd == segment.base) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, segmentEnd - segment.base);
+                buffer.position((int) Math.max(0, from - segment.base));
+                while (buffer.hasRemaining()) {
+                    long recordPosition = segment.base + buffer.position();
+                    ByteBuffer payload = nextPayload(buffer, checksum);
+                    if (payload == null) {
+                        throw new IOException("Corrupt journal record at position " + recordPosition + " in "
+                                + segment.path);
+                    }
+                    batch.add(TransactionEventCodec.decode(payload));
+                    if (batch.size() == batchSize) {
+                        handler.accept(batch);
+                        batch.clear();
+                    }
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            handler.accept(batch);
+        }
+        return end;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        signalFlushed();
+        checkpoint.close();
+    }
+
+    /** Writes one record into the active segment, starting a new segment when it does not fit. Holds the lock. */
+    private void write(TransactionEvent event) {
+        if (!running) {
+            throw new IllegalStateException("Event journal is closed");
+        }
+        scratch.clear();
+        TransactionEventCodec.encode(event, scratch).flip();
+        crc.reset();
+        crc.update(scratch);
+        scratch.rewind();
+        Segment active = segments.getLast();
+        if (active.buffer.remaining() < HEADER_SIZE + scratch.remaining()) {
+            active = roll(active);
+        }
+        // Registered before the position moves past the record, see acknowledgedPosition().
+        unacknowledged.put(position, System.nanoTime());
+        active.buffer.putInt(scratch.remaining()).putInt((int) crc.getValue()).put(scratch);
+        position = active.base + active.buffer.position();
+    }
+
+    private Segment roll(Segment full) {
+        full.buffer.force();
+        full.buffer = null;
+        forced.accumulateAndGet(position, Math::max);
+        Segment next = new Segment(position, directory);
+        try {
+            next.map(segmentBytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot create journal segment " + next.path, ex);
+        }
+        segments.add(next);
+        log.info("Started journal segment {}", next.path.getFileName());
+        deleteAcknowledgedSegments();
+        return next;
+    }
+
+    private void deleteAcknowledgedSegments() {
+        long acknowledged = acknowledgedPosition();
+        while (segments.size() > retainedSegments) {
+            Iterator<Segment> oldestFirst = segments.iterator();
+            Segment oldest = oldestFirst.next();
+            if (oldestFirst.next().base > acknowledged) {
+                return;
+            }
+            segments.removeFirst();
+            try {
+                Files.deleteIfExists(oldest.path);
+            } catch (IOException ex) {
+                log.warn("Failed to delete journal segment {}", oldest.path, ex);
+            }
+        }
+    }
+
+    private void forceIfAlways(long start) {
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            Segment active = segments.getLast();
+            int from = (int) Math.max(0, start - active.base);
+            active.buffer.force(from, active.buffer.position() - from);
+            forced.accumulateAndGet(position, Math::max);
+        }
+    }
+
+    private void awaitIfGroup(long end) {
+        if (fsyncPolicy != FsyncPolicy.GROUP) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            while (forced.get() < end && running) {
+                flushWanted = true;
+                flushRequested.signal();
+                flushed.await();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void runFlusher() {
+        while (running) {
+            flushLock.lock();
+            try {
+                if (!flushWanted) {
+                    flushRequested.await(fsyncIntervalMs, TimeUnit.MILLISECONDS);
+                }
+                flushWanted = false;
+            } catch (InterruptedException ex) {
+                return;
+            } finally {
+                flushLock.unlock();
+            }
+            try {
+                flush();
+            } catch (IOException | RuntimeException ex) {
+                log.error("Failed to flush the event journal", ex);
+            }
+            signalFlushed();
+        }
+    }
+
+    /** Forces what was appended since the last force and stores the acknowledged position. */
+    private void flush() throws IOException {
+        Segment active;
+        MappedByteBuffer buffer;
+        long end;
+        synchronized (this) {
+            active = segments.getLast();
+            buffer = active.buffer;
+            end = position;
+        }
+        long from = forced.get();
+        if (end > from) {
+            // Earlier segments were forced completely when the journal rolled over to this one.
+            int offset = (int) Math.max(0, from - active.base);
+            buffer.force(offset, (int) (end - active.base) - offset);
+            forced.accumulateAndGet(end, Math::max);
+        }
+        long acknowledged = acknowledgedPosition();
+        if (acknowledged != checkpointed) {
+            checkpoint.write(ByteBuffer.allocate(Long.BYTES).putLong(0, acknowledged), 0);
+            checkpoint.force(false);
+            checkpointed = acknowledged;
+        }
+    }
+
+    private void signalFlushed() {
+        flushLock.lock();
+        try {
+            flushed.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (checkpoint.size() < Long.BYTES) {
+            return 0;
+        }
+        ByteBuffer value = ByteBuffer.allocate(Long.BYTES);
+        checkpoint.read(value, 0);
+        return value.getLong(0);
+    }
+
+    /** Returns the length of the valid records at the start of the segment, clearing whatever follows them. */
+    private static int recover(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        CRC32C checksum = new CRC32C();
+        buffer.position(0);
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            if (nextPayload(buffer, checksum) == null) {
+                buffer.position(start);
+                break;
+            }
+        }
+        int end = buffer.position();
+        if (buffer.remaining() >= Integer.BYTES && buffer.getInt(end) != 0) {
+            log.warn("Cut torn record off journal segment {} at offset {}", segment.path, end);
+            while (buffer.hasRemaining()) {
+                buffer.put((byte) 0);
+            }
+            buffer.force();
+        }
+        return end;
+    }
+
+    /** Returns the CRC-checked payload at the buffer's position, {@code null} at the end or at a corrupt record. */
+    private static ByteBuffer nextPayload(ByteBuffer buffer, CRC32C checksum) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int length = buffer.getInt();
+        int expected = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining()) {
+            return null;
+        }
+        ByteBuffer payload = buffer.slice(buffer.position(), length);
+        checksum.reset();
+        checksum.update(payload);
+        if ((int) checksum.getValue() != expected) {
+            return null;
+        }
+        buffer.position(buffer.position() + length);
+        return payload.rewind();
+    }
+
+    private static final class Segment {
+
+        private final long base;
+        private final Path path;
+
+        /** Mapping of the segment being written; null once the journal has rolled over to the next one. */
+        private MappedByteBuffer buffer;
+
+        private Segment(Path path) {
+            String name = path.getFileName().toString();
+            this.base = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            this.path = path;
+        }
+
+        private Segment(long base, Path directory) {
+            this.base = base;
+            this.path = directory.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+        }
+
+        private void map(int size) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                if (channel.size() < size) {
+                    // Extends the file with zeros, which read as the end of the records.
+                    channel.write(ByteBuffer.allocate(1), size - 1);
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.wallet.kafka;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded multi-producer, multi-consumer event ring in the style of the LMAX Disruptor. Slots are preallocated
+ * and reused: producers claim a range of sequence numbers with a compare-and-set, write their events into the slots
+ * and mark each slot published. Every handler runs on its own thread, sees every event in sequence order and gets
+ * all events published since its last call as one batch. A slot is only reused once every handler has moved past
+ * it, so a full ring makes producers wait instead of growing; a producer that waits longer than
+ * {@code publishTimeoutMs} gives up with a {@link RejectedExecutionException}, having claimed nothing.
+ *
+ * <p>A batch is a view of the ring, valid only for the duration of the handler call. A handler that throws gets the
+ * same batch again after {@code retryBackoffMs}, up to {@code maxAttempts} calls in all; after that the batch is
+ * logged and skipped ({@link #skipped()}), so one poisoned event cannot stall the handler and, once the ring is
+ * full, every producer behind it.
+ */
+@Slf4j
+public final class EventRing<T> implements AutoCloseable {
+
+    /** How an idle handler waits for the next event; trades latency against the CPU burnt while idle. */
+    public enum WaitStrategy {
+        /** Spins on the sequence; lowest latency, occupies a core per handler. */
+        BUSY_SPIN,
+        /** Spins briefly, then yields the core to other runnable threads. */
+        YIELDING,
+        /** Spins, yields, then parks for short intervals; little CPU when idle at some latency cost. */
+        SLEEPING,
+        /** Sleeps on a condition producers signal; no CPU when idle, but every publish takes a lock. */
+        BLOCKING
+    }
+
+    private static final int SPIN_TRIES = 100;
+
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final Object[] slots;
+    private final int mask;
+    private final int shift;
+
+    /** Round (sequence / capacity) of the event last published in each slot. */
+    private final AtomicIntegerArray publishedRound;
+
+    /** Highest sequence claimed by a producer. */
+    private final AtomicLong claimed = new AtomicLong(-1);
+
+    private final WaitStrategy waitStrategy;
+    private final int maxBatch;
+    private final long retryBackoffMs;
+    private final int maxAttempts;
+    private final long publishTimeoutNanos;
+    private final AtomicLong skipped = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+
+    private final List<HandlerThread> handlers = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity slots in the ring, rounded up to a power of two
+     * @param maxBatch most events handed to a handler in one call
+     * @param maxAttempts calls a failing batch gets before it is skipped
+     * @param publishTimeoutMs longest a producer waits for free slots
+     */
+    public EventRing(int capacity, WaitStrategy waitStrategy, int maxBatch, long retryBackoffMs, int maxAttempts,
+                     long publishTimeoutMs) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Object[size];
+        this.mask = size - 1;
+        this.shift = Integer.numberOfTrailingZeros(size);
+        this.publishedRound = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            publishedRound.set(i, -1);
+        }
+        this.waitStrategy = waitStrategy;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.publishTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(publishTimeoutMs);
+    }
+
+    /**
+     * Registers a handler and starts its thread. Handlers must all be added before the first publish: a handler
+     * starts at the beginning of the ring, and one added later would hold every slot from there on, so producers
+     * would wait on it for good once the ring wrapped.
+     *
+     * @throws IllegalStateException if events were already published
+     */
+    public void addHandler(String name, Consumer<List<T>> handler) {
+        if (claimed.get() >= 0) {
+            throw new IllegalStateException("Event ring handlers must be added before the first publish");
+        }
+        HandlerThread thread = new HandlerThread(name, handler);
+        handlers.add(thread);
+        thread.start();
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /** Events handlers gave up on after {@code maxAttempts} failed calls, counted once per handler. */
+    public long skipped() {
+        return skipped.get();
+    }
+
+    /** Events published but not yet handled by the slowest handler. */
+    public long backlog() {
+        return claimed.get() - slowestHandlerSequence();
+    }
+
+    public void publish(T event) {
+        long sequence = claim(1);
+        slots[(int) sequence & mask] = event;
+        markPublished(sequence, sequence);
+    }
+
+    /** Publishes the events as one contiguous range, so a handler usually receives them in a single batch. */
+    public void publishAll(List<? extends T> events) {
+        for (int from = 0; from < events.size(); from += slots.length) {
+            int count = Math.min(slots.length, events.size() - from);
+            long last = claim(count);
+            long first = last - count + 1;
+            for (int i = 0; i < count; i++) {
+                slots[(int) (first + i) & mask] = events.get(from + i);
+            }
+            markPublished(first, last);
+        }
+    }
+
+    /**
+     * Stops accepting events and lets the handlers finish what was published, waiting at most {@code timeoutMs}.
+     */
+    public void shutdown(long timeoutMs) throws InterruptedException {
+        running = false;
+        signalHandlers();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (HandlerThread handler : handlers) {
+            handler.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            if (handler.isAlive()) {
+                log.warn("Event handler {} did not drain within {} ms, {} events left", handler.getName(), timeoutMs,
+                        claimed.get() - handler.sequence.get());
+                handler.interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        shutdown(5_000);
+    }
+
+    /**
+     * Claims the next {@code count} sequences once the slowest handler no longer needs their slots. Nothing is
+     * claimed until they are free, so a producer that gives up leaves no gap for the handlers to wait on.
+     */
+    private long claim(int count) {
+        long deadline = System.nanoTime() + publishTimeoutNanos;
+        while (true) {
+            if (!running) {
+                throw new RejectedExecutionException("Event ring is shut down");
+            }
+            long current = claimed.get();
+            long last = current + count;
+            if (last - slots.length <= slowestHandlerSequence()) {
+                if (claimed.compareAndSet(current, last)) {
+                    return last;
+                }
+                continue;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                throw new RejectedExecutionException("Event ring full: the slowest handler is " + backlog()
+                        + " events behind");
+            }
+            LockSupport.parkNanos(SLEEP_NANOS);
+        }
+    }
+
+    private void markPublished(long first, long last) {
+        for (long sequence = first; sequence <= last; sequence++) {
+            publishedRound.set((int) sequence & mask, (int) (sequence >>> shift));
+        }
+        if (waitStrategy == WaitStrategy.BLOCKING) {
+            signalHandlers();
+        }
+    }
+
+    private boolean isPublished(long sequence) {
+        return publishedRound.get((int) sequence & mask) == (int) (sequence >>> shift);
+    }
+
+    private long slowestHandlerSequence() {
+        long slowest = claimed.get();
+        for (HandlerThread handler : handlers) {
+            slowest = Math.min(slowest, handler.sequence.get());
+        }
+        return slowest;
+    }
+
+    private void signalHandlers() {
+        lock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class HandlerThread extends Thread {
+
+        private final Consumer<List<T>> handler;
+
+        /** Last sequence handed to the handler and completed. */
+        private final AtomicLong sequence = new AtomicLong(-1);
+
+        private final List<T> batch = new ArrayList<>();
+
+        private HandlerThread(String name, Consumer<List<T>> handler) {
+            super("event-ring-" + name);
+            this.handler = handler;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            int idle = 0;
+            while (running || next <= claimed.get()) {
+                if (!isPublished(next)) {
+                    if (isInterrupted()) {
+                        return;
+                    }
+                    idle = await(idle);
+                    continue;
+                }
+                idle = 0;
+                long last = next;
+                while (last - next + 1 < maxBatch && isPublished(last + 1)) {
+                    last++;
+                }
+                handle(next, last);
+                sequence.set(last);
+                next = last + 1;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void handle(long first, long last) {
+            batch.clear();
+            for (long s = first; s <= last; s++) {
+                batch.add((T) slots[(int) s & mask]);
+            }
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    handler.accept(batch);
+                    return;
+                } catch (RuntimeException ex) {
+                    if (attempt >= maxAttempts) {
+                        skipped.addAndGet(batch.size());
+                        log.error("Event handler {} failed {} times on events {} to {}, skipping them", getName(),
+                                attempt, first, last, ex);
+                        return;
+                    }
+                    log.error("Event handler {} failed on {} events, retrying in {} ms", getName(), batch.size(),
+                            retryBackoffMs, ex);
+                    try {
+                        Thread.sleep(retryBackoffMs);
+                    } catch (InterruptedException interrupted) {
+                        interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        private int await(int idle) {
+            switch (waitStrategy) {
+                case BUSY_SPIN -> Thread.onSpinWait();
+                case YIELDING -> {
+                    if (idle < SPIN_TRIES) {
+                        Thread.onSpinWait();
+                    } else {
+                        Thread.yield();
+                    }
+                }
+                case SLEEPING -> {
+                    if (idle < SPIN_TRIES) {
+                        Thread.onSpinWait();
+                    } else if (idle < 2 * SPIN_TRIES) {
+                        Thread.yield();
+                    } else {
+                        LockSupport.parkNanos(SLEEP_NANOS);
+                    }
+                }
+                case BLOCKING -> {
+                    lock.lock();
+                    try {
+                        // Re-checked under the lock: a producer publishing in between signals after we wait.
+                        if (running && !isPublished(sequence.get() + 1)) {
+                            published.await(SLEEP_NANOS * 10, TimeUnit.NANOSECONDS);
+                        }
+                    } catch (InterruptedException ex) {
+                        interrupt();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+            return Math.min(idle + 1, 2 * SPIN_TRIES);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.wallet.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Re-publishes journaled events Kafka never acknowledged, at startup and once they waited past the send timeout.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.journal.enabled", havingValue = "true")
+public class JournalReplayer {
+
+    private final EventJournal journal;
+    private final KafkaTemplate<String, TransactionEvent> kafkaTemplate;
+    private final List<TransactionEventHandler> handlers;
+    private final Counter republishedCounter;
+
+    @Value("${app.kafka.topic.transaction}")
+    private String transactionTopic;
+
+    @Value("${app.journal.replay-batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.journal.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    @Value("${app.journal.rebuild-projection-on-startup:false}")
+    private boolean rebuildProjection;
+
+    public JournalReplayer(EventJournal journal, KafkaTemplate<String, TransactionEvent> kafkaTemplate,
+                           List<TransactionEventHandler> handlers, MeterRegistry meterRegistry) {
+        this.journal = journal;
+        this.kafkaTemplate = kafkaTemplate;
+        this.handlers = handlers;
+        this.republishedCounter = Counter.builder("wallet.journal.republished")
+                .description("Journaled transaction events sent to Kafka again")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (rebuildProjection) {
+            rebuildProjection();
+        }
+        republish();
+    }
+
+    @Scheduled(fixedDelayString = "${app.journal.redeliver-interval-ms:30000}",
+            initialDelayString = "${app.journal.redeliver-interval-ms:30000}")
+    public void republishStale() {
+        if (journal.oldestUnacknowledgedAge().toMillis() > sendTimeoutMs) {
+            republish();
+        }
+    }
+
+    synchronized void republish() {
+        long from = journal.acknowledgedPosition();
+        if (from == journal.position()) {
+            return;
+        }
+        long[] sent = new long[1];
+        try {
+            long end = journal.replay(from, batchSize, batch -> {
+                sendAndWait(batch);
+                sent[0] += batch.size();
+            });
+            journal.acknowledgeThrough(end);
+            republishedCounter.increment(sent[0]);
+            log.info("Re-published {} journaled transaction events from position {} to {}", sent[0], from, end);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Failed to re-publish journaled transaction events from position {} after {} sent; retrying in "
+                    + "the next run", from, sent[0], ex);
+        }
+    }
+
+    private void rebuildProjection() {
+        long from = journal.firstPosition();
+        long started = System.nanoTime();
+        long[] replayed = new long[1];
+        try {
+            long end = journal.replay(from, batchSize, batch -> {
+                handlers.forEach(handler -> handler.onEvents(batch));
+                replayed[0] += batch.size();
+            });
+            log.info("Replayed {} journaled transaction events ({} bytes) into the projection in {} ms", replayed[0],
+                    end - from, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (IOException | RuntimeException ex) {
+            log.error("Failed to rebuild the projection from the journal after {} events", replayed[0], ex);
+        }
+    }
+
+    private void sendAndWait(List<TransactionEvent> batch) {
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        for (TransactionEvent event : batch) {
+            sends.add(kafkaTemplate.send(transactionTopic, String.valueOf(event.getUserId()), event));
+        }
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException ex) {
+            throw new IllegalStateException("Kafka did not acknowledge re-published events", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while re-publishing journaled events", ex);
+        }
+    }
+}
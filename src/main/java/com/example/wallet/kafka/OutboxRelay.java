@@ -0,0 +1,223 @@
+package com.example.wallet.kafka;
+
+import com.example.wallet.model.OutboxEvent;
+import com.example.wallet.repository.OutboxEventRepository;
+import com.example.wallet.repository.OutboxLeaseRepository;
+import com.example.wallet.service.ShardRouting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drains each shard's outbox to Kafka while this node holds its lease; delivery is at least once.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.events.publisher", havingValue = "outbox")
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, TransactionEvent> kafkaTemplate;
+    private final OutboxLeaseRepository leaseRepository;
+    private final ShardRouting shardRouting;
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final DistributionSummary batchSizeSummary;
+
+    private static final String LEASE = "outbox-relay";
+
+    /** The producer's own default for {@code max.block.ms}. */
+    private static final long DEFAULT_MAX_BLOCK_MS = 60_000;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    private volatile double lagSeconds;
+
+    @Value("${app.kafka.topic.transaction}")
+    private String transactionTopic;
+
+    @Value("${app.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.outbox.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    @Value("${app.outbox.lease-ms:90000}")
+    private long leaseMs;
+
+    @Value("${app.outbox.retention-hours:24}")
+    private long retentionHours;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       KafkaTemplate<String, TransactionEvent> kafkaTemplate,
+                       OutboxLeaseRepository leaseRepository,
+                       ShardRouting shardRouting,
+                       MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.leaseRepository = leaseRepository;
+        this.shardRouting = shardRouting;
+        this.publishedCounter = Counter.builder("wallet.outbox.published")
+                .description("Outbox events acknowledged by Kafka")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("wallet.outbox.failed")
+                .description("Outbox event sends that failed and will be retried")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("wallet.outbox.batch.size")
+                .description("Unsent rows read per relay poll")
+                .register(meterRegistry);
+        Gauge.builder("wallet.outbox.lag", this, relay -> relay.lagSeconds)
+                .description("Age of the oldest unsent outbox event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /** Otherwise another node could take the lease over while this one is still sending a batch. */
+    @PostConstruct
+    void checkLeaseCoversABatch() {
+        Object configured = kafkaTemplate.getProducerFactory().getConfigurationProperties()
+                .get(ProducerConfig.MAX_BLOCK_MS_CONFIG);
+        long maxBlockMs = configured == null ? DEFAULT_MAX_BLOCK_MS : Long.parseLong(configured.toString());
+        if (sendTimeoutMs + maxBlockMs >= leaseMs) {
+            throw new IllegalStateException("app.outbox.lease-ms (" + leaseMs + ") must exceed app.outbox.send-timeout-ms ("
+                    + sendTimeoutMs + ") plus the producer's max.block.ms (" + maxBlockMs + ")");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:200}",
+            initialDelayString = "${app.outbox.poll-interval-ms:200}")
+    public void relay() {
+        double lag = 0;
+        for (int shard = 0; shard < shardRouting.shardCount(); shard++) {
+            try (ShardRouting.Binding binding = shardRouting.bind(shard)) {
+                lag = Math.max(lag, relayShard());
+            }
+        }
+        lagSeconds = lag;
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.cleanup-interval-ms:3600000}")
+    public void purgeSent() {
+        for (int shard = 0; shard < shardRouting.shardCount(); shard++) {
+            try (ShardRouting.Binding binding = shardRouting.bind(shard)) {
+                int deleted = outboxEventRepository.deleteSentBefore(Instant.now().minus(Duration.ofHours(retentionHours)));
+                if (deleted > 0) {
+                    log.info("Purged {} relayed outbox events on shard {}", deleted, shard);
+                }
+            }
+        }
+    }
+
+    /** Returns the lag seen by the last poll. */
+    private double relayShard() {
+        List<OutboxEvent> batch;
+        double lag;
+        do {
+            if (!holdLease()) {
+                return 0;
+            }
+            batch = outboxEventRepository.findUnsent(Limit.of(batchSize));
+            batchSizeSummary.record(batch.size());
+            lag = batch.isEmpty()
+                    ? 0
+                    : Duration.between(batch.get(0).getCreatedAt(), Instant.now()).toMillis() / 1000.0;
+            if (batch.isEmpty()) {
+                return lag;
+            }
+        } while (send(batch) && batch.size() == batchSize);
+        return lag;
+    }
+
+    private boolean holdLease() {
+        Instant now = Instant.now();
+        Instant until = now.plusMillis(leaseMs);
+        if (leaseRepository.renew(LEASE, owner, now, until) == 1) {
+            return true;
+        }
+        if (leaseRepository.existsById(LEASE)) {
+            return false;
+        }
+        try {
+            return leaseRepository.create(LEASE, owner, until) == 1;
+        } catch (DataIntegrityViolationException ex) {
+            // Another node created it first.
+            return false;
+        }
+    }
+
+    /** Returns {@code true} if every row of the batch was acknowledged and marked sent. */
+    private boolean send(List<OutboxEvent> batch) {
+        // One deadline for the whole batch: waiting per record on a stalled producer could outlast the lease.
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+        boolean complete = true;
+        for (OutboxEvent row : batch) {
+            if (deadline - System.nanoTime() <= 0) {
+                // Queuing blocked (a full buffer or no metadata) for the whole timeout; the rest waits for the next poll.
+                complete = false;
+                break;
+            }
+            try {
+                sends.add(kafkaTemplate.send(transactionTopic, String.valueOf(row.getUserId()), row.toEvent()));
+            } catch (RuntimeException ex) {
+                // The producer could not even queue the record (e.g. no metadata); leave the rest for the next poll.
+                complete = false;
+                failedCounter.increment();
+                log.warn("Failed to relay outbox event {} (transaction {})", row.getId(), row.getTransactionId(), ex);
+                break;
+            }
+        }
+
+        List<Long> sent = new ArrayList<>(sends.size());
+        Set<Long> failedUsers = new HashSet<>();
+        for (int i = 0; i < sends.size(); i++) {
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (failedUsers.contains(batch.get(i).getUserId())) {
+                    // Marking it sent would leave it delivered ahead of the user's failed event for good.
+                    complete = false;
+                } else {
+                    sent.add(batch.get(i).getId());
+                }
+            } catch (ExecutionException | TimeoutException ex) {
+                complete = false;
+                failedUsers.add(batch.get(i).getUserId());
+                failedCounter.increment();
+                log.warn("Failed to relay outbox event {} (transaction {})",
+                        batch.get(i).getId(), batch.get(i).getTransactionId(), ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                complete = false;
+                break;
+            }
+        }
+
+        if (!sent.isEmpty()) {
+            outboxEventRepository.markSent(sent, Instant.now());
+            publishedCounter.increment(sent.size());
+        }
+        return complete;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.wallet.kafka;
+
+import com.example.wallet.model.OutboxEvent;
+import com.example.wallet.model.id.Snowflake;
+import com.example.wallet.repository.OutboxEventRepository;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Records events in the outbox table as part of the caller's transaction; {@link OutboxRelay} delivers them.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.events.publisher", havingValue = "outbox")
+@Transactional(propagation = Propagation.MANDATORY)
+public class OutboxTransactionEventPublisher implements TransactionEventPublisher {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final Snowflake snowflake;
+
+    @Override
+    public void publish(TransactionEvent event) {
+        outboxEventRepository.save(OutboxEvent.of(event.publishedBy(snowflake.nodeId())));
+    }
+
+    @Override
+    public void publishAll(List<TransactionEvent> events) {
+        outboxEventRepository.saveAll(events.stream()
+                .map(event -> OutboxEvent.of(event.publishedBy(snowflake.nodeId())))
+                .toList());
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.wallet.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hands events to the {@link TransactionEventHandler}s of this process through an {@link EventRing}, with no broker
+ * in between; for single-node and development deployments (the {@code inprocess} profile). As with the Kafka
+ * publisher, events are published once the transaction commits. Events still in the ring when the process dies are
+ * lost, so the projection of a restarted node misses them.
+ *
+ * <p>Events are published after the commit, on the committing thread. When the ring stays full for
+ * {@code app.events.ring.publish-timeout-ms}, the events are dropped and logged instead of failing a request
+ * whose transaction already committed; {@code wallet.events.ring.rejected} counts them, and
+ * {@code wallet.events.ring.skipped} counts those a handler gave up on.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.events.publisher", havingValue = "ring")
+public class RingTransactionEventPublisher implements TransactionEventPublisher {
+
+    private final EventRing<TransactionEvent> ring;
+    private final Counter rejected;
+
+    @Value("${app.events.ring.shutdown-timeout-ms:5000}")
+    private long shutdownTimeoutMs;
+
+    public RingTransactionEventPublisher(List<TransactionEventHandler> handlers, MeterRegistry meterRegistry,
+                                         @Value("${app.events.ring.capacity:65536}") int capacity,
+                                         @Value("${app.events.ring.wait-strategy:blocking}") String waitStrategy,
+                                         @Value("${app.events.ring.batch-size:500}") int batchSize,
+                                         @Value("${app.projection.retry-backoff-ms:1000}") long retryBackoffMs,
+                                         @Value("${app.events.ring.max-attempts:5}") int maxAttempts,
+                                         @Value("${app.events.ring.publish-timeout-ms:1000}") long publishTimeoutMs) {
+        this.ring = new EventRing<>(capacity, parseWaitStrategy(waitStrategy), batchSize, retryBackoffMs, maxAttempts,
+                publishTimeoutMs);
+        for (TransactionEventHandler handler : handlers) {
+            ring.addHandler(handler.getClass().getSimpleName(), handler::onEvents);
+        }
+        Gauge.builder("wallet.events.ring.backlog", ring, EventRing::backlog)
+                .description("Transaction events published to the in-process ring but not yet handled")
+                .register(meterRegistry);
+        FunctionCounter.builder("wallet.events.ring.skipped", ring, EventRing::skipped)
+                .description("Transaction events a handler skipped after failing on them app.events.ring.max-attempts times")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("wallet.events.ring.rejected")
+                .description("Transaction events dropped because the in-process ring stayed full")
+                .register(meterRegistry);
+        log.info("In-process event ring with {} slots, {} wait strategy, {} handlers", ring.capacity(), waitStrategy,
+                handlers.size());
+    }
+
+    @Override
+    public void publish(TransactionEvent event) {
+        afterCommit(() -> {
+            try {
+                ring.publish(event);
+            } catch (RejectedExecutionException ex) {
+                dropped(1, ex);
+            }
+        });
+    }
+
+    @Override
+    public void publishAll(List<TransactionEvent> events) {
+        if (!events.isEmpty()) {
+            afterCommit(() -> {
+                try {
+                    ring.publishAll(events);
+                } catch (RejectedExecutionException ex) {
+                    dropped(events.size(), ex);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        ring.shutdown(shutdownTimeoutMs);
+    }
+
+    /** The transaction is committed either way; losing its events beats failing the request that made it. */
+    private void dropped(int events, RejectedExecutionException ex) {
+        rejected.increment(events);
+        log.error("Dropped {} transaction events: {}", events, ex.getMessage());
+    }
+
+    private static EventRing.WaitStrategy parseWaitStrategy(String waitStrategy) {
+        return switch (waitStrategy) {
+            case "busy-spin" -> EventRing.WaitStrategy.BUSY_SPIN;
+            case "yielding" -> EventRing.WaitStrategy.YIELDING;
+            case "sleeping" -> EventRing.WaitStrategy.SLEEPING;
+            case "blocking" -> EventRing.WaitStrategy.BLOCKING;
+            default -> throw new IllegalStateException("Unknown app.events.ring.wait-strategy: " + waitStrategy);
+        };
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
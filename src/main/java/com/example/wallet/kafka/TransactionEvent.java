@@ -1,7 +1,13 @@
 package com.example.wallet.kafka;
 
+import com.example.wallet.model.MoneyDeserializer;
+import com.example.wallet.model.MoneySerializer;
+import com.example.wallet.model.Transaction;
+import com.example.wallet.model.enums.TransactionStatus;
 import com.example.wallet.model.enums.TransactionType;
-import java.math.BigDecimal;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import java.time.Instant;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -14,8 +20,43 @@ public class TransactionEvent {
     private Long transactionId;
     private Long userId;
     private Long walletId;
-    private BigDecimal amount;
+    /** {@link com.example.wallet.model.Money} units, written to JSON as the decimal amount. */
+    @JsonSerialize(using = MoneySerializer.class)
+    @JsonDeserialize(using = MoneyDeserializer.class)
+    private long amount;
     private TransactionType type;
     private Instant timestamp;
-}
+    /** PENDING, VOIDED or EXPIRED for a hold being placed or released; null in events from before holds. */
+    private TransactionStatus status;
+    /** The publishing node, not the id's: a hold is captured under the id the authorizing node drew. */
+    private Integer nodeId;
+
+    public TransactionEvent(Long transactionId, Long userId, Long walletId, long amount, TransactionType type,
+                            Instant timestamp) {
+        this(transactionId, userId, walletId, amount, type, timestamp, TransactionStatus.SUCCESS, null);
+    }
+
+    public static TransactionEvent of(Transaction transaction, Long userId) {
+        return new TransactionEvent(
+                transaction.getId(),
+                userId,
+                transaction.getWallet().getId(),
+                transaction.getAmount(),
+                transaction.getType(),
+                transaction.getTimestamp(),
+                transaction.getStatus(),
+                null
+        );
+    }
 
+    /** This event as published by the given node. */
+    public TransactionEvent publishedBy(int nodeId) {
+        return new TransactionEvent(transactionId, userId, walletId, amount, type, timestamp, status, nodeId);
+    }
+
+    /** Whether the event moved money, as opposed to placing or releasing a hold. */
+    @JsonIgnore
+    public boolean isPosted() {
+        return status == null || status == TransactionStatus.SUCCESS;
+    }
+}
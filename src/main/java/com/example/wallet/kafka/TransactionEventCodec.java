@@ -0,0 +1,120 @@
+package com.example.wallet.kafka;
+
+import com.example.wallet.model.Money;
+import com.example.wallet.model.enums.TransactionStatus;
+import com.example.wallet.model.enums.TransactionType;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import org.apache.kafka.common.errors.SerializationException;
+
+/**
+ * Fixed-size binary encoding of {@link TransactionEvent}, 45 bytes per event (version 2, big endian):
+ *
+ * <pre>
+ * byte    schema version (2)
+ * byte    TransactionType ordinal
+ * long    transactionId
+ * long    userId
+ * long    walletId
+ * byte    amount scale
+ * long    amount unscaled value
+ * long    timestamp, nanoseconds since the epoch
+ * byte    TransactionStatus ordinal
+ * byte    publishing node id, -1 if unknown
+ * </pre>
+ *
+ * Version 1 lacks the last two bytes and still decodes, as SUCCESS of an unknown node. Enum ordinals are part of the
+ * format, so new constants must be appended.
+ */
+public final class TransactionEventCodec {
+
+    public static final byte VERSION_1 = 1;
+
+    public static final byte VERSION_2 = 2;
+
+    static final int V1_SIZE = 1 + 1 + 3 * Long.BYTES + 1 + Long.BYTES + Long.BYTES;
+
+    static final int V2_SIZE = V1_SIZE + 1 + 1;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+    private static final byte UNKNOWN_NODE = -1;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private TransactionEventCodec() {
+    }
+
+    public static byte[] encode(TransactionEvent event) {
+        return encode(event, ByteBuffer.allocate(V2_SIZE)).array();
+    }
+
+    /** Writes the event at the buffer's position and advances it by {@value #V2_SIZE} bytes. */
+    public static ByteBuffer encode(TransactionEvent event, ByteBuffer buffer) {
+        Instant timestamp = event.getTimestamp();
+        TransactionStatus status = event.getStatus() == null ? TransactionStatus.SUCCESS : event.getStatus();
+        return buffer
+                .put(VERSION_2)
+                .put((byte) event.getType().ordinal())
+                .putLong(event.getTransactionId())
+                .putLong(event.getUserId())
+                .putLong(event.getWalletId())
+                .put((byte) Money.SCALE)
+                .putLong(event.getAmount())
+                .putLong(Math.addExact(Math.multiplyExact(timestamp.getEpochSecond(), NANOS_PER_SECOND), timestamp.getNano()))
+                .put((byte) status.ordinal())
+                .put(event.getNodeId() == null ? UNKNOWN_NODE : event.getNodeId().byteValue());
+    }
+
+    public static TransactionEvent decode(byte[] data) {
+        return decode(ByteBuffer.wrap(data));
+    }
+
+    /** Reads an event at the buffer's position, e.g. straight from a mapped file, and advances past it. */
+    public static TransactionEvent decode(ByteBuffer buffer) {
+        int size = buffer.remaining();
+        try {
+            byte version = buffer.get();
+            if (version != VERSION_1 && version != VERSION_2) {
+                throw new SerializationException("Unsupported transaction event version " + version);
+            }
+            int typeOrdinal = buffer.get();
+            if (typeOrdinal < 0 || typeOrdinal >= TYPES.length) {
+                throw new SerializationException("Unknown transaction type ordinal " + typeOrdinal);
+            }
+            long transactionId = buffer.getLong();
+            long userId = buffer.getLong();
+            long walletId = buffer.getLong();
+            int scale = buffer.get();
+            long unscaled = buffer.getLong();
+            long amount = scale == Money.SCALE ? unscaled : toUnits(unscaled, scale);
+            long epochNanos = buffer.getLong();
+            Instant timestamp = Instant.ofEpochSecond(
+                    Math.floorDiv(epochNanos, NANOS_PER_SECOND), Math.floorMod(epochNanos, NANOS_PER_SECOND));
+            if (version == VERSION_1) {
+                return new TransactionEvent(transactionId, userId, walletId, amount, TYPES[typeOrdinal], timestamp);
+            }
+            int statusOrdinal = buffer.get();
+            if (statusOrdinal < 0 || statusOrdinal >= STATUSES.length) {
+                throw new SerializationException("Unknown transaction status ordinal " + statusOrdinal);
+            }
+            byte node = buffer.get();
+            return new TransactionEvent(transactionId, userId, walletId, amount, TYPES[typeOrdinal], timestamp,
+                    STATUSES[statusOrdinal], node == UNKNOWN_NODE ? null : (int) node);
+        } catch (BufferUnderflowException ex) {
+            throw new SerializationException("Truncated transaction event of " + size + " bytes", ex);
+        }
+    }
+
+    private static long toUnits(long unscaled, int scale) {
+        try {
+            return Money.of(BigDecimal.valueOf(unscaled, scale));
+        } catch (ArithmeticException ex) {
+            throw new SerializationException(ex.getMessage(), ex);
+        }
+    }
+}
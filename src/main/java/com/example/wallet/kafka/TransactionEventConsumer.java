@@ -1,17 +1,43 @@
 package com.example.wallet.kafka;
 
+import com.example.wallet.service.WalletProjectionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
 @Slf4j
 @Component
-public class TransactionEventConsumer {
+public class TransactionEventConsumer implements TransactionEventHandler {
 
-    @KafkaListener(topics = "${app.kafka.topic.transaction}", groupId = "${app.kafka.consumer-group:wallet-consumers}")
-    public void consume(TransactionEvent event) {
-        log.info("Consumed transaction event: txId={}, userId={}, amount={}, type={}, timestamp={}",
-                event.getTransactionId(), event.getUserId(), event.getAmount(), event.getType(), event.getTimestamp());
+    private final WalletProjectionService walletProjectionService;
+
+    /** Time from the ledger write to the projection, i.e. how far the read side trails. */
+    private final Timer eventAge;
+
+    public TransactionEventConsumer(WalletProjectionService walletProjectionService, MeterRegistry meterRegistry) {
+        this.walletProjectionService = walletProjectionService;
+        this.eventAge = Timer.builder("wallet.projection.event.age")
+                .description("Age of transaction events when applied to the wallet projection")
+                .register(meterRegistry);
     }
-}
 
+    @KafkaListener(topics = "${app.kafka.topic.transaction}", groupId = "${app.kafka.consumer-group:wallet-consumers}",
+            containerFactory = "transactionEventListenerFactory",
+            autoStartup = "${app.kafka.listeners.auto-startup:true}")
+    public void consume(List<TransactionEvent> events) {
+        onEvents(events);
+    }
+
+    @Override
+    public void onEvents(List<TransactionEvent> events) {
+        int applied = walletProjectionService.apply(events);
+        Instant now = Instant.now();
+        events.forEach(event -> eventAge.record(Duration.between(event.getTimestamp(), now)));
+        log.debug("Projected {} of {} consumed transaction events", applied, events.size());
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.wallet.kafka;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+/**
+ * Reads {@link TransactionEventCodec} binary events. Records that start with <code>'{'</code> were written by the
+ * JSON serializer and are handed to a JSON deserializer, so a topic can be switched over while it still holds
+ * JSON records.
+ */
+public class TransactionEventDeserializer implements Deserializer<TransactionEvent> {
+
+    private final JsonDeserializer<TransactionEvent> jsonDeserializer = new JsonDeserializer<>(TransactionEvent.class, false);
+
+    @Override
+    public TransactionEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length > 0 && data[0] == '{') {
+            return jsonDeserializer.deserialize(topic, data);
+        }
+        return TransactionEventCodec.decode(data);
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
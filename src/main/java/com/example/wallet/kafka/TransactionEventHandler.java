@@ -0,0 +1,12 @@
+package com.example.wallet.kafka;
+
+import java.util.List;
+
+/**
+ * Receives transaction events from the in-process event bus ({@link RingTransactionEventPublisher}), in
+ * publication order and in batches. The list is only valid during the call.
+ */
+public interface TransactionEventHandler {
+
+    void onEvents(List<TransactionEvent> events);
+}
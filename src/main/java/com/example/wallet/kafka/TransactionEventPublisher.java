@@ -1,9 +1,13 @@
 package com.example.wallet.kafka;
 
-import com.example.wallet.model.Transaction;
+import java.util.List;
 
 public interface TransactionEventPublisher {
 
-    void publish(Transaction transaction);
+    void publish(TransactionEvent event);
+
+    default void publishAll(List<TransactionEvent> events) {
+        events.forEach(this::publish);
+    }
 }
 
@@ -1,40 +1,170 @@
 package com.example.wallet.kafka;
 
-import com.example.wallet.model.Transaction;
-import lombok.RequiredArgsConstructor;
+import com.example.wallet.model.id.Snowflake;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+/**
+ * Sends events straight to Kafka once the transaction commits; with the journal enabled they are journaled before it.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.events.publisher", havingValue = "kafka", matchIfMissing = true)
 public class TransactionEventPublisherImpl implements TransactionEventPublisher {
 
     private final KafkaTemplate<String, TransactionEvent> kafkaTemplate;
 
+    private final int nodeId;
+
+    /** Null unless the journal is enabled. */
+    private final EventJournal journal;
+
+    private final MeterRegistry meterRegistry;
+    private final Timer acknowledgedTimer;
+    private final Timer rejectedTimer;
+    private final Counter failedCounter;
+
     @Value("${app.kafka.topic.transaction}")
     private String transactionTopic;
 
+    public TransactionEventPublisherImpl(KafkaTemplate<String, TransactionEvent> kafkaTemplate,
+                                         ObjectProvider<EventJournal> journal,
+                                         Snowflake snowflake,
+                                         MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.nodeId = snowflake.nodeId();
+        this.journal = journal.getIfAvailable();
+        this.meterRegistry = meterRegistry;
+        this.acknowledgedTimer = publishTimer(meterRegistry, "success");
+        this.rejectedTimer = publishTimer(meterRegistry, "failure");
+        this.failedCounter = Counter.builder("wallet.events.publish.failed")
+                .description("Transaction events Kafka did not acknowledge")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void publish(TransactionEvent event) {
+        TransactionEvent published = event.publishedBy(nodeId);
+        journaledAfterCommit(List.of(published), positions -> send(published, positions == null ? -1 : positions[0]));
+    }
+
     @Override
-    public void publish(Transaction transaction) {
-        TransactionEvent event = new TransactionEvent(
-                transaction.getId(),
-                transaction.getWallet().getUser().getId(),
-                transaction.getWallet().getId(),
-                transaction.getAmount(),
-                transaction.getType(),
-                transaction.getTimestamp()
-        );
-        kafkaTemplate.send(transactionTopic, String.valueOf(event.getTransactionId()), event)
+    public void publishAll(List<TransactionEvent> events) {
+        if (!events.isEmpty()) {
+            List<TransactionEvent> published = events.stream().map(event -> event.publishedBy(nodeId)).toList();
+            journaledAfterCommit(published, positions -> sendAll(published, positions));
+        }
+    }
+
+    private void send(TransactionEvent event, long position) {
+        // Keyed by user, so every event of a wallet goes to the same partition in commit order.
+        timedSend(event)
                 .whenComplete((result, ex) -> {
                     if (ex != null) {
                         log.error("Failed to publish transaction event {}", event.getTransactionId(), ex);
                     } else {
+                        acknowledge(position);
                         log.info("Published transaction event {} to topic {}", event.getTransactionId(), transactionTopic);
                     }
                 });
     }
-}
 
+    private void sendAll(List<TransactionEvent> events, long[] positions) {
+        // Sends are queued back to back, so the producer packs them into as few requests as its batching allows.
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[events.size()];
+        for (int i = 0; i < sends.length; i++) {
+            TransactionEvent event = events.get(i);
+            long position = positions == null ? -1 : positions[i];
+            sends[i] = timedSend(event).thenRun(() -> acknowledge(position));
+        }
+        CompletableFuture.allOf(sends).whenComplete((result, ex) -> {
+            if (ex != null) {
+                long failed = Arrays.stream(sends).filter(CompletableFuture::isCompletedExceptionally).count();
+                log.error("Failed to publish {} of {} transaction events", failed, events.size(), ex);
+            } else {
+                log.info("Published {} transaction events to topic {}", events.size(), transactionTopic);
+            }
+        });
+    }
+
+    private CompletableFuture<?> timedSend(TransactionEvent event) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<?> send;
+        try {
+            send = kafkaTemplate.send(transactionTopic, String.valueOf(event.getUserId()), event);
+        } catch (RuntimeException ex) {
+            failedCounter.increment();
+            throw ex;
+        }
+        return send.whenComplete((result, ex) -> {
+            if (ex == null) {
+                sample.stop(acknowledgedTimer);
+            } else {
+                sample.stop(rejectedTimer);
+                failedCounter.increment();
+            }
+        });
+    }
+
+    /** Returns the events' journal positions, null if the journal is disabled. */
+    private long[] journalAll(List<TransactionEvent> events) {
+        return journal == null ? null : journal.appendAll(events);
+    }
+
+    private void acknowledge(long position) {
+        if (position >= 0) {
+            journal.acknowledge(position);
+        }
+    }
+
+    private static Timer publishTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("wallet.events.publish")
+                .description("Time from sending a transaction event until Kafka acknowledged or rejected it")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private void journaledAfterCommit(List<TransactionEvent> events, Consumer<long[]> send) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send.accept(journalAll(events));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long[] positions;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // A failed append fails the commit, so every committed event is in the journal.
+                positions = journalAll(events);
+            }
+
+            @Override
+            public void afterCommit() {
+                send.accept(positions);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                // Journaled, then rolled back: replay must not send them.
+                if (status != STATUS_COMMITTED && positions != null) {
+                    for (long position : positions) {
+                        acknowledge(position);
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.wallet.kafka;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Writes {@link TransactionEvent}s in the {@link TransactionEventCodec} binary format.
+ */
+public class TransactionEventSerializer implements Serializer<TransactionEvent> {
+
+    @Override
+    public byte[] serialize(String topic, TransactionEvent event) {
+        return event == null ? null : TransactionEventCodec.encode(event);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.wallet.kafka;
+
+import com.example.wallet.model.id.Snowflake;
+import com.example.wallet.service.BalanceUpdateHub;
+import com.example.wallet.service.WalletService;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Refreshes this node's cached balances and update streams for events other nodes published.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.kafka.enabled", havingValue = "true", matchIfMissing = true)
+public class WalletBalanceCacheRefresher {
+
+    private final WalletService walletService;
+    private final BalanceUpdateHub balanceUpdates;
+    private final Snowflake snowflake;
+
+    @KafkaListener(topics = "${app.kafka.topic.transaction}", groupId = "wallet-balance-cache-${app.id.node-id}",
+            containerFactory = "transactionEventListenerFactory",
+            autoStartup = "${app.kafka.listeners.auto-startup:true}", concurrency = "1",
+            properties = "auto.offset.reset=latest")
+    public void onEvents(List<TransactionEvent> events) {
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (TransactionEvent event : events) {
+            // Not the transaction id's node: a hold captured here carries the id the authorizing node drew.
+            if (event.getNodeId() == null || event.getNodeId() != snowflake.nodeId()) {
+                userIds.add(event.getUserId());
+            }
+        }
+        if (!userIds.isEmpty()) {
+            walletService.refreshCachedBalances(userIds);
+            balanceUpdates.markStale(userIds);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.wallet.model;
+
+/**
+ * A wallet's balance and held amount in {@link Money} units, with the version it was read at.
+ */
+public record BalanceSnapshot(Long userId, long balance, long held, Long version) {
+
+    public long available() {
+        return Money.subtract(balance, held);
+    }
+}
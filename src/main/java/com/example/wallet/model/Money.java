@@ -0,0 +1,49 @@
+package com.example.wallet.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money held in a {@code long} as units of 10^-4, the scale of every monetary column
+ * ({@code precision = 19, scale = 4}). Entities and events keep amounts as plain {@code long}s and do their
+ * arithmetic here, so posting allocates nothing for amounts; {@link BigDecimal} only appears at the edges
+ * (JDBC, request and response bodies). Arithmetic throws {@link ArithmeticException} on overflow instead of
+ * wrapping.
+ */
+public final class Money {
+
+    public static final int SCALE = 4;
+
+    public static final long ZERO = 0L;
+
+    private Money() {
+    }
+
+    /**
+     * Converts an exact amount; fails if it has more than four decimal places or does not fit in a {@code long}.
+     */
+    public static long of(BigDecimal amount) {
+        try {
+            return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException ex) {
+            throw new ArithmeticException("Amount " + amount.toPlainString() + " is not representable at scale " + SCALE);
+        }
+    }
+
+    public static BigDecimal toBigDecimal(long units) {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /** Plain decimal without trailing zeros, e.g. {@code 25.5} for 255000 units; for messages and logs. */
+    public static String format(long units) {
+        return toBigDecimal(units).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.wallet.model;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+
+/**
+ * Reads a decimal amount, as written by {@link MoneySerializer}, into {@link Money} units.
+ */
+public class MoneyDeserializer extends StdDeserializer<Long> {
+
+    public MoneyDeserializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        try {
+            return Money.of(parser.getDecimalValue());
+        } catch (ArithmeticException ex) {
+            return (Long) context.handleWeirdNumberValue(Long.class, parser.getDecimalValue(), ex.getMessage());
+        }
+    }
+}
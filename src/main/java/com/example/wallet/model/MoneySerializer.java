@@ -0,0 +1,21 @@
+package com.example.wallet.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+
+/**
+ * Writes {@link Money} units as the decimal number a {@code BigDecimal} amount would produce, e.g. {@code 100.5000}.
+ */
+public class MoneySerializer extends StdSerializer<Long> {
+
+    public MoneySerializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public void serialize(Long units, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeNumber(Money.toBigDecimal(units));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.wallet.model;
+
+import com.example.wallet.kafka.TransactionEvent;
+import com.example.wallet.model.enums.TransactionStatus;
+import com.example.wallet.model.enums.TransactionType;
+import com.example.wallet.model.id.SnowflakeId;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A transaction event waiting to be relayed to Kafka.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "outbox_events", indexes = {
+        // Unsent rows are polled in id (i.e. creation) order; sent ones are purged by sent_at.
+        @Index(name = "idx_outbox_sent_at_id", columnList = "sent_at, id")
+})
+public class OutboxEvent {
+
+    @Id
+    @SnowflakeId
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    /** {@link Money} units. */
+    @Convert(converter = MoneyConverter.class)
+    @Column(nullable = false, precision = 19, scale = 4)
+    private long amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private TransactionType type;
+
+    @Column(name = "event_timestamp", nullable = false)
+    private Instant eventTimestamp;
+
+    /** Null in rows written before hold events were published; read as SUCCESS. */
+    @Enumerated(EnumType.STRING)
+    @Column(length = 15)
+    private TransactionStatus status;
+
+    /** The node that wrote the row; null in rows written before it was recorded. */
+    @Column(name = "node_id")
+    private Integer nodeId;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "sent_at")
+    private Instant sentAt;
+
+    @PrePersist
+    protected void prePersist() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+    }
+
+    public static OutboxEvent of(TransactionEvent event) {
+        return OutboxEvent.builder()
+                .transactionId(event.getTransactionId())
+                .userId(event.getUserId())
+                .walletId(event.getWalletId())
+                .amount(event.getAmount())
+                .type(event.getType())
+                .eventTimestamp(event.getTimestamp())
+                .status(event.getStatus())
+                .nodeId(event.getNodeId())
+                .build();
+    }
+
+    public TransactionEvent toEvent() {
+        return new TransactionEvent(transactionId, userId, walletId, amount, type, eventTimestamp,
+                status == null ? TransactionStatus.SUCCESS : status, nodeId);
+    }
+}
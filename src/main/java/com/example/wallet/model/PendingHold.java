@@ -0,0 +1,9 @@
+package com.example.wallet.model;
+
+import java.time.Instant;
+
+/**
+ * What expiring a hold needs to know; the user picks its shard.
+ */
+public record PendingHold(Long holdId, Long userId, Instant expiresAt) {
+}
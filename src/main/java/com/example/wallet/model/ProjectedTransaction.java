@@ -0,0 +1,30 @@
+package com.example.wallet.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Marks a transaction event as folded into {@link WalletProjection}, so redelivered events are skipped. Purged by
+ * {@code projected_at} once the event can no longer be redelivered.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "projected_transactions", indexes = {
+        @Index(name = "idx_projected_transactions_projected_at", columnList = "projected_at")
+})
+public class ProjectedTransaction {
+
+    @Id
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    @Column(name = "projected_at", nullable = false)
+    private Instant projectedAt;
+}
@@ -2,19 +2,20 @@ package com.example.wallet.model;
 
 import com.example.wallet.model.enums.TransactionStatus;
 import com.example.wallet.model.enums.TransactionType;
+import com.example.wallet.model.id.SnowflakeId;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
-import java.math.BigDecimal;
+import jakarta.persistence.UniqueConstraint;
 import java.time.Instant;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -28,22 +29,32 @@ import lombok.Setter;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        // Covers history lookups by wallet in (timestamp, id) order, including keyset pagination.
+        @Index(name = "idx_transactions_wallet_ts_id", columnList = "wallet_id, timestamp, id"),
+        // Finds the pending holds to expire at startup without scanning the history.
+        @Index(name = "idx_transactions_status_id", columnList = "status, id")
+}, uniqueConstraints = {
+        // Source of truth for idempotent postings; rows without a key (NULL) are not constrained.
+        @UniqueConstraint(name = "uk_transactions_wallet_idempotency_key", columnNames = {"wallet_id", "idempotency_key"})
+})
 public class Transaction {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "wallet_id", nullable = false)
     private Wallet wallet;
 
+    /** {@link Money} units. */
+    @Convert(converter = MoneyConverter.class)
     @Column(nullable = false, precision = 19, scale = 4)
-    private BigDecimal amount;
+    private long amount;
 
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false, length = 10)
+    @Column(nullable = false, length = 16)
     private TransactionType type;
 
     @Enumerated(EnumType.STRING)
@@ -53,6 +64,17 @@ public class Transaction {
     @Column(nullable = false, updatable = false)
     private Instant timestamp;
 
+    @Column(name = "idempotency_key", length = 64, updatable = false)
+    private String idempotencyKey;
+
+    /** For a transfer leg, the id of the other leg; null for credits and debits. */
+    @Column(name = "linked_transaction_id")
+    private Long linkedTransactionId;
+
+    /** For a hold, when it is released unless captured first; null for other transactions. */
+    @Column(name = "expires_at", updatable = false)
+    private Instant expiresAt;
+
     @PrePersist
     protected void prePersist() {
         if (timestamp == null) {
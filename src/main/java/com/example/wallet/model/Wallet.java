@@ -1,15 +1,15 @@
 package com.example.wallet.model;
 
+import com.example.wallet.model.id.SnowflakeId;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
-import java.math.BigDecimal;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -26,14 +26,28 @@ import lombok.Setter;
 public class Wallet {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false, unique = true)
     private User user;
 
+    /** {@link Money} units. */
+    @Convert(converter = MoneyConverter.class)
     @Column(nullable = false, precision = 19, scale = 4)
-    private BigDecimal balance;
+    private long balance;
+
+    /**
+     * {@link Money} units reserved by pending holds; the available balance is {@code balance - held}. Never exceeds
+     * the row's balance, so capturing a hold cannot overdraw the row even when the wallet is striped.
+     */
+    @Convert(converter = MoneyConverter.class)
+    @Column(nullable = false, precision = 19, scale = 4)
+    private long held;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
 
@@ -0,0 +1,37 @@
+package com.example.wallet.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import java.time.Instant;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Read-side view of a wallet built from transaction events; written only by
+ * {@link com.example.wallet.service.WalletProjectionService}.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "wallet_projections")
+public class WalletProjection {
+
+    @Id
+    @Column(name = "wallet_id")
+    private Long walletId;
+
+    @Column(name = "user_id", nullable = false, unique = true)
+    private Long userId;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal balance;
+
+    @Column(name = "transaction_count", nullable = false)
+    private Long transactionCount;
+
+    @Column(name = "last_event_at", nullable = false)
+    private Instant lastEventAt;
+}
@@ -0,0 +1,49 @@
+package com.example.wallet.model;
+
+import com.example.wallet.model.id.SnowflakeId;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One stripe of a striped wallet's balance; the wallet's balance is its own row plus all of its slots.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "wallet_slots", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_wallet_slots_wallet_slot", columnNames = {"wallet_id", "slot"})
+})
+public class WalletSlot {
+
+    @Id
+    @SnowflakeId
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Column(nullable = false)
+    private int slot;
+
+    /** {@link Money} units. */
+    @Convert(converter = MoneyConverter.class)
+    @Column(nullable = false, precision = 19, scale = 4)
+    private long balance;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
+}
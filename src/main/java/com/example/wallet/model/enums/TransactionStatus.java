@@ -1,8 +1,12 @@
 package com.example.wallet.model.enums;
 
 public enum TransactionStatus {
+    /** An authorized hold: a DEBIT whose amount is reserved in the wallet's {@code held} until captured or released. */
     PENDING,
     SUCCESS,
-    FAILED
+    FAILED,
+    /** A hold released by the client before capture. */
+    VOIDED,
+    /** A hold released because it was not captured before its expiry. */
+    EXPIRED
 }
-
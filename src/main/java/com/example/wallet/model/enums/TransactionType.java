@@ -2,6 +2,9 @@ package com.example.wallet.model.enums;
 
 public enum TransactionType {
     CREDIT,
-    DEBIT
+    DEBIT,
+    /** Leg of a transfer leaving the wallet; linked to the matching {@link #TRANSFER_IN}. */
+    TRANSFER_OUT,
+    /** Leg of a transfer arriving in the wallet; linked to the matching {@link #TRANSFER_OUT}. */
+    TRANSFER_IN
 }
-
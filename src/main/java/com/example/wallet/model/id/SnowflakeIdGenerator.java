@@ -0,0 +1,38 @@
+package com.example.wallet.model.id;
+
+import java.lang.reflect.Member;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+public class SnowflakeIdGenerator implements IdentifierGenerator {
+
+    /** Hibernate setting carrying this node's id; set by {@code IdConfig}. */
+    public static final String NODE_ID_SETTING = "app.id.node-id";
+
+    private final transient Snowflake snowflake;
+
+    public SnowflakeIdGenerator(SnowflakeId config, Member member, CustomIdGeneratorCreationContext context) {
+        Object nodeId = context.getServiceRegistry()
+                .requireService(ConfigurationService.class)
+                .getSettings()
+                .get(NODE_ID_SETTING);
+        if (nodeId == null) {
+            throw new IllegalStateException("No node id for generated ids: " + NODE_ID_SETTING + " is not set");
+        }
+        this.snowflake = Snowflake.forNode(Integer.parseInt(nodeId.toString()));
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        // An id set before saving is kept, so a caller can pick the shard of a new row from its id before inserting it.
+        Object assigned = session.getEntityPersister(null, object).getIdentifier(object, session);
+        return assigned != null ? assigned : snowflake.nextId();
+    }
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.wallet.repository;
+
+import com.example.wallet.model.OutboxEvent;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Query("select o from OutboxEvent o where o.sentAt is null order by o.id")
+    List<OutboxEvent> findUnsent(Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxEvent o set o.sentAt = :sentAt where o.id in :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") Instant sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OutboxEvent o where o.sentAt < :before")
+    int deleteSentBefore(@Param("before") Instant before);
+}
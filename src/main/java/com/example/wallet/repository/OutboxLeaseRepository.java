@@ -0,0 +1,25 @@
+package com.example.wallet.repository;
+
+import com.example.wallet.model.OutboxLease;
+import java.time.Instant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface OutboxLeaseRepository extends JpaRepository<OutboxLease, String> {
+
+    /** Renews the lease, or takes it over once it lapsed; returns 0 while another node holds it or it is missing. */
+    @Transactional
+    @Modifying
+    @Query("update OutboxLease l set l.owner = :owner, l.expiresAt = :until "
+            + "where l.name = :name and (l.owner = :owner or l.expiresAt < :now)")
+    int renew(@Param("name") String name, @Param("owner") String owner, @Param("now") Instant now,
+              @Param("until") Instant until);
+
+    @Transactional
+    @Modifying
+    @Query(value = "insert into outbox_leases (name, owner, expires_at) values (:name, :owner, :until)", nativeQuery = true)
+    int create(@Param("name") String name, @Param("owner") String owner, @Param("until") Instant until);
+}
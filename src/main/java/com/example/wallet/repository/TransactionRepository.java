@@ -1,11 +1,76 @@
 package com.example.wallet.repository;
 
+import com.example.wallet.dto.TransactionResponse;
+import com.example.wallet.model.PendingHold;
 import com.example.wallet.model.Transaction;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+/**
+ * History reads select straight into {@link TransactionResponse}: one statement per call whatever the row count,
+ * and no entities to hydrate, track or lazily initialize.
+ */
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
-    List<Transaction> findByWalletUserIdOrderByTimestampDesc(Long userId);
-}
+    String SELECT_RESPONSE = "select new com.example.wallet.dto.TransactionResponse("
+            + "t.id, w.user.id, w.id, t.amount, t.type, t.status, t.timestamp, t.linkedTransactionId, t.expiresAt) "
+            + "from Transaction t join t.wallet w ";
+
+    @Query(SELECT_RESPONSE + "where w.user.id = :userId order by t.timestamp desc, t.id desc")
+    List<TransactionResponse> findResponsesByUserId(@Param("userId") Long userId);
+
+    @Query(SELECT_RESPONSE + "where w.id = :walletId order by t.timestamp desc, t.id desc")
+    List<TransactionResponse> findLatestResponses(@Param("walletId") Long walletId, Limit limit);
+
+    /**
+     * Keyset page: rows strictly older than the (timestamp, id) position, served from idx_transactions_wallet_ts_id.
+     */
+    @Query(SELECT_RESPONSE + "where w.id = :walletId "
+            + "and (t.timestamp < :timestamp or (t.timestamp = :timestamp and t.id < :id)) "
+            + "order by t.timestamp desc, t.id desc")
+    List<TransactionResponse> findResponsesOlderThan(@Param("walletId") Long walletId,
+                                                     @Param("timestamp") Instant timestamp,
+                                                     @Param("id") Long id, Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_RESPONSE + "where w.id = :walletId order by t.timestamp desc, t.id desc")
+    Stream<TransactionResponse> streamResponsesByWalletId(@Param("walletId") Long walletId);
 
+    @Query("select t from Transaction t join t.wallet w where w.user.id = :userId and t.idempotencyKey = :key")
+    Optional<Transaction> findByUserIdAndIdempotencyKey(@Param("userId") Long userId, @Param("key") String key);
+
+    @Query(SELECT_RESPONSE + "where w.user.id = :userId and t.status = com.example.wallet.model.enums.TransactionStatus.PENDING "
+            + "order by t.timestamp desc, t.id desc")
+    List<TransactionResponse> findPendingHoldResponses(@Param("userId") Long userId);
+
+    /**
+     * Locks the user's transaction for update; a hold is only ever captured or released under this lock, taken
+     * before the wallet row's.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from Transaction t join t.wallet w where t.id = :id and w.user.id = :userId")
+    Optional<Transaction> lockByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    /** Locks those of the holds that are still pending, in id order so concurrent callers cannot deadlock. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from Transaction t join fetch t.wallet w join fetch w.user "
+            + "where t.id in :ids and t.status = com.example.wallet.model.enums.TransactionStatus.PENDING order by t.id")
+    List<Transaction> lockPendingByIdIn(@Param("ids") Collection<Long> ids);
+
+    /** One page of the pending holds after {@code afterId}, in id order, served from idx_transactions_status_id. */
+    @Query("select new com.example.wallet.model.PendingHold(t.id, w.user.id, t.expiresAt) from Transaction t join t.wallet w "
+            + "where t.status = com.example.wallet.model.enums.TransactionStatus.PENDING and t.id > :afterId order by t.id")
+    List<PendingHold> findPendingHoldsAfter(@Param("afterId") Long afterId, Limit limit);
+}
@@ -0,0 +1,10 @@
+package com.example.wallet.repository;
+
+import com.example.wallet.model.WalletProjection;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface WalletProjectionRepository extends JpaRepository<WalletProjection, Long> {
+
+    Optional<WalletProjection> findByUserId(Long userId);
+}
@@ -1,11 +1,100 @@
 package com.example.wallet.repository;
 
+import com.example.wallet.model.BalanceSnapshot;
+import com.example.wallet.model.Money;
 import com.example.wallet.model.Wallet;
+import jakarta.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface WalletRepository extends JpaRepository<Wallet, Long> {
 
     Optional<Wallet> findByUserId(Long userId);
-}
 
+    List<Wallet> findByUserIdIn(Collection<Long> userIds);
+
+    /** In id order, so two callers can only queue, never deadlock. */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select w from Wallet w where w.id in :ids order by w.id")
+    List<Wallet> lockAllById(@Param("ids") Collection<Long> ids);
+
+    @Transactional(readOnly = true)
+    @Query("select w.id from Wallet w where w.user.id = :userId")
+    Optional<Long> findIdByUserId(@Param("userId") Long userId);
+
+    default Optional<BalanceSnapshot> findBalanceByUserId(Long userId) {
+        return findBalancesByUserIdIn(List.of(userId)).stream().findFirst();
+    }
+
+    default List<BalanceSnapshot> findBalancesByUserIdIn(Collection<Long> userIds) {
+        return findBalanceRowsByUserIdIn(userIds).stream().map(BalanceRow::toSnapshot).toList();
+    }
+
+    // One statement, so a concurrent sweep is never half seen.
+    @Transactional(readOnly = true)
+    @Query(value = "select w.user_id as userId, "
+            + "w.balance + coalesce((select sum(s.balance) from wallet_slots s where s.wallet_id = w.id), 0) as balance, "
+            + "w.held as held, "
+            + "w.version + coalesce((select sum(s.version) from wallet_slots s where s.wallet_id = w.id), 0) as version "
+            + "from wallets w where w.user_id in (:userIds)", nativeQuery = true)
+    List<BalanceRow> findBalanceRowsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    @Transactional(readOnly = true)
+    @Query(value = "select w.version + coalesce((select sum(s.version) from wallet_slots s where s.wallet_id = w.id), 0) "
+            + "from wallets w where w.user_id = :userId", nativeQuery = true)
+    Optional<Long> findVersionByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("update Wallet w set w.balance = w.balance + :amount, w.version = w.version + 1 where w.user.id = :userId")
+    int credit(@Param("userId") Long userId, @Param("amount") long amount);
+
+    /** Returns 0 when the balance is insufficient. */
+    @Modifying
+    @Query("update Wallet w set w.balance = w.balance - :amount, w.version = w.version + 1 "
+            + "where w.user.id = :userId and w.balance - w.held >= :amount")
+    int debitIfSufficient(@Param("userId") Long userId, @Param("amount") long amount);
+
+    /** Returns 0 when the balance is insufficient. */
+    @Modifying
+    @Query("update Wallet w set w.held = w.held + :amount, w.version = w.version + 1 "
+            + "where w.user.id = :userId and w.balance - w.held >= :amount")
+    int holdIfSufficient(@Param("userId") Long userId, @Param("amount") long amount);
+
+    @Modifying
+    @Query("update Wallet w set w.balance = w.balance - :amount, w.held = w.held - :amount, w.version = w.version + 1 "
+            + "where w.id = :id")
+    int captureHeld(@Param("id") Long id, @Param("amount") long amount);
+
+    @Modifying
+    @Query("update Wallet w set w.held = w.held - :amount, w.version = w.version + 1 where w.id = :id")
+    int releaseHeld(@Param("id") Long id, @Param("amount") long amount);
+
+    /** Returns 0 if the wallet changed since {@code version} was read. */
+    @Modifying
+    @Query("update Wallet w set w.balance = :balance, w.version = w.version + 1 where w.id = :id and w.version = :version")
+    int updateBalance(@Param("id") Long id, @Param("balance") long balance, @Param("version") Long version);
+
+    /** Balances as decimals, not units, as a native query returns them. */
+    interface BalanceRow {
+
+        Long getUserId();
+
+        BigDecimal getBalance();
+
+        BigDecimal getHeld();
+
+        Long getVersion();
+
+        default BalanceSnapshot toSnapshot() {
+            return new BalanceSnapshot(getUserId(), Money.of(getBalance()), Money.of(getHeld()), getVersion());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.wallet.repository;
+
+import com.example.wallet.model.WalletSlot;
+import jakarta.persistence.LockModeType;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface WalletSlotRepository extends JpaRepository<WalletSlot, Long> {
+
+    @Transactional(readOnly = true)
+    long countByWalletId(Long walletId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from WalletSlot s where s.walletId = :walletId order by s.slot")
+    List<WalletSlot> lockByWalletId(@Param("walletId") Long walletId);
+
+    @Modifying
+    @Query("update WalletSlot s set s.balance = s.balance + :amount, s.version = s.version + 1 where s.walletId = :walletId and s.slot = :slot")
+    int credit(@Param("walletId") Long walletId, @Param("slot") int slot, @Param("amount") long amount);
+}
@@ -0,0 +1,86 @@
+package com.example.wallet.service;
+
+import com.example.wallet.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounds the number of service calls holding a database connection at once. With virtual threads there is no
+ * request thread pool left to cap concurrency, so without this every waiting request would queue inside the
+ * connection pool until its timeout. Callers wait at most {@code app.admission.max-wait-ms} for a permit and
+ * are otherwise rejected with {@link ServiceOverloadedException}.
+ *
+ * <p>Covers {@code @Transactional} service methods and the non-transactional entry points marked {@link Admitted},
+ * such as balance and wallet id reads. Ordered ahead of the transaction interceptor so no connection is taken before
+ * admission. Nested calls on the same thread reuse the outer permit.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true")
+public class AdmissionLimiter {
+
+    private final Semaphore permits;
+
+    private final long maxWaitMs;
+
+    private final Counter rejected;
+
+    private final ThreadLocal<Boolean> admitted = new ThreadLocal<>();
+
+    public AdmissionLimiter(@Value("${app.admission.max-concurrent:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrent,
+                            @Value("${app.admission.max-wait-ms:100}") long maxWaitMs,
+                            MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxWaitMs = maxWaitMs;
+        this.rejected = Counter.builder("wallet.admission.rejected")
+                .description("Service calls rejected because no database slot freed up in time")
+                .register(meterRegistry);
+        Gauge.builder("wallet.admission.in.use", permits, p -> maxConcurrent - p.availablePermits())
+                .description("Service calls currently admitted")
+                .register(meterRegistry);
+        log.info("Admission control enabled: {} concurrent calls, {} ms max wait", maxConcurrent, maxWaitMs);
+    }
+
+    @Around("within(com.example.wallet.service..*) && "
+            + "(@annotation(org.springframework.transaction.annotation.Transactional) "
+            + "|| @annotation(com.example.wallet.service.Admitted))")
+    public Object admit(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (admitted.get() != null) {
+            return joinPoint.proceed();
+        }
+        acquire();
+        admitted.set(Boolean.TRUE);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            admitted.remove();
+            permits.release();
+        }
+    }
+
+    private void acquire() {
+        try {
+            if (permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.increment();
+        throw new ServiceOverloadedException(maxWaitMs);
+    }
+}
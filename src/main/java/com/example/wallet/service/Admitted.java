@@ -0,0 +1,16 @@
+package com.example.wallet.service;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service entry point that reads or writes the database without being {@code @Transactional} itself (it
+ * opens its own transaction, or none); {@link AdmissionLimiter} admits it like a transactional method.
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Admitted {
+}
@@ -0,0 +1,87 @@
+package com.example.wallet.service;
+
+import com.example.wallet.model.Money;
+import com.example.wallet.model.WalletSlot;
+import com.example.wallet.repository.WalletRepository;
+import com.example.wallet.repository.WalletSlotRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Opt-in balance striping for hot wallets: credits spread over {@link WalletSlot} rows, debits sweep them back.
+ */
+@Component
+public class BalanceStriping {
+
+    private final WalletRepository walletRepository;
+    private final WalletSlotRepository slotRepository;
+    private final int maxSlots;
+    private final Cache<Long, Integer> slotCounts;
+
+    public BalanceStriping(WalletRepository walletRepository,
+                           WalletSlotRepository slotRepository,
+                           @Value("${app.wallet.striping.max-slots:64}") int maxSlots,
+                           @Value("${app.wallet.striping.slot-count-cache.max-size:100000}") long slotCountCacheMaxSize,
+                           @Value("${app.wallet.striping.slot-count-ttl-ms:60000}") long slotCountTtlMs) {
+        this.walletRepository = walletRepository;
+        this.slotRepository = slotRepository;
+        this.maxSlots = maxSlots;
+        this.slotCounts = Caffeine.newBuilder()
+                .maximumSize(slotCountCacheMaxSize)
+                .expireAfterWrite(Duration.ofMillis(slotCountTtlMs))
+                .build();
+    }
+
+    /** As far as this node knows: a stale answer only credits the row, and reads always add the slots. */
+    public boolean isStriped(Long walletId) {
+        return slotCount(walletId) > 0;
+    }
+
+    /** Slots are only ever added; returns the resulting count. */
+    @Transactional
+    public int stripe(Long walletId, int slots) {
+        // Serializes with sweeps and with other callers striping the same wallet.
+        walletRepository.lockAllById(List.of(walletId));
+        int existing = (int) slotRepository.countByWalletId(walletId);
+        int target = Math.max(existing, Math.max(1, Math.min(slots, maxSlots)));
+        for (int slot = existing; slot < target; slot++) {
+            slotRepository.save(WalletSlot.builder().walletId(walletId).slot(slot).balance(Money.ZERO).build());
+        }
+        slotCounts.asMap().merge(walletId, target, Math::max);
+        return target;
+    }
+
+    /**
+     * Rows the caller inserts referencing the wallet must be flushed first, so their foreign-key lock on the wallet
+     * row is taken before the slot's, in the order sweeps use.
+     */
+    public void credit(Long walletId, long amount) {
+        int slot = Math.floorMod(Long.hashCode(Thread.currentThread().getId()), slotCount(walletId));
+        slotRepository.credit(walletId, slot, amount);
+    }
+
+    /** Empties the slots and returns what they held, for the caller to add to the wallet row. */
+    public long sweep(Long walletId) {
+        // The wallet row before the slots, the order every writer of both uses.
+        walletRepository.lockAllById(List.of(walletId));
+        List<WalletSlot> slots = slotRepository.lockByWalletId(walletId);
+        long swept = Money.ZERO;
+        for (WalletSlot slot : slots) {
+            swept = Money.add(swept, slot.getBalance());
+            slot.setBalance(Money.ZERO);
+        }
+        if (!slots.isEmpty()) {
+            slotCounts.asMap().merge(walletId, slots.size(), Math::max);
+        }
+        return swept;
+    }
+
+    private int slotCount(Long walletId) {
+        return slotCounts.get(walletId, id -> (int) slotRepository.countByWalletId(id));
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.wallet.service;
+
+import com.example.wallet.dto.BalanceUpdateResponse;
+import com.example.wallet.exception.TooManySubscribersException;
+import com.example.wallet.model.BalanceSnapshot;
+import com.example.wallet.model.Money;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes wallet balances to server-sent event subscribers, coalesced to at most one push per user and flush.
+ */
+@Slf4j
+@Component
+public class BalanceUpdateHub {
+
+    private final WalletService walletService;
+
+    private final Map<Long, Feed> feeds = new ConcurrentHashMap<>();
+    private final Queue<Feed> dirty = new ConcurrentLinkedQueue<>();
+    private final Set<Subscriber> sending = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService senders;
+
+    private final Counter pushedCounter;
+    private final Counter evictedCounter;
+
+    @Value("${app.updates.max-subscribers:20000}")
+    private int maxSubscribers;
+
+    @Value("${app.updates.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.updates.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+
+    private final long heartbeatMs;
+
+    public BalanceUpdateHub(WalletService walletService, MeterRegistry meterRegistry,
+                            @Value("${app.updates.flush-interval-ms:100}") long flushIntervalMs,
+                            @Value("${app.updates.heartbeat-ms:15000}") long heartbeatMs,
+                            @Value("${app.updates.sender-threads:4}") int senderThreads) {
+        this.walletService = walletService;
+        this.heartbeatMs = heartbeatMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "balance-updates"));
+        AtomicInteger senderIndex = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads,
+                runnable -> daemon(runnable, "balance-updates-sender-" + senderIndex.incrementAndGet()));
+        this.pushedCounter = Counter.builder("wallet.updates.pushed")
+                .description("Balance updates pushed to subscribers")
+                .register(meterRegistry);
+        this.evictedCounter = Counter.builder("wallet.updates.evicted")
+                .description("Balance update subscribers dropped because they were slow or disconnected")
+                .register(meterRegistry);
+        Gauge.builder("wallet.updates.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open balance update streams")
+                .register(meterRegistry);
+        scheduler.scheduleWithFixedDelay(guarded(this::flush), flushIntervalMs, flushIntervalMs,
+                TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(guarded(this::heartbeat), heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @throws TooManySubscribersException if this node already serves {@code app.updates.max-subscribers} streams
+     */
+    public SseEmitter subscribe(Long userId) {
+        walletService.getWalletId(userId);
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new TooManySubscribersException(maxSubscribers);
+        }
+        SseEmitter emitter = newEmitter();
+        Subscriber[] added = new Subscriber[1];
+        Feed feed = feeds.compute(userId, (id, existing) -> {
+            Feed current = existing != null ? existing : new Feed(id);
+            added[0] = new Subscriber(current, emitter);
+            current.subscribers.add(added[0]);
+            return current;
+        });
+        Subscriber subscriber = added[0];
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(ex -> {
+            if (remove(subscriber)) {
+                evictedCounter.increment();
+            }
+        });
+        // Read afresh for the first push, so it cannot be older than the subscription.
+        feed.stale = true;
+        markDirty(feed);
+        return emitter;
+    }
+
+    /** The emitter of a new stream; tests substitute one that stands in for the client. */
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    /** Whether any stream on this node follows the user; cheap enough to ask on every write. */
+    public boolean isWatched(Long userId) {
+        return feeds.containsKey(userId);
+    }
+
+    /** The balances are read again before the next push. */
+    public void markStale(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            Feed feed = feeds.get(userId);
+            if (feed != null) {
+                feed.stale = true;
+                markDirty(feed);
+            }
+        }
+    }
+
+    @TransactionalEventListener
+    public void onBalanceChanged(WalletBalanceChangedEvent event) {
+        Feed feed = feeds.get(event.userId());
+        if (feed == null) {
+            return;
+        }
+        feed.offer(new BalanceSnapshot(event.userId(), event.balance(), event.held(), event.version()));
+        markDirty(feed);
+    }
+
+    @TransactionalEventListener
+    public void onStripedCredit(StripedWalletCreditedEvent event) {
+        markStale(List.of(event.userId()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+        feeds.values().forEach(feed -> feed.subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    private void markDirty(Feed feed) {
+        if (feed.dirty.compareAndSet(false, true)) {
+            dirty.add(feed);
+        }
+    }
+
+    /** Pushes the newest balance of every dirty user to its subscribers and evicts subscribers stuck in a send. */
+    private void flush() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : sending) {
+            if (now - subscriber.sendingSince > TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs) && remove(subscriber)) {
+                // Completing the emitter would wait for the blocked send; its sender completes it once it returns.
+                evictedCounter.increment();
+                log.debug("Evicted balance update subscriber of user {}: no send progress for {} ms",
+                        subscriber.feed.userId, sendTimeoutMs);
+            }
+        }
+
+        List<Feed> retry = new ArrayList<>();
+        for (Feed feed; (feed = dirty.poll()) != null; ) {
+            feed.dirty.set(false);
+            if (feed.stale) {
+                feed.stale = false;
+                try {
+                    feed.refresh(walletService.getBalanceSnapshot(feed.userId, true));
+                } catch (RuntimeException ex) {
+                    log.warn("Failed to read the balance of user {} for its subscribers", feed.userId, ex);
+                    feed.stale = true;
+                    retry.add(feed);
+                    continue;
+                }
+            }
+            BalanceSnapshot latest = feed.latest;
+            for (Subscriber subscriber : feed.subscribers) {
+                if (latest != null && !latest.equals(subscriber.sent) && !dispatch(subscriber, () -> push(subscriber, latest))) {
+                    // Still busy with the previous push; this one follows on the next flush.
+                    retry.add(feed);
+                }
+            }
+        }
+        retry.forEach(this::markDirty);
+    }
+
+    private void heartbeat() {
+        long idleSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(heartbeatMs);
+        for (Feed feed : feeds.values()) {
+            for (Subscriber subscriber : feed.subscribers) {
+                if (subscriber.lastSentAt < idleSince) {
+                    dispatch(subscriber, () -> subscriber.emitter.send(SseEmitter.event().comment("")));
+                }
+            }
+        }
+    }
+
+    /** Runs {@code send} on a sender thread unless the subscriber is in the middle of a send already. */
+    private boolean dispatch(Subscriber subscriber, Send send) {
+        if (!subscriber.busy.compareAndSet(false, true)) {
+            return false;
+        }
+        subscriber.sendingSince = System.nanoTime();
+        sending.add(subscriber);
+        senders.execute(() -> {
+            try {
+                send.run();
+                subscriber.lastSentAt = System.nanoTime();
+            } catch (IOException | RuntimeException ex) {
+                if (remove(subscriber)) {
+                    evictedCounter.increment();
+                    log.debug("Dropped balance update subscriber of user {}: {}", subscriber.feed.userId,
+                            ex.toString());
+                }
+            } finally {
+                sending.remove(subscriber);
+                subscriber.busy.set(false);
+            }
+            if (!subscriber.feed.subscribers.contains(subscriber)) {
+                subscriber.emitter.complete();
+            }
+        });
+        return true;
+    }
+
+    private void push(Subscriber subscriber, BalanceSnapshot latest) throws IOException {
+        long delta = subscriber.sent == null ? 0 : latest.balance() - subscriber.sent.balance();
+        subscriber.emitter.send(SseEmitter.event()
+                .name("balance")
+                .data(new BalanceUpdateResponse(latest.userId(), Money.toBigDecimal(latest.balance()),
+                        Money.toBigDecimal(latest.available()), Money.toBigDecimal(delta)), MediaType.APPLICATION_JSON));
+        subscriber.sent = latest;
+        pushedCounter.increment();
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        Feed feed = subscriber.feed;
+        boolean[] removed = new boolean[1];
+        feeds.computeIfPresent(feed.userId, (id, current) -> {
+            removed[0] = current.subscribers.remove(subscriber);
+            return current.subscribers.isEmpty() ? null : current;
+        });
+        if (removed[0]) {
+            subscriberCount.decrementAndGet();
+        }
+        return removed[0];
+    }
+
+    private Runnable guarded(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                log.error("Balance update task failed", ex);
+            }
+        };
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @FunctionalInterface
+    private interface Send {
+        void run() throws IOException;
+    }
+
+    /** The subscribers of one user and the newest balance known for it. */
+    private static final class Feed {
+
+        private final Long userId;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private volatile BalanceSnapshot latest;
+        private volatile boolean stale;
+
+        private Feed(Long userId) {
+            this.userId = userId;
+        }
+
+        /** Keeps the snapshot unless a newer version is already known; commits can report out of order. */
+        private synchronized void offer(BalanceSnapshot snapshot) {
+            if (latest == null || snapshot.version() > latest.version()) {
+                latest = snapshot;
+            }
+        }
+
+        /** A fresh read wins over an equal version, since it was taken after the commit that reported it. */
+        private synchronized void refresh(BalanceSnapshot snapshot) {
+            if (latest == null || snapshot.version() >= latest.version()) {
+                latest = snapshot;
+            }
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final Feed feed;
+        private final SseEmitter emitter;
+        private final AtomicBoolean busy = new AtomicBoolean();
+        private volatile long sendingSince;
+        private volatile long lastSentAt = System.nanoTime();
+
+        /** Last balance pushed; written by one sender at a time. */
+        private volatile BalanceSnapshot sent;
+
+        private Subscriber(Feed feed, SseEmitter emitter) {
+            this.feed = feed;
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.wallet.service;
+
+import com.example.wallet.dto.TransactionResponse;
+import com.example.wallet.exception.InvalidCursorException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position in a wallet's history, ordered by (timestamp, id) descending. Encoded for clients as an opaque
+ * URL-safe token so the ordering key can change without breaking the API.
+ */
+public record HistoryCursor(Instant timestamp, long id) {
+
+    private static final int ENCODED_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    public static HistoryCursor after(TransactionResponse transaction) {
+        return new HistoryCursor(transaction.getTimestamp(), transaction.getId());
+    }
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_BYTES)
+                .putLong(timestamp.getEpochSecond())
+                .putInt(timestamp.getNano())
+                .putLong(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    public static HistoryCursor decode(String token) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+            if (buffer.remaining() != ENCODED_BYTES) {
+                throw new InvalidCursorException(token);
+            }
+            Instant timestamp = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+            return new HistoryCursor(timestamp, buffer.getLong());
+        } catch (IllegalArgumentException | BufferUnderflowException | DateTimeException ex) {
+            throw new InvalidCursorException(token);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.wallet.service;
+
+import com.example.wallet.model.PendingHold;
+import com.example.wallet.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Expires pending holds from an in-memory {@link TimingWheel}, rebuilt from the pending holds at startup.
+ */
+@Slf4j
+@Component
+public class HoldExpiry {
+
+    private final HoldService holdService;
+    private final TransactionRepository transactionRepository;
+    private final ShardRouting shardRouting;
+    private final int batchSize;
+    private final long retryDelayMs;
+    private final Counter expiredCounter;
+
+    /** Guarded by {@code this}, like {@link #scheduled}. */
+    private final TimingWheel<PendingHold> wheel;
+
+    private final Map<Long, TimingWheel.Entry<PendingHold>> scheduled = new HashMap<>();
+
+    private final ScheduledExecutorService ticker;
+
+    public HoldExpiry(HoldService holdService,
+                      TransactionRepository transactionRepository,
+                      ShardRouting shardRouting,
+                      @Value("${app.holds.expiry.tick-ms:1000}") long tickMs,
+                      @Value("${app.holds.expiry.wheel-size:512}") int wheelSize,
+                      @Value("${app.holds.expiry.batch-size:500}") int batchSize,
+                      @Value("${app.holds.expiry.retry-delay-ms:5000}") long retryDelayMs,
+                      MeterRegistry meterRegistry) {
+        this.holdService = holdService;
+        this.transactionRepository = transactionRepository;
+        this.shardRouting = shardRouting;
+        this.batchSize = Math.max(1, batchSize);
+        this.retryDelayMs = retryDelayMs;
+        this.wheel = new TimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+        this.expiredCounter = Counter.builder("wallet.holds.expired")
+                .description("Holds released because nobody captured or voided them in time")
+                .register(meterRegistry);
+        Gauge.builder("wallet.holds.scheduled", this, HoldExpiry::scheduledCount)
+                .description("Pending holds waiting in the expiry wheel")
+                .register(meterRegistry);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long loaded = 0;
+        for (int shard = 0; shard < shardRouting.shardCount(); shard++) {
+            try (ShardRouting.Binding binding = shardRouting.bind(shard)) {
+                List<PendingHold> page = transactionRepository.findPendingHoldsAfter(0L, Limit.of(batchSize));
+                while (!page.isEmpty()) {
+                    synchronized (this) {
+                        page.forEach(hold -> schedule(hold, hold.expiresAt().toEpochMilli()));
+                    }
+                    loaded += page.size();
+                    page = transactionRepository.findPendingHoldsAfter(page.get(page.size() - 1).holdId(), Limit.of(batchSize));
+                }
+            } catch (RuntimeException ex) {
+                log.error("Failed to load pending holds from shard {}; they expire once a node loads them", shard, ex);
+            }
+        }
+        log.info("Scheduled expiry of {} pending holds", loaded);
+    }
+
+    @TransactionalEventListener
+    public synchronized void onHoldPlaced(HoldPlacedEvent event) {
+        schedule(event.hold(), event.hold().expiresAt().toEpochMilli());
+    }
+
+    @TransactionalEventListener
+    public synchronized void onHoldSettled(HoldSettledEvent event) {
+        TimingWheel.Entry<PendingHold> entry = scheduled.remove(event.holdId());
+        if (entry != null) {
+            wheel.cancel(entry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    public void expireDue() {
+        List<PendingHold> due = new ArrayList<>();
+        synchronized (this) {
+            wheel.advance(System.currentTimeMillis(), hold -> {
+                scheduled.remove(hold.holdId());
+                due.add(hold);
+            });
+        }
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<PendingHold> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                expiredCounter.increment(holdService.expire(batch));
+            } catch (RuntimeException ex) {
+                log.warn("Failed to expire {} holds, retrying in {} ms", batch.size(), retryDelayMs, ex);
+                long retryAt = System.currentTimeMillis() + retryDelayMs;
+                synchronized (this) {
+                    batch.forEach(hold -> schedule(hold, retryAt));
+                }
+            }
+        }
+    }
+
+    // An exception escaping a scheduled task would cancel its later runs.
+    private void tick() {
+        try {
+            expireDue();
+        } catch (RuntimeException ex) {
+            log.error("Hold expiry tick failed", ex);
+        }
+    }
+
+    private synchronized int scheduledCount() {
+        return wheel.size();
+    }
+
+    /** A hold already in the wheel, placed here while the rebuild read it, keeps its entry. */
+    private void schedule(PendingHold hold, long deadlineMs) {
+        if (!scheduled.containsKey(hold.holdId())) {
+            scheduled.put(hold.holdId(), wheel.schedule(hold, deadlineMs));
+        }
+    }
+}
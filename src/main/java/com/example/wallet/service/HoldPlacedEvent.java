@@ -0,0 +1,9 @@
+package com.example.wallet.service;
+
+import com.example.wallet.model.PendingHold;
+
+/**
+ * Published inside the transaction that placed a hold.
+ */
+public record HoldPlacedEvent(PendingHold hold) {
+}
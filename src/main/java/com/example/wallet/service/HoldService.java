@@ -0,0 +1,197 @@
+package com.example.wallet.service;
+
+import com.example.wallet.dto.TransactionResponse;
+import com.example.wallet.exception.HoldNotFoundException;
+import com.example.wallet.exception.HoldNotPendingException;
+import com.example.wallet.exception.InsufficientBalanceException;
+import com.example.wallet.kafka.TransactionEvent;
+import com.example.wallet.kafka.TransactionEventPublisher;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.PendingHold;
+import com.example.wallet.model.Transaction;
+import com.example.wallet.model.enums.TransactionStatus;
+import com.example.wallet.model.enums.TransactionType;
+import com.example.wallet.repository.TransactionRepository;
+import com.example.wallet.repository.WalletRepository;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Two-phase debits: authorize reserves the amount as a PENDING DEBIT, capture debits it, void releases it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HoldService {
+
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final WalletService walletService;
+    private final BalanceStriping balanceStriping;
+    private final TransactionEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final WalletBalanceCache balanceCache;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final ReplicaReads replicaReads;
+    private final ShardRouting shardRouting;
+    private final BalanceUpdateHub balanceUpdates;
+
+    @Value("${app.holds.default-ttl-ms:604800000}")
+    private long defaultTtlMs;
+
+    @Value("${app.holds.max-ttl-ms:2592000000}")
+    private long maxTtlMs;
+
+    /** {@code ttlMs} is the default when null, capped at {@code app.holds.max-ttl-ms}. */
+    @Transactional
+    public Transaction authorize(@ShardKey Long userId, long amount, Long ttlMs, String idempotencyKey) {
+        Long walletId = walletService.getWalletId(userId);
+
+        if (walletRepository.holdIfSufficient(userId, amount) == 0 && !holdAfterSweep(userId, walletId, amount)) {
+            throw new InsufficientBalanceException(amount);
+        }
+        Instant expiresAt = Instant.now().plusMillis(ttlMs == null ? defaultTtlMs : Math.min(ttlMs, maxTtlMs));
+        Transaction hold = transactionRepository.save(Transaction.builder()
+                .wallet(walletRepository.getReferenceById(walletId))
+                .amount(amount)
+                .type(TransactionType.DEBIT)
+                .status(TransactionStatus.PENDING)
+                .idempotencyKey(idempotencyKey)
+                .expiresAt(expiresAt)
+                .build());
+
+        publishBalanceChange(userId);
+        replicaReads.recordWrite(userId);
+        // PENDING: other nodes refresh the available balance, the projection ignores it until captured.
+        eventPublisher.publish(TransactionEvent.of(hold, userId));
+        applicationEventPublisher.publishEvent(new HoldPlacedEvent(new PendingHold(hold.getId(), userId, expiresAt)));
+        return hold;
+    }
+
+    /**
+     * @throws HoldNotPendingException if the hold was already settled or has expired
+     */
+    @Transactional
+    public Transaction capture(@ShardKey Long userId, Long holdId) {
+        Transaction hold = lockPending(userId, holdId);
+        if (!hold.getExpiresAt().isAfter(Instant.now())) {
+            throw new HoldNotPendingException(holdId, TransactionStatus.EXPIRED);
+        }
+        walletRepository.captureHeld(hold.getWallet().getId(), hold.getAmount());
+        hold.setStatus(TransactionStatus.SUCCESS);
+
+        publishBalanceChange(userId);
+        replicaReads.recordWrite(userId);
+        eventPublisher.publish(TransactionEvent.of(hold, userId));
+        applicationEventPublisher.publishEvent(new HoldSettledEvent(holdId, userId));
+        return hold;
+    }
+
+    /**
+     * @throws HoldNotPendingException if the hold was already settled
+     */
+    @Transactional
+    public Transaction voidHold(@ShardKey Long userId, Long holdId) {
+        Transaction hold = lockPending(userId, holdId);
+        walletRepository.releaseHeld(hold.getWallet().getId(), hold.getAmount());
+        hold.setStatus(TransactionStatus.VOIDED);
+
+        publishBalanceChange(userId);
+        replicaReads.recordWrite(userId);
+        eventPublisher.publish(TransactionEvent.of(hold, userId));
+        applicationEventPublisher.publishEvent(new HoldSettledEvent(holdId, userId));
+        return hold;
+    }
+
+    /** The user's pending holds, newest first. */
+    @Transactional(readOnly = true)
+    public List<TransactionResponse> getPendingHolds(@ShardKey Long userId) {
+        try (ReplicaReads.Pin pin = replicaReads.pinFor(userId)) {
+            walletService.getWalletId(userId);
+            return transactionRepository.findPendingHoldResponses(userId);
+        }
+    }
+
+    /** Expires those of the holds that are still pending; returns how many were expired. */
+    public int expire(List<PendingHold> holds) {
+        int expired = 0;
+        for (Map.Entry<Integer, List<PendingHold>> onShard : shardRouting.partition(holds, PendingHold::userId).entrySet()) {
+            try (ShardRouting.Binding binding = shardRouting.bind(onShard.getKey())) {
+                List<Long> ids = onShard.getValue().stream().map(PendingHold::holdId).toList();
+                expired += transactionTemplate.execute(status -> expireOnShard(ids));
+            }
+        }
+        return expired;
+    }
+
+    private int expireOnShard(List<Long> holdIds) {
+        Instant now = Instant.now();
+        List<Transaction> holds = new ArrayList<>(holdIds.size());
+        for (Transaction hold : transactionRepository.lockPendingByIdIn(holdIds)) {
+            if (!hold.getExpiresAt().isAfter(now)) {
+                holds.add(hold);
+            }
+        }
+        if (holds.isEmpty()) {
+            return 0;
+        }
+        // One update per wallet, in wallet id order like WalletRepository#lockAllById, so batches cannot deadlock.
+        Map<Long, Long> releasedByWallet = new TreeMap<>();
+        for (Transaction hold : holds) {
+            releasedByWallet.merge(hold.getWallet().getId(), hold.getAmount(), Money::add);
+            hold.setStatus(TransactionStatus.EXPIRED);
+            applicationEventPublisher.publishEvent(new HoldSettledEvent(hold.getId(), hold.getWallet().getUser().getId()));
+        }
+        releasedByWallet.forEach(walletRepository::releaseHeld);
+        eventPublisher.publishAll(holds.stream()
+                .map(hold -> TransactionEvent.of(hold, hold.getWallet().getUser().getId()))
+                .toList());
+
+        Set<Long> userIds = holds.stream().map(hold -> hold.getWallet().getUser().getId()).collect(Collectors.toSet());
+        if (balanceCache.isEnabled() || userIds.stream().anyMatch(balanceUpdates::isWatched)) {
+            walletRepository.findBalancesByUserIdIn(userIds).forEach(snapshot -> applicationEventPublisher.publishEvent(
+                    new WalletBalanceChangedEvent(snapshot.userId(), snapshot.balance(), snapshot.held(), snapshot.version())));
+        }
+        userIds.forEach(replicaReads::recordWrite);
+        return holds.size();
+    }
+
+    private Transaction lockPending(Long userId, Long holdId) {
+        Transaction hold = transactionRepository.lockByIdAndUserId(holdId, userId)
+                .filter(tx -> tx.getExpiresAt() != null)
+                .orElseThrow(() -> new HoldNotFoundException(holdId, userId));
+        if (hold.getStatus() != TransactionStatus.PENDING) {
+            throw new HoldNotPendingException(holdId, hold.getStatus());
+        }
+        return hold;
+    }
+
+    /** Like a debit, retries once after moving a striped wallet's slots into its row. */
+    private boolean holdAfterSweep(Long userId, Long walletId, long amount) {
+        long swept = balanceStriping.sweep(walletId);
+        if (swept == Money.ZERO) {
+            return false;
+        }
+        walletRepository.credit(userId, swept);
+        return walletRepository.holdIfSufficient(userId, amount) == 1;
+    }
+
+    private void publishBalanceChange(Long userId) {
+        if (balanceCache.isEnabled() || balanceUpdates.isWatched(userId)) {
+            walletRepository.findBalanceByUserId(userId).ifPresent(snapshot -> applicationEventPublisher.publishEvent(
+                    new WalletBalanceChangedEvent(userId, snapshot.balance(), snapshot.held(), snapshot.version())));
+        }
+    }
+}
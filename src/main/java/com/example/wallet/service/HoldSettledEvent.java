@@ -0,0 +1,7 @@
+package com.example.wallet.service;
+
+/**
+ * Published inside the transaction that captured, voided or expired a hold.
+ */
+public record HoldSettledEvent(Long holdId, Long userId) {
+}
@@ -0,0 +1,203 @@
+package com.example.wallet.service;
+
+import com.example.wallet.exception.IdempotencyKeyReusedException;
+import com.example.wallet.exception.InvalidIdempotencyKeyException;
+import com.example.wallet.model.Transaction;
+import com.example.wallet.repository.TransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies postings that carry an idempotency key at most once per wallet, answering a repeated key with the
+ * transaction that first used it.
+ */
+@Slf4j
+@Component
+public class IdempotencyGuard {
+
+    public static final int MAX_KEY_LENGTH = 64;
+
+    private final TransactionRepository transactionRepository;
+
+    private final ShardRouting shardRouting;
+
+    private final ReplicaReads replicaReads;
+
+    private final Cache<String, Long> recentKeys;
+
+    private final long filterCapacity;
+
+    private final double filterFalsePositiveProbability;
+
+    private final AtomicLong filterInsertions = new AtomicLong();
+
+    private volatile BloomFilter currentFilter;
+
+    private volatile BloomFilter previousFilter;
+
+    private final Counter replayedFromCache;
+
+    private final Counter replayedFromDatabase;
+
+    private final Counter replayedAfterConflict;
+
+    private final Counter filterFalsePositives;
+
+    public IdempotencyGuard(TransactionRepository transactionRepository,
+                            ShardRouting shardRouting,
+                            ReplicaReads replicaReads,
+                            @Value("${app.idempotency.recent-keys.max-size:100000}") long recentKeysMaxSize,
+                            @Value("${app.idempotency.recent-keys.ttl-ms:86400000}") long recentKeysTtlMs,
+                            @Value("${app.idempotency.filter.expected-keys:1000000}") long filterCapacity,
+                            @Value("${app.idempotency.filter.false-positive-probability:0.01}") double filterFalsePositiveProbability,
+                            MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.shardRouting = shardRouting;
+        this.replicaReads = replicaReads;
+        this.recentKeys = Caffeine.newBuilder()
+                .maximumSize(recentKeysMaxSize)
+                .expireAfterWrite(Duration.ofMillis(recentKeysTtlMs))
+                .recordStats()
+                .build();
+        this.filterCapacity = filterCapacity;
+        this.filterFalsePositiveProbability = filterFalsePositiveProbability;
+        this.currentFilter = new BloomFilter(filterCapacity, filterFalsePositiveProbability);
+        CaffeineCacheMetrics.monitor(meterRegistry, recentKeys, "wallet.idempotency.recent");
+        this.replayedFromCache = replayCounter(meterRegistry, "cache");
+        this.replayedFromDatabase = replayCounter(meterRegistry, "database");
+        this.replayedAfterConflict = replayCounter(meterRegistry, "conflict");
+        this.filterFalsePositives = Counter.builder("wallet.idempotency.filter.false.positive")
+                .description("Keys the filter reported as seen that had no transaction")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @throws IdempotencyKeyReusedException if the key was used for a different posting
+     */
+    @Admitted
+    public CompletableFuture<Transaction> execute(Posting posting, Function<Posting, CompletableFuture<Transaction>> action) {
+        String key = posting.idempotencyKey();
+        if (key == null) {
+            return action.apply(posting);
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(MAX_KEY_LENGTH);
+        }
+        String cacheKey = posting.userId() + ":" + key;
+
+        Optional<Transaction> original;
+        // The primary: a replica that has not caught up would turn a replay into a second posting.
+        try (ShardRouting.Binding binding = shardRouting.forUser(posting.userId());
+             ReplicaReads.Pin pin = replicaReads.pinPrimary()) {
+            original = findRecorded(posting, cacheKey);
+        }
+        if (original.isPresent()) {
+            return CompletableFuture.completedFuture(replay(posting, original.get()));
+        }
+
+        CompletableFuture<Transaction> result;
+        try {
+            result = action.apply(posting);
+        } catch (DataIntegrityViolationException ex) {
+            result = CompletableFuture.failedFuture(ex);
+        }
+        return result.handle((tx, error) -> {
+            if (error == null) {
+                remember(cacheKey, tx);
+                return tx;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof DataIntegrityViolationException) {
+                // Lost the race to a concurrent request with the same key, possibly on another node.
+                Optional<Transaction> winner;
+                try (ShardRouting.Binding binding = shardRouting.forUser(posting.userId());
+                     ReplicaReads.Pin pin = replicaReads.pinPrimary()) {
+                    winner = transactionRepository.findByUserIdAndIdempotencyKey(posting.userId(), key);
+                }
+                if (winner.isPresent()) {
+                    replayedAfterConflict.increment();
+                    remember(cacheKey, winner.get());
+                    return replay(posting, winner.get());
+                }
+            }
+            throw cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+        });
+    }
+
+    private Optional<Transaction> findRecorded(Posting posting, String cacheKey) {
+        Long transactionId = recentKeys.getIfPresent(cacheKey);
+        if (transactionId != null) {
+            Optional<Transaction> original = transactionRepository.findById(transactionId);
+            if (original.isPresent()) {
+                replayedFromCache.increment();
+                return original;
+            }
+        }
+        // A new key, the common case, costs no read beyond the posting.
+        if (!mightHaveSeen(cacheKey)) {
+            return Optional.empty();
+        }
+        Optional<Transaction> original = transactionRepository.findByUserIdAndIdempotencyKey(posting.userId(), posting.idempotencyKey());
+        if (original.isPresent()) {
+            replayedFromDatabase.increment();
+            recentKeys.put(cacheKey, original.get().getId());
+        } else {
+            filterFalsePositives.increment();
+        }
+        return original;
+    }
+
+    private Transaction replay(Posting posting, Transaction original) {
+        // A hold is a DEBIT too; without this a debit would be answered with a hold that may never be captured.
+        boolean originalIsHold = original.getExpiresAt() != null;
+        if (original.getType() != posting.type() || original.getAmount() != posting.amount()
+                || originalIsHold != posting.hold()) {
+            throw new IdempotencyKeyReusedException(posting.idempotencyKey());
+        }
+        log.debug("Replaying transaction {} for idempotency key {}", original.getId(), posting.idempotencyKey());
+        return original;
+    }
+
+    private void remember(String cacheKey, Transaction tx) {
+        recentKeys.put(cacheKey, tx.getId());
+        currentFilter.put(cacheKey);
+        if (filterInsertions.incrementAndGet() >= filterCapacity) {
+            rotateFilter();
+        }
+    }
+
+    private boolean mightHaveSeen(String cacheKey) {
+        BloomFilter previous = previousFilter;
+        return currentFilter.mightContain(cacheKey) || (previous != null && previous.mightContain(cacheKey));
+    }
+
+    /** The previous generation is still consulted, so a key is forgotten only after two full generations. */
+    private synchronized void rotateFilter() {
+        if (filterInsertions.get() < filterCapacity) {
+            return;
+        }
+        previousFilter = currentFilter;
+        currentFilter = new BloomFilter(filterCapacity, filterFalsePositiveProbability);
+        filterInsertions.set(0);
+    }
+
+    private static Counter replayCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("wallet.idempotency.replayed")
+                .description("Postings whose idempotency key was already used, by where the original transaction was found")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.wallet.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Re-runs a read-modify-write action that lost an optimistic version check, with jittered exponential
+ * backoff and a bounded number of attempts. The action must start its own transaction on every attempt.
+ */
+@Slf4j
+@Component
+public class OptimisticRetry {
+
+    @Value("${app.wallet.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.wallet.retry.initial-backoff-ms:5}")
+    private long initialBackoffMs;
+
+    @Value("${app.wallet.retry.max-backoff-ms:100}")
+    private long maxBackoffMs;
+
+    public <T> T execute(Supplier<T> action) {
+        long backoff = initialBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt >= maxAttempts) {
+                    throw ex;
+                }
+                log.debug("Optimistic conflict on attempt {}/{}, retrying: {}", attempt, maxAttempts, ex.getMessage());
+                sleep(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+                backoff = Math.min(backoff * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", ex);
+        }
+    }
+}
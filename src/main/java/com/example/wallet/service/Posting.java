@@ -0,0 +1,21 @@
+package com.example.wallet.service;
+
+import com.example.wallet.model.enums.TransactionType;
+
+/**
+ * A single credit or debit to apply to a user's wallet, in Money units; {@code hold} marks a hold's DEBIT.
+ */
+public record Posting(Long userId, long amount, TransactionType type, String idempotencyKey, boolean hold) {
+
+    public Posting(Long userId, long amount, TransactionType type, String idempotencyKey) {
+        this(userId, amount, type, idempotencyKey, false);
+    }
+
+    public Posting(Long userId, long amount, TransactionType type) {
+        this(userId, amount, type, null);
+    }
+
+    public static Posting hold(Long userId, long amount, String idempotencyKey) {
+        return new Posting(userId, amount, TransactionType.DEBIT, idempotencyKey, true);
+    }
+}
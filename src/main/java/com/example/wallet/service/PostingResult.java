@@ -0,0 +1,21 @@
+package com.example.wallet.service;
+
+import com.example.wallet.model.Transaction;
+
+/**
+ * Outcome of one posting within a batch: either the recorded transaction or the reason it was rejected.
+ */
+public record PostingResult(Long userId, Transaction transaction, RuntimeException error) {
+
+    public static PostingResult success(Long userId, Transaction transaction) {
+        return new PostingResult(userId, transaction, null);
+    }
+
+    public static PostingResult failure(Long userId, RuntimeException error) {
+        return new PostingResult(userId, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
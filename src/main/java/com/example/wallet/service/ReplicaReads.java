@@ -0,0 +1,76 @@
+package com.example.wallet.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Pins reads to the primary where a replica could be stale. A pin only affects connections taken after it.
+ */
+@Component
+public class ReplicaReads {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private static final Pin UNPINNED = () -> { };
+
+    private final boolean enabled;
+
+    private final Cache<Long, Boolean> recentWriters;
+
+    public ReplicaReads(@Value("${app.datasource.read-replicas.enabled:false}") boolean replicasEnabled,
+                        @Value("${app.datasource.read-replicas.read-your-writes-ms:0}") long readYourWritesMs) {
+        this.enabled = replicasEnabled;
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(replicasEnabled && readYourWritesMs > 0 ? 100_000 : 0)
+                .expireAfterWrite(Duration.ofMillis(Math.max(1, readYourWritesMs)))
+                .build();
+    }
+
+    /** True while reads on this thread must use the primary. */
+    public static boolean isPinnedToPrimary() {
+        return PINNED.get() != null;
+    }
+
+    /** Opens the user's read-your-writes window once the current transaction commits. */
+    public void recordWrite(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentWriters.put(userId, Boolean.TRUE);
+                }
+            });
+        } else {
+            recentWriters.put(userId, Boolean.TRUE);
+        }
+    }
+
+    /** Pins this thread's reads to the primary until closed if {@code userId} wrote within the window. */
+    public Pin pinFor(Long userId) {
+        return enabled && recentWriters.getIfPresent(userId) != null ? pinPrimary() : UNPINNED;
+    }
+
+    /** Pins this thread's reads to the primary until closed. */
+    public Pin pinPrimary() {
+        if (!enabled || PINNED.get() != null) {
+            return UNPINNED;
+        }
+        PINNED.set(Boolean.TRUE);
+        return PINNED::remove;
+    }
+
+    @FunctionalInterface
+    public interface Pin extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.wallet.service;
+
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the userId parameter whose shard a service method runs against.
+ */
+@Retention(RUNTIME)
+@Target(PARAMETER)
+public @interface ShardKey {
+}
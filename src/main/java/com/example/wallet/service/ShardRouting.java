@@ -0,0 +1,146 @@
+package com.example.wallet.service;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Maps users to database shards on a consistent-hash ring and binds the calling thread to a user's shard.
+ */
+@Slf4j
+@Aspect
+@Component
+// Ahead of the transaction interceptor, so the transaction's connection comes from the user's shard.
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ShardRouting {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private static final Binding UNCHANGED = () -> { };
+
+    private final int shardCount;
+
+    private final NavigableMap<Long, Integer> ring = new TreeMap<>();
+
+    private final Map<Method, Integer> keyParameters = new ConcurrentHashMap<>();
+
+    public ShardRouting(@Value("${app.sharding.enabled:false}") boolean enabled,
+                        @Value("${app.sharding.urls:}") List<String> urls,
+                        @Value("${app.sharding.virtual-nodes:128}") int virtualNodes) {
+        this.shardCount = enabled ? Math.max(1, urls.size()) : 1;
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int point = 0; point < virtualNodes; point++) {
+                ring.put(mix(((long) shard << 32) | point), shard);
+            }
+        }
+        if (enabled) {
+            log.info("Sharding users over {} databases ({} ring points each)", shardCount, virtualNodes);
+        }
+    }
+
+    /** Shard the calling thread is bound to; 0 while it is not bound to any. */
+    public static int currentShard() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(Long userId) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        Map.Entry<Long, Integer> owner = ring.ceilingEntry(mix(userId));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    /** Binds the calling thread to the user's shard until closed. */
+    public Binding forUser(Long userId) {
+        return bind(shardOf(userId));
+    }
+
+    /** Binds the calling thread to {@code shard} until closed, then restores the previous binding. */
+    public Binding bind(int shard) {
+        Integer previous = CURRENT.get();
+        if (currentShard() == shard) {
+            return UNCHANGED;
+        }
+        // Keeps every transaction on a single shard.
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch to shard " + shard + " inside a transaction on shard "
+                    + currentShard());
+        }
+        CURRENT.set(shard);
+        return previous == null ? CURRENT::remove : () -> CURRENT.set(previous);
+    }
+
+    /** Groups {@code items} by the shard of their user, in shard order, keeping their order within a shard. */
+    public <T> Map<Integer, List<T>> partition(Collection<T> items, Function<? super T, Long> userIdOf) {
+        Map<Integer, List<T>> byShard = new TreeMap<>();
+        for (T item : items) {
+            byShard.computeIfAbsent(shardOf(userIdOf.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return byShard;
+    }
+
+    @Around("execution(* com.example.wallet.service..*(.., @com.example.wallet.service.ShardKey (*), ..))")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (shardCount == 1) {
+            return joinPoint.proceed();
+        }
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object userId = joinPoint.getArgs()[keyParameters.computeIfAbsent(method, ShardRouting::keyParameter)];
+        if (userId == null) {
+            return joinPoint.proceed();
+        }
+        try (Binding binding = forUser((Long) userId)) {
+            return joinPoint.proceed();
+        }
+    }
+
+    private static int keyParameter(Method method) {
+        Annotation[][] annotations = method.getParameterAnnotations();
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof ShardKey) {
+                    return i;
+                }
+            }
+        }
+        throw new IllegalStateException("No @ShardKey parameter on " + method);
+    }
+
+    // Spreads sequential and time-ordered ids over the whole ring (the splitmix64 finalizer).
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @FunctionalInterface
+    public interface Binding extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
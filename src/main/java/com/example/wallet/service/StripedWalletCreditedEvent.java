@@ -0,0 +1,7 @@
+package com.example.wallet.service;
+
+/**
+ * Carries no balance: concurrent slot credits do not queue, so listeners read the committed one.
+ */
+public record StripedWalletCreditedEvent(Long userId) {
+}
@@ -0,0 +1,165 @@
+package com.example.wallet.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel with O(1) schedule and cancel; entries fire within one tick after their deadline.
+ * Not thread-safe.
+ */
+public final class TimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final List<Level<T>> levels = new ArrayList<>();
+
+    /** Every entry with a deadline before this has fired; a multiple of {@code tickMs}. */
+    private long time;
+
+    private int size;
+
+    public TimingWheel(long tickMs, int wheelSize, long nowMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.time = nowMs - Math.floorMod(nowMs, tickMs);
+        levels.add(new Level<>(tickMs, wheelSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Schedules {@code item} to fire at {@code deadlineMs}; a deadline already passed fires on the next tick. */
+    public Entry<T> schedule(T item, long deadlineMs) {
+        Entry<T> entry = new Entry<>(item, deadlineMs);
+        place(entry);
+        size++;
+        return entry;
+    }
+
+    /** Returns false if the entry already fired or was cancelled. */
+    public boolean cancel(Entry<T> entry) {
+        if (entry.bucket == null) {
+            return false;
+        }
+        entry.unlink();
+        size--;
+        return true;
+    }
+
+    /** Moves the clock to {@code nowMs}, handing every entry whose deadline it passed to {@code expired}. */
+    public void advance(long nowMs, Consumer<T> expired) {
+        if (size == 0) {
+            time = Math.max(time, nowMs - Math.floorMod(nowMs, tickMs));
+            return;
+        }
+        while (time + tickMs <= nowMs) {
+            Bucket<T> due = levels.get(0).bucketFor(time);
+            for (Entry<T> entry = due.poll(); entry != null; entry = due.poll()) {
+                size--;
+                expired.accept(entry.item);
+            }
+            time += tickMs;
+            // Highest level first, so entries moving down several levels at once land before their level is emptied.
+            for (int i = levels.size() - 1; i > 0; i--) {
+                Level<T> level = levels.get(i);
+                if (Math.floorMod(time, level.tickMs) == 0) {
+                    Bucket<T> bucket = level.bucketFor(time);
+                    for (Entry<T> entry = bucket.poll(); entry != null; entry = bucket.poll()) {
+                        place(entry);
+                    }
+                }
+            }
+        }
+    }
+
+    /** The lowest level whose window reaches the deadline, so an entry never lands in a bucket already due. */
+    private void place(Entry<T> entry) {
+        long deadline = Math.max(entry.deadlineMs, time);
+        for (int i = 0; ; i++) {
+            if (i == levels.size()) {
+                levels.add(new Level<>(Math.multiplyExact(levels.get(i - 1).tickMs, (long) wheelSize), wheelSize));
+            }
+            Level<T> level = levels.get(i);
+            long start = time - Math.floorMod(time, level.tickMs);
+            if (deadline - start < level.tickMs * wheelSize) {
+                level.bucketFor(deadline).add(entry);
+                return;
+            }
+        }
+    }
+
+    public static final class Entry<T> {
+
+        private final T item;
+        private final long deadlineMs;
+        private Bucket<T> bucket;
+        private Entry<T> prev;
+        private Entry<T> next;
+
+        private Entry(T item, long deadlineMs) {
+            this.item = item;
+            this.deadlineMs = deadlineMs;
+        }
+
+        public T item() {
+            return item;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+            bucket = null;
+        }
+    }
+
+    private static final class Level<T> {
+
+        private final long tickMs;
+        private final Bucket<T>[] buckets;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tickMs, int wheelSize) {
+            this.tickMs = tickMs;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket<>();
+            }
+        }
+
+        private Bucket<T> bucketFor(long timeMs) {
+            return buckets[(int) Math.floorMod(Math.floorDiv(timeMs, tickMs), (long) buckets.length)];
+        }
+    }
+
+    /** Circular doubly linked list around a sentinel, so an entry unlinks itself in O(1). */
+    private static final class Bucket<T> {
+
+        private final Entry<T> head = new Entry<>(null, 0);
+
+        private Bucket() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        private void add(Entry<T> entry) {
+            entry.bucket = this;
+            entry.prev = head.prev;
+            entry.next = head;
+            head.prev.next = entry;
+            head.prev = entry;
+        }
+
+        private Entry<T> poll() {
+            Entry<T> first = head.next;
+            if (first == head) {
+                return null;
+            }
+            first.unlink();
+            return first;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.wallet.service;
+
+import com.example.wallet.dto.TransactionResponse;
+import java.util.List;
+
+/**
+ * One page of a wallet's history; {@code next} is null on the last page. {@code version} is the wallet's version
+ * ({@link com.example.wallet.repository.WalletRepository#findVersionByUserId}) read in the same transaction, before
+ * the page, so the page is at least as new as it.
+ */
+public record TransactionPage(List<TransactionResponse> transactions, HistoryCursor next, long version) {
+}
@@ -1,22 +1,41 @@
 package com.example.wallet.service;
 
+import com.example.wallet.dto.TransactionResponse;
+import com.example.wallet.exception.CrossShardTransferException;
 import com.example.wallet.exception.InsufficientBalanceException;
 import com.example.wallet.exception.UserNotFoundException;
+import com.example.wallet.exception.WalletNotFoundException;
+import com.example.wallet.kafka.TransactionEvent;
 import com.example.wallet.kafka.TransactionEventPublisher;
+import com.example.wallet.model.Money;
 import com.example.wallet.model.Transaction;
-import com.example.wallet.model.User;
 import com.example.wallet.model.Wallet;
 import com.example.wallet.model.enums.TransactionStatus;
 import com.example.wallet.model.enums.TransactionType;
 import com.example.wallet.repository.TransactionRepository;
 import com.example.wallet.repository.UserRepository;
 import com.example.wallet.repository.WalletRepository;
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class TransactionService {
@@ -24,49 +43,270 @@ public class TransactionService {
     private final UserRepository userRepository;
     private final WalletRepository walletRepository;
     private final TransactionRepository transactionRepository;
+    private final WalletService walletService;
     private final TransactionEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final OptimisticRetry optimisticRetry;
+    private final WalletBalanceCache balanceCache;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final BalanceStriping balanceStriping;
+    private final ReplicaReads replicaReads;
+    private final ShardRouting shardRouting;
+    private final BalanceUpdateHub balanceUpdates;
 
+    @Value("${app.batch.chunk-size:500}")
+    private int batchChunkSize;
+
+    @Value("${app.history.max-page-size:500}")
+    private int maxPageSize;
+
+    /**
+     * A non-null idempotency key is stored with the transaction; a key already used for this wallet fails the
+     * commit on its unique constraint, see {@link IdempotencyGuard}.
+     */
     @Transactional
-    public Transaction credit(Long userId, BigDecimal amount) {
-        Wallet wallet = getWalletForUpdate(userId);
+    public Transaction credit(@ShardKey Long userId, long amount, String idempotencyKey) {
+        Long walletId = walletService.getWalletId(userId);
+        boolean striped = balanceStriping.isStriped(walletId);
 
-        wallet.setBalance(wallet.getBalance().add(amount));
-        Transaction tx = buildTransaction(wallet, amount, TransactionType.CREDIT, TransactionStatus.SUCCESS);
+        if (!striped) {
+            walletRepository.credit(userId, amount);
+        }
+        Transaction saved = transactionRepository.save(
+                buildTransaction(walletRepository.getReferenceById(walletId), amount, TransactionType.CREDIT,
+                        TransactionStatus.SUCCESS, idempotencyKey));
+        if (striped) {
+            // The insert goes out first, see BalanceStriping#credit.
+            transactionRepository.flush();
+            balanceStriping.credit(walletId, amount);
+            if (balanceCache.isEnabled() || balanceUpdates.isWatched(userId)) {
+                applicationEventPublisher.publishEvent(new StripedWalletCreditedEvent(userId));
+            }
+        } else {
+            publishBalanceChange(userId);
+        }
+        replicaReads.recordWrite(userId);
+        publishEvent(saved, userId);
+        return saved;
+    }
 
-        walletRepository.save(wallet);
-        Transaction saved = transactionRepository.save(tx);
+    @Transactional
+    public Transaction debit(@ShardKey Long userId, long amount, String idempotencyKey) {
+        Long walletId = walletService.getWalletId(userId);
 
-        publishEventAsync(saved);
+        // Balance check and update happen in one statement, so concurrent debits cannot overdraw the wallet.
+        if (walletRepository.debitIfSufficient(userId, amount) == 0 && !debitAfterSweep(userId, walletId, amount)) {
+            throw new InsufficientBalanceException(amount);
+        }
+        Transaction saved = transactionRepository.save(
+                buildTransaction(walletRepository.getReferenceById(walletId), amount, TransactionType.DEBIT,
+                        TransactionStatus.SUCCESS, idempotencyKey));
+
+        publishBalanceChange(userId);
+        replicaReads.recordWrite(userId);
+        publishEvent(saved, userId);
         return saved;
     }
 
+    /**
+     * Moves {@code amount} from one wallet to another in a single database transaction, so both legs commit or
+     * neither does. Both wallets are locked up front in wallet id order ({@link WalletRepository#lockAllById}):
+     * concurrent transfers between the same wallets, in either direction, queue instead of deadlocking.
+     *
+     * @throws CrossShardTransferException if the users live on different database shards
+     */
     @Transactional
-    public Transaction debit(Long userId, BigDecimal amount) {
-        Wallet wallet = getWalletForUpdate(userId);
+    public Transfer transfer(@ShardKey Long fromUserId, Long toUserId, long amount) {
+        if (shardRouting.shardOf(fromUserId) != shardRouting.shardOf(toUserId)) {
+            throw new CrossShardTransferException(fromUserId, toUserId);
+        }
+        Long fromWalletId = walletService.getWalletId(fromUserId);
+        Long toWalletId = walletService.getWalletId(toUserId);
+        Map<Long, Wallet> wallets = walletRepository.lockAllById(List.of(fromWalletId, toWalletId)).stream()
+                .collect(Collectors.toMap(Wallet::getId, Function.identity()));
+        Wallet from = wallets.get(fromWalletId);
+        Wallet to = wallets.get(toWalletId);
 
-        if (wallet.getBalance().compareTo(amount) < 0) {
+        if (available(from) < amount) {
+            from.setBalance(Money.add(from.getBalance(), balanceStriping.sweep(fromWalletId)));
+        }
+        if (available(from) < amount) {
             throw new InsufficientBalanceException(amount);
         }
+        from.setBalance(Money.subtract(from.getBalance(), amount));
+        to.setBalance(Money.add(to.getBalance(), amount));
 
-        wallet.setBalance(wallet.getBalance().subtract(amount));
-        Transaction tx = buildTransaction(wallet, amount, TransactionType.DEBIT, TransactionStatus.SUCCESS);
+        Transaction outgoing = transactionRepository.save(
+                buildTransaction(from, amount, TransactionType.TRANSFER_OUT, TransactionStatus.SUCCESS, null));
+        Transaction incoming = buildTransaction(to, amount, TransactionType.TRANSFER_IN, TransactionStatus.SUCCESS, null);
+        incoming.setLinkedTransactionId(outgoing.getId());
+        transactionRepository.save(incoming);
+        // Ids are assigned on save, so the first leg can only point at the second afterwards.
+        outgoing.setLinkedTransactionId(incoming.getId());
 
-        walletRepository.save(wallet);
-        Transaction saved = transactionRepository.save(tx);
+        // Flushing now rather than at commit makes the wallets' new versions available for the balance cache.
+        walletRepository.flush();
+        publishBalanceChanges(List.of(fromUserId, toUserId));
+        replicaReads.recordWrite(fromUserId);
+        replicaReads.recordWrite(toUserId);
+        eventPublisher.publishAll(List.of(TransactionEvent.of(outgoing, fromUserId), TransactionEvent.of(incoming, toUserId)));
+        return new Transfer(outgoing, incoming);
+    }
 
-        publishEventAsync(saved);
-        return saved;
+    /**
+     * Applies postings in chunks of {@code app.batch.chunk-size}, one database transaction per chunk. Each wallet
+     * in a chunk is read once, its postings are applied in order in memory and it is written back once with a
+     * version check; losing that check re-runs the chunk. Rejected postings (unknown wallet, insufficient
+     * balance) are reported individually, and a chunk that cannot be committed reports all of its postings
+     * as failed without affecting chunks already committed.
+
+     */
+    @Admitted
+    public List<PostingResult> applyBatch(List<Posting> postings) {
+        if (shardRouting.shardCount() == 1) {
+            return applyChunks(postings);
+        }
+        List<Integer> positions = IntStream.range(0, postings.size()).boxed().toList();
+        PostingResult[] results = new PostingResult[postings.size()];
+        shardRouting.partition(positions, i -> postings.get(i).userId()).forEach((shard, onShard) -> {
+            try (ShardRouting.Binding binding = shardRouting.bind(shard)) {
+                List<PostingResult> applied = applyChunks(onShard.stream().map(postings::get).toList());
+                for (int i = 0; i < onShard.size(); i++) {
+                    results[onShard.get(i)] = applied.get(i);
+                }
+            }
+        });
+        return Arrays.asList(results);
+    }
+
+    /**
+     * The whole history as a single page.
+     */
+    @Transactional(readOnly = true)
+    public TransactionPage getTransactionsForUser(@ShardKey Long userId) {
+        try (ReplicaReads.Pin pin = replicaReads.pinFor(userId)) {
+            ensureUserExists(userId);
+            long version = readHistoryVersion(userId);
+            return new TransactionPage(transactionRepository.findResponsesByUserId(userId), null, version);
+        }
     }
 
+    /**
+     * Keyset-paginated history, newest first. Pass the previous page's {@code next} cursor to continue; the
+     * cost of a page does not depend on how deep into the history it is.
+     */
     @Transactional(readOnly = true)
-    public List<Transaction> getTransactionsForUser(Long userId) {
-        ensureUserExists(userId);
-        return transactionRepository.findByWalletUserIdOrderByTimestampDesc(userId);
+    public TransactionPage getTransactionPage(@ShardKey Long userId, HistoryCursor cursor, int limit) {
+        try (ReplicaReads.Pin pin = replicaReads.pinFor(userId)) {
+            Long walletId = walletService.getWalletId(userId);
+            int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+            long version = readHistoryVersion(userId);
+
+            // One extra row tells whether another page exists without a count query.
+            Limit fetch = Limit.of(pageSize + 1);
+            List<TransactionResponse> rows = cursor == null
+                    ? transactionRepository.findLatestResponses(walletId, fetch)
+                    : transactionRepository.findResponsesOlderThan(walletId, cursor.timestamp(), cursor.id(), fetch);
+            if (rows.size() <= pageSize) {
+                return new TransactionPage(rows, null, version);
+            }
+            List<TransactionResponse> page = rows.subList(0, pageSize);
+            return new TransactionPage(page, HistoryCursor.after(page.get(pageSize - 1)), version);
+        }
     }
 
-    private Wallet getWalletForUpdate(Long userId) {
-        return walletRepository.findByUserId(userId)
-                .orElseThrow(() -> new com.example.wallet.exception.WalletNotFoundException(userId));
+    /**
+     * Hands the user's whole history, newest first, to {@code consumer} one row at a time. Rows are read from an
+     * open cursor as DTOs, so nothing accumulates in the persistence context and heap use does not grow with the
+     * history.
+     */
+    @Transactional(readOnly = true)
+    public void streamTransactions(@ShardKey Long userId, Consumer<TransactionResponse> consumer) {
+        Long walletId = walletService.getWalletId(userId);
+        try (Stream<TransactionResponse> rows = transactionRepository.streamResponsesByWalletId(walletId)) {
+            rows.forEach(consumer);
+        }
+    }
+
+    private List<PostingResult> applyChunks(List<Posting> postings) {
+        List<PostingResult> results = new ArrayList<>(postings.size());
+        for (int from = 0; from < postings.size(); from += batchChunkSize) {
+            List<Posting> chunk = postings.subList(from, Math.min(from + batchChunkSize, postings.size()));
+            try {
+                results.addAll(optimisticRetry.execute(() -> transactionTemplate.execute(status -> applyChunk(chunk))));
+            } catch (RuntimeException ex) {
+                log.error("Failed to commit batch chunk of {} postings", chunk.size(), ex);
+                chunk.forEach(p -> results.add(PostingResult.failure(p.userId(), ex)));
+            }
+        }
+        return results;
+    }
+
+    private List<PostingResult> applyChunk(List<Posting> chunk) {
+        Set<Long> userIds = chunk.stream().map(Posting::userId).collect(Collectors.toSet());
+        Map<Long, Wallet> wallets = walletRepository.findByUserIdIn(userIds).stream()
+                .collect(Collectors.toMap(w -> w.getUser().getId(), Function.identity()));
+
+        List<PostingResult> results = new ArrayList<>(chunk.size());
+        List<Transaction> transactions = new ArrayList<>(chunk.size());
+        for (Posting posting : chunk) {
+            try {
+                Wallet wallet = wallets.get(posting.userId());
+                if (wallet == null) {
+                    throw new WalletNotFoundException(posting.userId());
+                }
+                Transaction tx = applyToWallet(wallet, posting);
+                transactions.add(tx);
+                results.add(PostingResult.success(posting.userId(), tx));
+            } catch (RuntimeException ex) {
+                results.add(PostingResult.failure(posting.userId(), ex));
+            }
+        }
+
+        transactionRepository.saveAll(transactions);
+        // Flushing now rather than at commit makes the wallets' new versions available for the balance cache.
+        walletRepository.flush();
+        publishBalanceChanges(wallets.keySet());
+        wallets.keySet().forEach(replicaReads::recordWrite);
+        eventPublisher.publishAll(transactions.stream()
+                .map(tx -> TransactionEvent.of(tx, tx.getWallet().getUser().getId()))
+                .toList());
+        return results;
+    }
+
+    private Transaction applyToWallet(Wallet wallet, Posting posting) {
+        switch (posting.type()) {
+            case CREDIT -> wallet.setBalance(Money.add(wallet.getBalance(), posting.amount()));
+            case DEBIT -> {
+                if (available(wallet) < posting.amount()) {
+                    wallet.setBalance(Money.add(wallet.getBalance(), balanceStriping.sweep(wallet.getId())));
+                }
+                if (available(wallet) < posting.amount()) {
+                    throw new InsufficientBalanceException(posting.amount());
+                }
+                wallet.setBalance(Money.subtract(wallet.getBalance(), posting.amount()));
+            }
+            default -> throw new IllegalArgumentException("Unsupported transaction type: " + posting.type());
+        }
+        return buildTransaction(wallet, posting.amount(), posting.type(), TransactionStatus.SUCCESS, posting.idempotencyKey());
+    }
+
+    /** Sweeps the wallet's slots into its row and retries the debit once. */
+    private boolean debitAfterSweep(Long userId, Long walletId, long amount) {
+        long swept = balanceStriping.sweep(walletId);
+        if (swept == Money.ZERO) {
+            return false;
+        }
+        walletRepository.credit(userId, swept);
+        return walletRepository.debitIfSufficient(userId, amount) == 1;
+    }
+
+    private static long available(Wallet wallet) {
+        return Money.subtract(wallet.getBalance(), wallet.getHeld());
+    }
+
+    private long readHistoryVersion(Long userId) {
+        return walletRepository.findVersionByUserId(userId).orElseThrow(() -> new WalletNotFoundException(userId));
     }
 
     private void ensureUserExists(Long userId) {
@@ -74,18 +314,35 @@ public class TransactionService {
                 .orElseThrow(() -> new UserNotFoundException(userId));
     }
 
-    private Transaction buildTransaction(Wallet wallet, BigDecimal amount, TransactionType type, TransactionStatus status) {
+    private Transaction buildTransaction(Wallet wallet, long amount, TransactionType type, TransactionStatus status,
+                                         String idempotencyKey) {
         return Transaction.builder()
                 .wallet(wallet)
                 .amount(amount)
                 .type(type)
                 .status(status)
+                .idempotencyKey(idempotencyKey)
                 .build();
     }
 
-    private void publishEventAsync(Transaction transaction) {
-        // Fire-and-forget; Kafka delivery failures must not affect DB transaction.
-        eventPublisher.publish(transaction);
+    /** Reads back the balance a conditional update produced, for the cache and update streams. */
+    private void publishBalanceChange(Long userId) {
+        if (balanceCache.isEnabled() || balanceUpdates.isWatched(userId)) {
+            walletRepository.findBalanceByUserId(userId).ifPresent(snapshot -> applicationEventPublisher.publishEvent(
+                    new WalletBalanceChangedEvent(userId, snapshot.balance(), snapshot.held(), snapshot.version())));
+        }
+    }
+
+    /** For wallets written from memory, whose rows alone would understate any striped ones. */
+    private void publishBalanceChanges(Collection<Long> userIds) {
+        if (balanceCache.isEnabled() || userIds.stream().anyMatch(balanceUpdates::isWatched)) {
+            walletRepository.findBalancesByUserIdIn(userIds).forEach(snapshot -> applicationEventPublisher.publishEvent(
+                    new WalletBalanceChangedEvent(snapshot.userId(), snapshot.balance(), snapshot.held(), snapshot.version())));
+        }
+    }
+
+    private void publishEvent(Transaction transaction, Long userId) {
+        // Lands in the outbox with this transaction, or is sent after commit; Kafka failures never roll it back.
+        eventPublisher.publish(TransactionEvent.of(transaction, userId));
     }
 }
-
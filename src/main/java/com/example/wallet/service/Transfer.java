@@ -0,0 +1,9 @@
+package com.example.wallet.service;
+
+import com.example.wallet.model.Transaction;
+
+/**
+ * The two legs written by one transfer, linked to each other through {@code linkedTransactionId}.
+ */
+public record Transfer(Transaction outgoing, Transaction incoming) {
+}
@@ -1,14 +1,16 @@
 package com.example.wallet.service;
 
 import com.example.wallet.exception.UserNotFoundException;
+import com.example.wallet.model.Money;
 import com.example.wallet.model.User;
 import com.example.wallet.model.Wallet;
+import com.example.wallet.model.id.Snowflake;
 import com.example.wallet.repository.UserRepository;
 import com.example.wallet.repository.WalletRepository;
-import java.math.BigDecimal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
@@ -16,28 +18,43 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final WalletRepository walletRepository;
-
-    @Transactional
+    private final ReplicaReads replicaReads;
+    private final ShardRouting shardRouting;
+    private final TransactionTemplate transactionTemplate;
+    private final Snowflake snowflake;
+
+    /**
+     * The user's id decides its shard, so it is drawn before the insert and the transaction is opened on that shard.
+     */
+    @Admitted
     public User createUser(String name, String email) {
-        User user = User.builder()
-                .name(name)
-                .email(email)
-                .build();
-        User savedUser = userRepository.save(user);
-
-        Wallet wallet = Wallet.builder()
-                .user(savedUser)
-                .balance(BigDecimal.ZERO)
-                .build();
-        walletRepository.save(wallet);
-
-        return savedUser;
+        Long id = snowflake.nextId();
+        try (ShardRouting.Binding binding = shardRouting.forUser(id)) {
+            return transactionTemplate.execute(status -> {
+                User user = User.builder()
+                        .id(id)
+                        .name(name)
+                        .email(email)
+                        .build();
+                User savedUser = userRepository.save(user);
+
+                Wallet wallet = Wallet.builder()
+                        .user(savedUser)
+                        .balance(Money.ZERO)
+                        .build();
+                walletRepository.save(wallet);
+
+                replicaReads.recordWrite(savedUser.getId());
+                return savedUser;
+            });
+        }
     }
 
     @Transactional(readOnly = true)
-    public User getUserById(Long id) {
-        return userRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException(id));
+    public User getUserById(@ShardKey Long id) {
+        try (ReplicaReads.Pin pin = replicaReads.pinFor(id)) {
+            return userRepository.findById(id)
+                    .orElseThrow(() -> new UserNotFoundException(id));
+        }
     }
 }
-
@@ -0,0 +1,64 @@
+package com.example.wallet.service;
+
+import com.example.wallet.model.BalanceSnapshot;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Committed wallet balances keyed by userId, bounded by size and time since write.
+ */
+@Component
+public class WalletBalanceCache {
+
+    private final Cache<Long, BalanceSnapshot> cache;
+
+    private final boolean enabled;
+
+    public WalletBalanceCache(@Value("${app.wallet.balance-cache.enabled:true}") boolean enabled,
+                              @Value("${app.wallet.balance-cache.max-size:100000}") long maxSize,
+                              @Value("${app.wallet.balance-cache.ttl-ms:30000}") long ttlMs,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(enabled ? maxSize : 0)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "wallet.balance");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public BalanceSnapshot get(Long userId) {
+        return enabled ? cache.getIfPresent(userId) : null;
+    }
+
+    public boolean contains(Long userId) {
+        return enabled && cache.asMap().containsKey(userId);
+    }
+
+    public void put(BalanceSnapshot snapshot) {
+        if (enabled) {
+            // Never replace a newer version, so a slow reader cannot undo what a later write stored.
+            cache.asMap().merge(snapshot.userId(), snapshot,
+                    (cached, fresh) -> fresh.version() >= cached.version() ? fresh : cached);
+        }
+    }
+
+    public void invalidate(Long userId) {
+        cache.invalidate(userId);
+    }
+
+    @TransactionalEventListener
+    public void onBalanceChanged(WalletBalanceChangedEvent event) {
+        put(new BalanceSnapshot(event.userId(), event.balance(), event.held(), event.version()));
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.wallet.service;
+
+/**
+ * Published inside the transaction that changed a wallet's balance; amounts are Money units.
+ */
+public record WalletBalanceChangedEvent(Long userId, long balance, long held, Long version) {
+}
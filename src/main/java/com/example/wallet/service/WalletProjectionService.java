@@ -0,0 +1,155 @@
+package com.example.wallet.service;
+
+import com.example.wallet.dto.WalletStatsResponse;
+import com.example.wallet.kafka.TransactionEvent;
+import com.example.wallet.model.Money;
+import com.example.wallet.repository.WalletProjectionRepository;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maintains {@code wallet_projections} from transaction events, dropping ids already in
+ * {@code projected_transactions} so redelivered events change nothing. Not seeded from the ledger.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletProjectionService {
+
+    private static final String INSERT_PROJECTED =
+            "insert into projected_transactions (transaction_id, projected_at) values (?, ?)";
+
+    private static final String UPSERT_PROJECTION =
+            "insert into wallet_projections (wallet_id, user_id, balance, transaction_count, last_event_at) "
+                    + "values (?, ?, ?, ?, ?) "
+                    + "on duplicate key update balance = balance + values(balance), "
+                    + "transaction_count = transaction_count + values(transaction_count), "
+                    + "last_event_at = greatest(last_event_at, values(last_event_at))";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final WalletProjectionRepository walletProjectionRepository;
+    private final WalletService walletService;
+    private final ShardRouting shardRouting;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.projection.dedupe-retention-hours:168}")
+    private long dedupeRetentionHours;
+
+    /**
+     * Returns the number of events that were new to the projection.
+     */
+    public int apply(List<TransactionEvent> events) {
+        int applied = 0;
+        for (Map.Entry<Integer, List<TransactionEvent>> shard
+                : shardRouting.partition(events, TransactionEvent::getUserId).entrySet()) {
+            try (ShardRouting.Binding binding = shardRouting.bind(shard.getKey())) {
+                applied += transactionTemplate.execute(status -> applyOnShard(shard.getValue()));
+            }
+        }
+        return applied;
+    }
+
+    @Transactional(readOnly = true)
+    public WalletStatsResponse getStats(@ShardKey Long userId) {
+        return walletProjectionRepository.findByUserId(userId)
+                .map(p -> new WalletStatsResponse(userId, p.getWalletId(), p.getBalance(), p.getTransactionCount(),
+                        p.getLastEventAt()))
+                // No event projected yet: an existing wallet reads as empty, an unknown user as not found.
+                .orElseGet(() -> new WalletStatsResponse(userId, walletService.getWalletId(userId), BigDecimal.ZERO,
+                        0L, null));
+    }
+
+    @Scheduled(fixedDelayString = "${app.projection.cleanup-interval-ms:3600000}")
+    public void purgeProjected() {
+        Timestamp before = Timestamp.from(Instant.now().minus(Duration.ofHours(dedupeRetentionHours)));
+        for (int shard = 0; shard < shardRouting.shardCount(); shard++) {
+            try (ShardRouting.Binding binding = shardRouting.bind(shard)) {
+                int deleted = jdbcTemplate.getJdbcTemplate()
+                        .update("delete from projected_transactions where projected_at < ?", before);
+                if (deleted > 0) {
+                    log.info("Purged {} projected transaction ids on shard {}", deleted, shard);
+                }
+            }
+        }
+    }
+
+    private int applyOnShard(List<TransactionEvent> events) {
+        Map<Long, TransactionEvent> fresh = new LinkedHashMap<>();
+        for (TransactionEvent event : events) {
+            // Not recorded, so the capture, which shares the hold's id, still counts.
+            if (event.isPosted()) {
+                fresh.putIfAbsent(event.getTransactionId(), event);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+        fresh.keySet().removeAll(alreadyProjected(fresh.keySet()));
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> projected = new ArrayList<>(fresh.size());
+        Map<Long, WalletDelta> deltas = new LinkedHashMap<>();
+        for (TransactionEvent event : fresh.values()) {
+            projected.add(new Object[]{event.getTransactionId(), now});
+            deltas.computeIfAbsent(event.getWalletId(), id -> new WalletDelta(event.getUserId())).add(event);
+        }
+
+        List<Object[]> upserts = new ArrayList<>(deltas.size());
+        deltas.forEach((walletId, delta) -> upserts.add(new Object[]{
+                walletId, delta.userId, Money.toBigDecimal(delta.balance), delta.count, Timestamp.from(delta.lastEventAt)}));
+
+        jdbcTemplate.getJdbcTemplate().batchUpdate(INSERT_PROJECTED, projected);
+        jdbcTemplate.getJdbcTemplate().batchUpdate(UPSERT_PROJECTION, upserts);
+        return fresh.size();
+    }
+
+    private Set<Long> alreadyProjected(Set<Long> transactionIds) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "select transaction_id from projected_transactions where transaction_id in (:ids)",
+                new MapSqlParameterSource("ids", transactionIds), Long.class));
+    }
+
+    private static final class WalletDelta {
+
+        private final Long userId;
+        private long balance = Money.ZERO;
+        private long count;
+        private Instant lastEventAt = Instant.EPOCH;
+
+        private WalletDelta(Long userId) {
+            this.userId = userId;
+        }
+
+        private void add(TransactionEvent event) {
+            balance = switch (event.getType()) {
+                case CREDIT, TRANSFER_IN -> Money.add(balance, event.getAmount());
+                case DEBIT, TRANSFER_OUT -> Money.subtract(balance, event.getAmount());
+                default -> throw new IllegalArgumentException("Unsupported transaction type: " + event.getType());
+            };
+            count++;
+            if (event.getTimestamp().isAfter(lastEventAt)) {
+                lastEventAt = event.getTimestamp();
+            }
+        }
+    }
+}
@@ -1,28 +1,143 @@
 package com.example.wallet.service;
 
 import com.example.wallet.exception.WalletNotFoundException;
+import com.example.wallet.model.BalanceSnapshot;
+import com.example.wallet.model.Money;
 import com.example.wallet.model.Wallet;
 import com.example.wallet.repository.WalletRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import java.math.BigDecimal;
-import lombok.RequiredArgsConstructor;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 @Service
-@RequiredArgsConstructor
 public class WalletService {
 
     private final WalletRepository walletRepository;
+    private final WalletBalanceCache balanceCache;
+    private final BalanceStriping balanceStriping;
+    private final ReplicaReads replicaReads;
+    private final ShardRouting shardRouting;
+
+    // A user's wallet never changes, so entries never go stale; the bound only caps memory.
+    private final Cache<Long, Long> walletIdsByUserId;
+
+    public WalletService(WalletRepository walletRepository,
+                         WalletBalanceCache balanceCache,
+                         BalanceStriping balanceStriping,
+                         ReplicaReads replicaReads,
+                         ShardRouting shardRouting,
+                         @Value("${app.wallet.id-cache.max-size:100000}") long walletIdCacheMaxSize) {
+        this.walletRepository = walletRepository;
+        this.balanceCache = balanceCache;
+        this.balanceStriping = balanceStriping;
+        this.replicaReads = replicaReads;
+        this.shardRouting = shardRouting;
+        this.walletIdsByUserId = Caffeine.newBuilder().maximumSize(walletIdCacheMaxSize).build();
+    }
 
     @Transactional(readOnly = true)
-    public Wallet getWalletByUserId(Long userId) {
+    public Wallet getWalletByUserId(@ShardKey Long userId) {
         return walletRepository.findByUserId(userId)
                 .orElseThrow(() -> new WalletNotFoundException(userId));
     }
 
-    @Transactional(readOnly = true)
-    public BigDecimal getBalance(Long userId) {
-        return getWalletByUserId(userId).getBalance();
+    /** Served from {@link WalletBalanceCache} unless {@code strict}, which reads the primary. */
+    @Admitted
+    public BigDecimal getBalance(@ShardKey Long userId, boolean strict) {
+        return Money.toBigDecimal(getBalanceSnapshot(userId, strict).balance());
+    }
+
+    /** {@link #getBalance} with the version it was read at. */
+    @Admitted
+    public BalanceSnapshot getBalanceSnapshot(@ShardKey Long userId, boolean strict) {
+        try (ReplicaReads.Pin pin = strict ? replicaReads.pinPrimary() : replicaReads.pinFor(userId)) {
+            if (!strict) {
+                BalanceSnapshot cached = balanceCache.get(userId);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            BalanceSnapshot snapshot = walletRepository.findBalanceByUserId(userId)
+                    .orElseThrow(() -> new WalletNotFoundException(userId));
+            balanceCache.put(snapshot);
+            return snapshot;
+        }
+    }
+
+    /** The version {@link #getBalanceSnapshot} would return, without reading the balance. */
+    @Admitted
+    public long getBalanceVersion(@ShardKey Long userId, boolean strict) {
+        try (ReplicaReads.Pin pin = strict ? replicaReads.pinPrimary() : replicaReads.pinFor(userId)) {
+            if (!strict) {
+                BalanceSnapshot cached = balanceCache.get(userId);
+                if (cached != null) {
+                    return cached.version();
+                }
+            }
+            return readVersion(userId);
+        }
+    }
+
+    /**
+     * A version of the user's transaction history, read from the database the history is read from (a replica
+     * unless the user wrote recently) without reading any transactions.
+     */
+    @Admitted
+    public long getHistoryVersion(@ShardKey Long userId) {
+        try (ReplicaReads.Pin pin = replicaReads.pinFor(userId)) {
+            return readVersion(userId);
+        }
     }
-}
 
+    /** Re-reads the balances of those users that are currently cached. */
+    public void refreshCachedBalances(Collection<Long> userIds) {
+        List<Long> cached = userIds.stream().filter(balanceCache::contains).toList();
+        if (!cached.isEmpty()) {
+            // A replica may not have the change yet; the primary has it.
+            try (ReplicaReads.Pin pin = replicaReads.pinPrimary()) {
+                shardRouting.partition(cached, Function.identity()).forEach((shard, onShard) -> {
+                    try (ShardRouting.Binding binding = shardRouting.bind(shard)) {
+                        walletRepository.findBalancesByUserIdIn(onShard).forEach(balanceCache::put);
+                    }
+                });
+            }
+        }
+    }
+
+    /** Whichever slot credit reads last leaves the cache with all of them. */
+    @TransactionalEventListener
+    public void onStripedCredit(StripedWalletCreditedEvent event) {
+        refreshCachedBalances(List.of(event.userId()));
+    }
+
+    /** Returns the slot count the wallet ends up with. */
+    @Admitted
+    public int stripe(@ShardKey Long userId, int slots) {
+        return balanceStriping.stripe(getWalletId(userId), slots);
+    }
+
+    @Admitted
+    public Long getWalletId(@ShardKey Long userId) {
+        Long walletId = walletIdsByUserId.getIfPresent(userId);
+        if (walletId == null) {
+            // A user created moments ago may not have reached a replica yet; the primary has it.
+            try (ReplicaReads.Pin pin = replicaReads.pinPrimary()) {
+                walletId = walletRepository.findIdByUserId(userId)
+                        .orElseThrow(() -> new WalletNotFoundException(userId));
+            }
+            walletIdsByUserId.put(userId, walletId);
+        }
+        return walletId;
+    }
+
+    private long readVersion(Long userId) {
+        return walletRepository.findVersionByUserId(userId).orElseThrow(() -> new WalletNotFoundException(userId));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.wallet.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * A single-node run defaults to node 0; read replicas, or app.id.require-node-id, need an explicit id.
+ */
+class IdConfigTest {
+
+    @Test
+    void aSingleInstanceDefaultsToNodeZeroWithOrWithoutKafka() {
+        assertThat(config("", false, false, false).snowflake().nodeId()).isZero();
+        assertThat(config("", false, true, false).snowflake().nodeId()).isZero();
+    }
+
+    @Test
+    void replicasOrTheOptInRequireAnExplicitNodeId() {
+        assertThatThrownBy(() -> config(" ", false, false, true).snowflake())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("app.id.node-id");
+        assertThatThrownBy(() -> config("", true, true, false).snowflake())
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void anExplicitNodeIdIsUsedAndReachesHibernate() {
+        IdConfig config = config("7", true, true, true);
+        assertThat(config.snowflake().nodeId()).isEqualTo(7);
+
+        Map<String, Object> properties = new HashMap<>();
+        config.snowflakeNodeId(config.snowflake()).customize(properties);
+        assertThat(properties).containsEntry("app.id.node-id", 7);
+    }
+
+    private static IdConfig config(String nodeId, boolean requireNodeId, boolean kafkaEnabled,
+            boolean readReplicasEnabled) {
+        IdConfig config = new IdConfig();
+        ReflectionTestUtils.setField(config, "nodeId", nodeId);
+        ReflectionTestUtils.setField(config, "requireNodeId", requireNodeId);
+        ReflectionTestUtils.setField(config, "kafkaEnabled", kafkaEnabled);
+        ReflectionTestUtils.setField(config, "readReplicasEnabled", readReplicasEnabled);
+        return config;
+    }
+}
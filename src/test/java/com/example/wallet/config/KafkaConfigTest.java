@@ -0,0 +1,27 @@
+package com.example.wallet.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * The spring.kafka.template and spring.kafka.listener histograms in application.yml only have meters to apply to
+ * when the template and the listener containers are observed.
+ */
+class KafkaConfigTest {
+
+    private final KafkaConfig config = new KafkaConfig(new KafkaProperties(), new SimpleMeterRegistry(), new MockEnvironment());
+
+    @Test
+    void templateAndListenerContainersAreObserved() {
+        ReflectionTestUtils.setField(config, "serde", "binary");
+        ReflectionTestUtils.setField(config, "projectionConcurrency", 1);
+
+        assertThat(ReflectionTestUtils.getField(config.kafkaTemplate(), "observationEnabled")).isEqualTo(true);
+        assertThat(config.transactionEventListenerFactory().getContainerProperties().isObservationEnabled()).isTrue();
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.wallet.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.wallet.dto.TransactionResponse;
+import com.example.wallet.engine.LedgerEngine;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.Transaction;
+import com.example.wallet.model.enums.TransactionType;
+import com.example.wallet.repository.TransactionRepository;
+import com.example.wallet.service.IdempotencyGuard;
+import com.example.wallet.service.Posting;
+import com.example.wallet.service.ReplicaReads;
+import com.example.wallet.service.ShardRouting;
+import com.example.wallet.service.TransactionService;
+import com.example.wallet.service.UserService;
+import com.example.wallet.service.WalletService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Read replicas against a replica that really lags: a second H2 database, copied from the primary only when a test
+ * calls {@link #syncReplica}. Writes made after a sync are what a lagging replica has not applied yet.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "app.id.node-id=0",
+        "app.datasource.read-replicas.urls=" + ReadReplicaTest.REPLICA_URL,
+        "app.datasource.read-replicas.read-your-writes-ms=" + ReadReplicaTest.READ_YOUR_WRITES_MS,
+        "app.wallet.balance-cache.enabled=false"
+})
+@ActiveProfiles({"inprocess", "replicas"})
+class ReadReplicaTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:walletdb_replica;DB_CLOSE_DELAY=-1;MODE=MYSQL";
+
+    static final long READ_YOUR_WRITES_MS = 500;
+
+    @Autowired
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private ReplicaReads replicaReads;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ShardRouting shardRouting;
+
+    @TempDir
+    private Path dir;
+
+    private JdbcTemplate primary;
+
+    private Long userId;
+
+    @BeforeEach
+    void createUserAndSync() throws Exception {
+        primary = new JdbcTemplate(primaryDataSource);
+        userId = userService.createUser("replicated", UUID.randomUUID() + "@example.com").getId();
+        transactionService.credit(userId, Money.of(new BigDecimal("10")), null);
+        syncReplica();
+        // Let the writes above leave the read-your-writes window.
+        Thread.sleep(READ_YOUR_WRITES_MS + 100);
+    }
+
+    @Test
+    void readsGoToTheReplicaAndSeeItsLag() {
+        creditOnAnotherNode(5);
+        double replicaReadsBefore = reads("replica");
+
+        assertThat(walletService.getBalance(userId, false)).isEqualByComparingTo("10");
+        assertThat(reads("replica")).isGreaterThan(replicaReadsBefore);
+    }
+
+    @Test
+    void strictReadsGoToThePrimary() {
+        creditOnAnotherNode(5);
+        double primaryReadsBefore = reads("primary");
+
+        assertThat(walletService.getBalance(userId, true)).isEqualByComparingTo("15");
+        assertThat(reads("primary")).isGreaterThan(primaryReadsBefore);
+        // The pin ended with the read.
+        assertThat(walletService.getBalance(userId, false)).isEqualByComparingTo("10");
+    }
+
+    @Test
+    void aUserReadsTheirOwnWritesFromThePrimaryWhileTheReplicaLags() throws Exception {
+        transactionService.credit(userId, Money.of(new BigDecimal("1")), null);
+
+        assertThat(walletService.getBalance(userId, false)).isEqualByComparingTo("11");
+        assertThat(transactionService.getTransactionsForUser(userId).transactions()).hasSize(2);
+
+        Thread.sleep(READ_YOUR_WRITES_MS + 100);
+        assertThat(walletService.getBalance(userId, false)).isEqualByComparingTo("10");
+        syncReplica();
+        assertThat(walletService.getBalance(userId, false)).isEqualByComparingTo("11");
+    }
+
+    @Test
+    void pinsCoverOnlyCommittedWritesAndTheirOwnScope() {
+        try (ReplicaReads.Pin pin = replicaReads.pinFor(userId)) {
+            assertThat(ReplicaReads.isPinnedToPrimary()).isFalse();
+        }
+        replicaReads.recordWrite(userId);
+        try (ReplicaReads.Pin pin = replicaReads.pinFor(userId)) {
+            assertThat(ReplicaReads.isPinnedToPrimary()).isTrue();
+            try (ReplicaReads.Pin nested = replicaReads.pinPrimary()) {
+                assertThat(ReplicaReads.isPinnedToPrimary()).isTrue();
+            }
+            // Closing the nested pin leaves the outer one in place.
+            assertThat(ReplicaReads.isPinnedToPrimary()).isTrue();
+        }
+        assertThat(ReplicaReads.isPinnedToPrimary()).isFalse();
+    }
+
+    @Test
+    void idempotentRetriesReplayWhileTheReplicaLags() throws Exception {
+        String key = UUID.randomUUID().toString();
+        Transaction original = ledgerEngine.credit(userId, BigDecimal.ONE, key).join();
+        Thread.sleep(READ_YOUR_WRITES_MS + 100);
+
+        // A retry on this node finds the key in its recent keys and reads the original back, by id, from the primary.
+        double fromCacheBefore = replays("cache");
+        assertThat(ledgerEngine.credit(userId, BigDecimal.ONE, key).join().getId()).isEqualTo(original.getId());
+        assertThat(replays("cache")).isEqualTo(fromCacheBefore + 1);
+
+        // A retry on a node that never saw the key posts, loses on the unique key and replays the winner.
+        IdempotencyGuard otherNode = new IdempotencyGuard(transactionRepository, shardRouting, replicaReads,
+                1000, 60_000, 1000, 0.01, new SimpleMeterRegistry());
+        Posting retry = new Posting(userId, Money.of(BigDecimal.ONE), TransactionType.CREDIT, key);
+        Transaction replayed = otherNode.execute(retry, posting -> CompletableFuture.completedFuture(
+                transactionService.credit(posting.userId(), posting.amount(), posting.idempotencyKey()))).join();
+
+        assertThat(replayed.getId()).isEqualTo(original.getId());
+        assertThat(walletService.getBalance(userId, true)).isEqualByComparingTo("11");
+    }
+
+    @Test
+    void aUserCreatedMomentsAgoIsFoundBeforeTheReplicaHasIt() throws Exception {
+        Long newUserId = userService.createUser("fresh", UUID.randomUUID() + "@example.com").getId();
+        // As if the user had been created on another node: this one never recorded the write.
+        Thread.sleep(READ_YOUR_WRITES_MS + 100);
+
+        // A read-only transaction whose first statement looks the wallet id up.
+        List<TransactionResponse> history = new ArrayList<>();
+        transactionService.streamTransactions(newUserId, history::add);
+        assertThat(history).isEmpty();
+        assertThat(walletService.getWalletId(newUserId)).isNotNull();
+    }
+
+    private void creditOnAnotherNode(long amount) {
+        primary.update("update wallets set balance = balance + ?, version = version + 1 where user_id = ?",
+                BigDecimal.valueOf(amount), userId);
+    }
+
+    private double replays(String source) {
+        return meterRegistry.get("wallet.idempotency.replayed").tag("source", source).counter().count();
+    }
+
+    private double reads(String target) {
+        return meterRegistry.get("wallet.datasource.reads").tag("target", target).counter().count();
+    }
+
+    /** Brings the replica up to the primary's current state, as replication eventually would. */
+    private void syncReplica() throws SQLException {
+        Path script = dir.resolve("primary-" + UUID.randomUUID() + ".sql");
+        primary.execute("SCRIPT TO '" + script + "'");
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            statement.execute("RUNSCRIPT FROM '" + script + "'");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.wallet.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.wallet.service.ReplicaReads;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final DataSource primary = mock(DataSource.class);
+    private final HikariDataSource first = mock(HikariDataSource.class);
+    private final HikariDataSource second = mock(HikariDataSource.class);
+
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection firstConnection = mock(Connection.class);
+    private final Connection secondConnection = mock(Connection.class);
+
+    @BeforeEach
+    void connections() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(first.getConnection()).thenReturn(firstConnection);
+        when(second.getConnection()).thenReturn(secondConnection);
+    }
+
+    @Test
+    void spreadsReadsOverTheReplicasRoundRobin() throws SQLException {
+        ReplicaRoutingDataSource routing = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN, 5000);
+
+        assertThat(List.of(routing.getConnection(), routing.getConnection(), routing.getConnection(), routing.getConnection()))
+                .containsExactly(firstConnection, secondConnection, firstConnection, secondConnection);
+        assertThat(reads("replica")).isEqualTo(4);
+        assertThat(reads("primary")).isZero();
+    }
+
+    @Test
+    void pinnedReadsUseThePrimary() throws SQLException {
+        ReplicaRoutingDataSource routing = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN, 5000);
+        ReplicaReads replicaReads = new ReplicaReads(true, 0);
+
+        try (ReplicaReads.Pin pin = replicaReads.pinPrimary()) {
+            assertThat(routing.getConnection()).isSameAs(primaryConnection);
+        }
+        assertThat(routing.getConnection()).isSameAs(firstConnection);
+        assertThat(reads("primary")).isEqualTo(1);
+    }
+
+    @Test
+    void skipsAFailedReplicaUntilItsCooldownEnds() throws Exception {
+        when(first.getConnection()).thenThrow(new SQLTransientConnectionException("down"))
+                .thenReturn(firstConnection);
+        ReplicaRoutingDataSource routing = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN, 200);
+
+        assertThat(routing.getConnection()).isSameAs(secondConnection);
+        assertThat(routing.getConnection()).isSameAs(secondConnection);
+        assertThat(routing.getConnection()).isSameAs(secondConnection);
+        verify(first, times(1)).getConnection();
+        assertThat(meterRegistry.get("wallet.datasource.replica.failures").counter().count()).isEqualTo(1);
+
+        Thread.sleep(250);
+        assertThat(List.of(routing.getConnection(), routing.getConnection())).contains(firstConnection);
+    }
+
+    @Test
+    void fallsBackToThePrimaryWhenNoReplicaIsReachable() throws SQLException {
+        when(first.getConnection()).thenThrow(new SQLTransientConnectionException("down"));
+        when(second.getConnection()).thenThrow(new SQLTransientConnectionException("down"));
+        ReplicaRoutingDataSource routing = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN, 5000);
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+        // Both are cooling down, so the next read goes straight to the primary.
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+        verify(first, times(1)).getConnection();
+        verify(second, times(1)).getConnection();
+    }
+
+    @Test
+    void leastBusyPicksThePoolWithFewestConnectionsInUse() throws SQLException {
+        HikariPoolMXBean busy = mock(HikariPoolMXBean.class);
+        HikariPoolMXBean idle = mock(HikariPoolMXBean.class);
+        when(busy.getActiveConnections()).thenReturn(7);
+        when(idle.getActiveConnections()).thenReturn(1);
+        when(first.getHikariPoolMXBean()).thenReturn(busy);
+        when(second.getHikariPoolMXBean()).thenReturn(idle);
+        ReplicaRoutingDataSource routing = routing(ReplicaRoutingDataSource.Selection.LEAST_BUSY, 5000);
+
+        assertThat(List.of(routing.getConnection(), routing.getConnection()))
+                .containsExactly(secondConnection, secondConnection);
+    }
+
+    private ReplicaRoutingDataSource routing(ReplicaRoutingDataSource.Selection selection, long cooldownMs) {
+        return new ReplicaRoutingDataSource(primary, List.of(first, second), selection, cooldownMs, meterRegistry);
+    }
+
+    private double reads(String target) {
+        return meterRegistry.get("wallet.datasource.reads").tag("target", target).counter().count();
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.wallet.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.example.wallet.service.UserService;
+import com.jayway.jsonpath.JsonPath;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+/** Posting responses keep the amount exactly as the client sent it, the format existing clients parse. */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("inprocess")
+class TransactionControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    private Long userId;
+
+    @BeforeEach
+    void createUser() {
+        userId = userService.createUser("responses", UUID.randomUUID() + "@example.com").getId();
+    }
+
+    @Test
+    void creditAndDebitEchoTheRequestedAmount() throws Exception {
+        postJson("/api/transactions/credit", "{\"userId\":" + userId + ",\"amount\":100}")
+                .andExpect(status().isCreated())
+                .andExpect(content().json("{\"userId\":" + userId + ",\"type\":\"CREDIT\",\"status\":\"SUCCESS\"}"))
+                .andExpect(content().string(containsString("\"amount\":100,")));
+
+        postJson("/api/transactions/debit", "{\"userId\":" + userId + ",\"amount\":12.5}")
+                .andExpect(status().isCreated())
+                .andExpect(content().string(containsString("\"amount\":12.5,")));
+    }
+
+    @Test
+    void transferLegsEchoTheRequestedAmount() throws Exception {
+        Long toUserId = userService.createUser("payee", UUID.randomUUID() + "@example.com").getId();
+        postJson("/api/transactions/credit", "{\"userId\":" + userId + ",\"amount\":50}").andExpect(status().isCreated());
+
+        postJson("/api/transactions/transfer", "{\"fromUserId\":" + userId + ",\"toUserId\":" + toUserId + ",\"amount\":7.25}")
+                .andExpect(status().isCreated())
+                .andExpect(content().string(not(containsString("7.2500"))))
+                .andExpect(content().string(containsString("\"amount\":7.25,")));
+    }
+
+    @Test
+    void idempotentReplayEchoesTheAmountAsResent() throws Exception {
+        String key = UUID.randomUUID().toString();
+        postJson("/api/transactions/credit", "{\"userId\":" + userId + ",\"amount\":5,\"idempotencyKey\":\"" + key + "\"}")
+                .andExpect(status().isCreated())
+                .andExpect(content().string(containsString("\"amount\":5,")));
+
+        postJson("/api/transactions/credit", "{\"userId\":" + userId + ",\"amount\":5.00,\"idempotencyKey\":\"" + key + "\"}")
+                .andExpect(status().isCreated())
+                .andExpect(content().string(containsString("\"amount\":5.00,")));
+    }
+
+    @Test
+    void batchItemsKeepTheirIdempotencyKeys() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String item = "{\"userId\":" + userId + ",\"amount\":4,\"type\":\"CREDIT\",\"idempotencyKey\":\"" + key + "\"}";
+        String first = postJson("/api/transactions/batch", "{\"items\":[" + item + "]}")
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"succeeded\":1,\"failed\":0}"))
+                .andReturn().getResponse().getContentAsString();
+        String transactionId = JsonPath.read(first, "$.results[0].transaction.id").toString();
+
+        postJson("/api/transactions/batch", "{\"items\":[" + item + "]}")
+                .andExpect(content().string(containsString("\"id\":" + transactionId + ",")));
+        postNdjson(item + "\n" + item.replace("\"amount\":4", "\"amount\":5") + "\n")
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"id\":" + transactionId + ",")))
+                .andExpect(content().string(containsString("Idempotency key already used for a different posting")));
+
+        // The single endpoints see the same key: reusing it for a debit is rejected before anything is posted.
+        mockMvc.perform(post("/api/transactions/debit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":" + userId + ",\"amount\":4,\"idempotencyKey\":\"" + key + "\"}"))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void aHoldsKeyIsNotReplayedForADebit() throws Exception {
+        String key = UUID.randomUUID().toString();
+        postJson("/api/transactions/credit", "{\"userId\":" + userId + ",\"amount\":50}").andExpect(status().isCreated());
+        String hold = "{\"userId\":" + userId + ",\"amount\":20,\"idempotencyKey\":\"" + key + "\"}";
+        postJson("/api/holds", hold)
+                .andExpect(status().isCreated())
+                .andExpect(content().string(containsString("\"status\":\"PENDING\"")));
+
+        // Found before anything is posted, so the request is rejected without going async.
+        mockMvc.perform(post("/api/transactions/debit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(hold))
+                .andExpect(status().isUnprocessableEntity());
+        postJson("/api/holds", hold)
+                .andExpect(status().isCreated())
+                .andExpect(content().string(containsString("\"status\":\"PENDING\"")));
+    }
+
+    @Test
+    void badNdjsonLinesFailOnTheirOwnWhileTheRestArePosted() throws Exception {
+        String credit = "{\"userId\":" + userId + ",\"amount\":3,\"type\":\"CREDIT\"}";
+        String body = postNdjson(credit + "\n{\"userId\":" + userId + ",\"amount\n"
+                + "{\"userId\":" + userId + ",\"amount\":3,\"type\":\"REFUND\"}\n"
+                + "{\"userId\":" + userId + ",\"type\":\"CREDIT\"}\n\n" + credit + "\n")
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        String[] results = body.split("\n");
+        assertThat(results).hasSize(5);
+        assertThat(JsonPath.<String>read(results[0], "$.status")).isEqualTo("SUCCESS");
+        assertThat(JsonPath.<String>read(results[1], "$.error")).startsWith("Malformed item");
+        assertThat(JsonPath.<String>read(results[2], "$.error")).startsWith("Malformed item");
+        assertThat(JsonPath.<String>read(results[3], "$.error")).contains("amount");
+        assertThat(JsonPath.<Integer>read(results[4], "$.index")).isEqualTo(4);
+        assertThat(JsonPath.<String>read(results[4], "$.status")).isEqualTo("SUCCESS");
+    }
+
+    private ResultActions postNdjson(String body) throws Exception {
+        MvcResult started = mockMvc.perform(post("/api/transactions/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+
+    private ResultActions postJson(String path, String body) throws Exception {
+        MvcResult started = mockMvc.perform(post(path)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+}
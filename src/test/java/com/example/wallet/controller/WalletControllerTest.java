@@ -0,0 +1,147 @@
+package com.example.wallet.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.wallet.model.Money;
+import com.example.wallet.service.TransactionService;
+import com.example.wallet.service.UserService;
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Conditional GETs against a running server, since response compression happens in Tomcat: balances carry a strong
+ * ETag and are answered 304 from their version alone, histories carry a weak one so they can be gzipped.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("inprocess")
+class WalletControllerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        userId = userService.createUser("etags", UUID.randomUUID() + "@example.com").getId();
+        transactionService.credit(userId, Money.of(new BigDecimal("10")), null);
+    }
+
+    @Test
+    void aStrictBalanceIsAnswered304FromItsVersionAlone() throws Exception {
+        statistics.clear();
+        HttpResponse<String> first = get("/api/wallet/" + userId + "?strict=true");
+        assertThat(first.statusCode()).isEqualTo(200);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        String etag = first.headers().firstValue(HttpHeaders.ETAG).orElseThrow();
+        assertThat(etag).matches("\"\\d+\"");
+        assertThat(first.headers().firstValue(HttpHeaders.CACHE_CONTROL)).hasValue("no-cache");
+        assertThat(JsonPath.<Number>read(first.body(), "$.balance").intValue()).isEqualTo(10);
+
+        statistics.clear();
+        HttpResponse<String> unchanged = get("/api/wallet/" + userId + "?strict=true", HttpHeaders.IF_NONE_MATCH, etag);
+        assertThat(unchanged.statusCode()).isEqualTo(304);
+        assertThat(unchanged.body()).isEmpty();
+        assertThat(unchanged.headers().firstValue(HttpHeaders.ETAG)).hasValue(etag);
+        // Only the version lookup; the balance is not read.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        // If-None-Match compares weakly, so the weak form of the tag matches too.
+        assertThat(get("/api/wallet/" + userId + "?strict=true", HttpHeaders.IF_NONE_MATCH, "W/" + etag).statusCode())
+                .isEqualTo(304);
+
+        transactionService.credit(userId, Money.of(new BigDecimal("5")), null);
+        HttpResponse<String> changed = get("/api/wallet/" + userId + "?strict=true", HttpHeaders.IF_NONE_MATCH, etag);
+        assertThat(changed.statusCode()).isEqualTo(200);
+        assertThat(changed.headers().firstValue(HttpHeaders.ETAG)).isPresent().get().isNotEqualTo(etag);
+        assertThat(JsonPath.<Number>read(changed.body(), "$.balance").intValue()).isEqualTo(15);
+    }
+
+    @Test
+    void aCachedBalanceIsAnswered304WithoutTouchingTheDatabase() throws Exception {
+        String etag = get("/api/wallet/" + userId).headers().firstValue(HttpHeaders.ETAG).orElseThrow();
+
+        statistics.clear();
+        assertThat(get("/api/wallet/" + userId, HttpHeaders.IF_NONE_MATCH, etag).statusCode()).isEqualTo(304);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void historyIsGzippedUnderAWeakETag() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            transactionService.credit(userId, Money.of(BigDecimal.ONE), null);
+        }
+
+        HttpResponse<byte[]> history = client.send(request("/api/transactions/" + userId)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip").build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertThat(history.statusCode()).isEqualTo(200);
+        assertThat(history.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        String etag = history.headers().firstValue(HttpHeaders.ETAG).orElseThrow();
+        assertThat(etag).matches("W/\"\\d+\"");
+        List<?> transactions = JsonPath.read(gunzip(history.body()), "$");
+        assertThat(transactions).hasSize(31);
+
+        assertThat(get("/api/transactions/" + userId, HttpHeaders.IF_NONE_MATCH, etag).statusCode()).isEqualTo(304);
+
+        // A strong ETag names the exact bytes, so Tomcat leaves the balance uncompressed.
+        HttpResponse<String> balance = client.send(request("/api/wallet/" + userId)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip").build(), HttpResponse.BodyHandlers.ofString());
+        assertThat(balance.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).isEmpty();
+    }
+
+    private HttpResponse<String> get(String path, String... headers) throws IOException, InterruptedException {
+        HttpRequest.Builder request = request(path);
+        if (headers.length > 0) {
+            request.headers(headers);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET();
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
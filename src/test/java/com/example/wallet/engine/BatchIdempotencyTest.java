@@ -0,0 +1,164 @@
+package com.example.wallet.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.wallet.exception.IdempotencyKeyReusedException;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.Transaction;
+import com.example.wallet.model.enums.TransactionType;
+import com.example.wallet.repository.WalletRepository;
+import com.example.wallet.service.Posting;
+import com.example.wallet.service.PostingResult;
+import com.example.wallet.service.TransactionService;
+import com.example.wallet.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Batch items that carry an idempotency key are posted at most once, like single credits and debits. Runs on the
+ * direct engine; {@link ShardedBatchIdempotencyTest} runs the same cases on the sharded one.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("inprocess")
+class BatchIdempotencyTest {
+
+    private static final int THREADS = 16;
+
+    private static final long UNIT = Money.of(BigDecimal.ONE);
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+
+    private Long userId;
+
+    @BeforeEach
+    void createUser() {
+        userId = userService.createUser("batch-keys", UUID.randomUUID() + "@example.com").getId();
+    }
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void aReplayedKeyReturnsTheOriginalTransaction() {
+        String key = UUID.randomUUID().toString();
+        List<PostingResult> first = ledgerEngine.applyBatch(List.of(
+                new Posting(userId, 5 * UNIT, TransactionType.CREDIT),
+                new Posting(userId, 3 * UNIT, TransactionType.CREDIT, key))).join();
+        List<PostingResult> retried = ledgerEngine.applyBatch(List.of(
+                new Posting(userId, 3 * UNIT, TransactionType.CREDIT, key),
+                new Posting(userId, 1 * UNIT, TransactionType.DEBIT))).join();
+
+        assertThat(first).allMatch(PostingResult::isSuccess);
+        assertThat(retried).allMatch(PostingResult::isSuccess);
+        assertThat(retried.get(0).transaction().getId()).isEqualTo(first.get(1).transaction().getId());
+        assertThat(balance()).isEqualTo(7 * UNIT);
+        assertThat(transactionService.getTransactionsForUser(userId).transactions()).hasSize(3);
+    }
+
+    @Test
+    void aRepeatedKeyWithinOneBatchPostsOnce() {
+        String key = UUID.randomUUID().toString();
+        List<PostingResult> results = ledgerEngine.applyBatch(List.of(
+                new Posting(userId, 2 * UNIT, TransactionType.CREDIT, key),
+                new Posting(userId, 2 * UNIT, TransactionType.CREDIT, key))).join();
+
+        assertThat(results).allMatch(PostingResult::isSuccess);
+        assertThat(results.get(1).transaction().getId()).isEqualTo(results.get(0).transaction().getId());
+        assertThat(balance()).isEqualTo(2 * UNIT);
+    }
+
+    @Test
+    void aKeyReusedForADifferentPostingFailsOnlyThatItem() {
+        String key = UUID.randomUUID().toString();
+        ledgerEngine.applyBatch(List.of(new Posting(userId, 10 * UNIT, TransactionType.CREDIT, key))).join();
+
+        List<PostingResult> results = ledgerEngine.applyBatch(List.of(
+                new Posting(userId, 4 * UNIT, TransactionType.CREDIT, key),
+                new Posting(userId, 10 * UNIT, TransactionType.DEBIT, key),
+                new Posting(userId, 1 * UNIT, TransactionType.CREDIT))).join();
+
+        assertThat(results.get(0).error()).isInstanceOf(IdempotencyKeyReusedException.class);
+        assertThat(results.get(1).error()).isInstanceOf(IdempotencyKeyReusedException.class);
+        assertThat(results.get(2).isSuccess()).isTrue();
+        assertThat(balance()).isEqualTo(11 * UNIT);
+    }
+
+    @Test
+    void aKeyPostedElsewhereLosesOnTheUniqueKeyAndReplaysTheWinner() {
+        String key = UUID.randomUUID().toString();
+        // Recorded without this node's guard seeing the key, as a concurrent request on another node would.
+        Transaction winner = transactionService.credit(userId, 6 * UNIT, key);
+        double conflictsBefore = conflictReplays();
+
+        List<PostingResult> results = ledgerEngine.applyBatch(List.of(
+                new Posting(userId, 6 * UNIT, TransactionType.CREDIT, key))).join();
+
+        assertThat(results.get(0).isSuccess()).isTrue();
+        assertThat(results.get(0).transaction().getId()).isEqualTo(winner.getId());
+        assertThat(conflictReplays()).isEqualTo(conflictsBefore + 1);
+        assertThat(balance()).isEqualTo(6 * UNIT);
+    }
+
+    @Test
+    void concurrentBatchesWithTheSameKeyPostOnce() throws Exception {
+        String key = UUID.randomUUID().toString();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<PostingResult>>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return ledgerEngine.applyBatch(List.of(new Posting(userId, 2 * UNIT, TransactionType.CREDIT, key))).join();
+            }));
+        }
+        start.countDown();
+
+        List<Long> ids = new ArrayList<>();
+        for (Future<List<PostingResult>> result : results) {
+            PostingResult posted = result.get(30, TimeUnit.SECONDS).get(0);
+            assertThat(posted.isSuccess()).isTrue();
+            ids.add(posted.transaction().getId());
+        }
+        assertThat(ids).containsOnly(ids.get(0));
+        assertThat(balance()).isEqualTo(2 * UNIT);
+        assertThat(transactionService.getTransactionsForUser(userId).transactions()).hasSize(1);
+    }
+
+    private long balance() {
+        return walletRepository.findBalanceByUserId(userId).orElseThrow().balance();
+    }
+
+    private double conflictReplays() {
+        return meterRegistry.get("wallet.idempotency.replayed").tag("source", "conflict").counter().count();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.wallet.engine;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/** {@link BatchIdempotencyTest} on the sharded engine, where a batch's postings are committed by the shards. */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "app.engine.mode=sharded"
+})
+@ActiveProfiles("inprocess")
+class ShardedBatchIdempotencyTest extends BatchIdempotencyTest {
+}
@@ -0,0 +1,179 @@
+package com.example.wallet.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.wallet.model.Money;
+import com.example.wallet.model.PendingHold;
+import com.example.wallet.model.Transaction;
+import com.example.wallet.model.WalletSlot;
+import com.example.wallet.repository.WalletRepository;
+import com.example.wallet.repository.WalletSlotRepository;
+import com.example.wallet.service.HoldService;
+import com.example.wallet.service.TransactionService;
+import com.example.wallet.service.UserService;
+import com.example.wallet.service.WalletService;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * A striped wallet's money is its row plus its slots; loading the wallet into a shard sweeps the slots into the row,
+ * and that must hold however the shard later drops the wallet. Holds released outside the shard must not leave it
+ * rejecting debits against a held amount that is gone. Cached reads must follow what the shards write.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "app.engine.mode=sharded",
+        "app.engine.shards=1",
+        "app.engine.cached-wallets-per-shard=1"
+})
+@ActiveProfiles("inprocess")
+class ShardedLedgerEngineTest {
+
+    private static final long HOLD_TTL_MS = 1_500;
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private WalletSlotRepository slotRepository;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Test
+    void sweptSlotsSurviveTheWalletBeingTrimmed() {
+        Long userId = stripedUserWithSlotCredits(100);
+        Long otherUserId = userService.createUser("other", UUID.randomUUID() + "@example.com").getId();
+
+        ledgerEngine.credit(userId, BigDecimal.ONE, null).join();
+        assertThat(slotTotal(userId)).isZero();
+        // With room for one wallet, loading another trims this one.
+        ledgerEngine.credit(otherUserId, BigDecimal.ONE, null).join();
+
+        assertThat(rowPlusSlots(userId)).isEqualTo(units(101));
+        ledgerEngine.debit(userId, new BigDecimal("101"), null).join();
+        assertThat(rowPlusSlots(userId)).isZero();
+    }
+
+    @Test
+    void sweptSlotsSurviveAFailedCommit() {
+        Long userId = stripedUserWithSlotCredits(50);
+        String key = UUID.randomUUID().toString();
+        ledgerEngine.credit(userId, BigDecimal.ONE, key).join();
+        Long otherUserId = userService.createUser("other", UUID.randomUUID() + "@example.com").getId();
+        ledgerEngine.credit(otherUserId, BigDecimal.ONE, null).join();
+        transactionService.credit(userId, units(25), null);
+
+        // The repeated key fails the commit that follows the reload, so the shard forgets the wallet again.
+        assertThatThrownBy(() -> ledgerEngine.credit(userId, new BigDecimal("7"), key).join());
+
+        assertThat(rowPlusSlots(userId)).isEqualTo(units(76));
+        assertThat(walletService.getBalance(userId, true)).isEqualByComparingTo("76");
+    }
+
+    @Test
+    void sweptSlotsSurviveAllPostingsFailing() {
+        Long userId = stripedUserWithSlotCredits(10);
+
+        // The debit is rejected in memory, so nothing is committed after the load.
+        assertThatThrownBy(() -> ledgerEngine.debit(userId, new BigDecimal("11"), null).join());
+        Long otherUserId = userService.createUser("other", UUID.randomUUID() + "@example.com").getId();
+        ledgerEngine.credit(otherUserId, BigDecimal.ONE, null).join();
+
+        assertThat(rowPlusSlots(userId)).isEqualTo(units(10));
+        assertThat(walletService.getBalance(userId, true)).isEqualByComparingTo("10");
+    }
+
+    @Test
+    void cachedReadsFollowShardWritesToAStripedWallet() {
+        Long userId = stripedUserWithSlotCredits(100);
+        walletService.getBalanceSnapshot(userId, false);
+
+        ledgerEngine.credit(userId, BigDecimal.ONE, null).join();
+        assertThat(walletService.getBalanceSnapshot(userId, false))
+                .isEqualTo(walletService.getBalanceSnapshot(userId, true));
+        ledgerEngine.debit(userId, BigDecimal.TEN, null).join();
+        assertThat(walletService.getBalanceSnapshot(userId, false))
+                .isEqualTo(walletService.getBalanceSnapshot(userId, true));
+        assertThat(walletService.getBalance(userId, false)).isEqualByComparingTo("91");
+    }
+
+    @Test
+    void aDebitCanSpendWhatAVoidedHoldReleased() {
+        Long userId = userService.createUser("void", UUID.randomUUID() + "@example.com").getId();
+        Transaction hold = holdCachedByTheShard(userId, null);
+
+        holdService.voidHold(userId, hold.getId());
+
+        ledgerEngine.debit(userId, new BigDecimal("80"), null).join();
+        assertThat(walletService.getBalance(userId, true)).isEqualByComparingTo("10");
+    }
+
+    @Test
+    void aDebitCanSpendWhatAnExpiredHoldReleased() throws InterruptedException {
+        Long userId = userService.createUser("expire", UUID.randomUUID() + "@example.com").getId();
+        Transaction hold = holdCachedByTheShard(userId, HOLD_TTL_MS);
+        Thread.sleep(HOLD_TTL_MS + 10);
+
+        // The expiry thread may get there first; either way the hold is released and the shard told.
+        holdService.expire(List.of(new PendingHold(hold.getId(), userId, hold.getExpiresAt())));
+
+        ledgerEngine.debit(userId, new BigDecimal("80"), null).join();
+        assertThat(walletService.getBalance(userId, true)).isEqualByComparingTo("10");
+    }
+
+    /**
+     * Credits 100 and holds 60 of it; a debit of 10 then makes the shard reload the wallet, so it caches 90 with 60
+     * held and would reject a debit of 80 until told the hold is gone.
+     */
+    private Transaction holdCachedByTheShard(Long userId, Long ttlMs) {
+        ledgerEngine.credit(userId, new BigDecimal("100"), null).join();
+        Transaction hold = holdService.authorize(userId, units(60), ttlMs, null);
+        ledgerEngine.debit(userId, BigDecimal.TEN, null).join();
+        assertThatThrownBy(() -> ledgerEngine.debit(userId, new BigDecimal("80"), null).join());
+        return hold;
+    }
+
+    /** A striped wallet whose slots hold {@code amount}, credited outside the engine as direct mode does. */
+    private Long stripedUserWithSlotCredits(long amount) {
+        Long userId = userService.createUser("striped", UUID.randomUUID() + "@example.com").getId();
+        walletService.stripe(userId, 4);
+        transactionService.credit(userId, units(amount), null);
+        assertThat(slotTotal(userId)).isEqualTo(units(amount));
+        return userId;
+    }
+
+    private long rowPlusSlots(Long userId) {
+        return Money.add(walletRepository.findByUserId(userId).orElseThrow().getBalance(), slotTotal(userId));
+    }
+
+    private long slotTotal(Long userId) {
+        Long walletId = walletService.getWalletId(userId);
+        return slotRepository.findAll().stream()
+                .filter(slot -> slot.getWalletId().equals(walletId))
+                .mapToLong(WalletSlot::getBalance)
+                .reduce(Money.ZERO, Money::add);
+    }
+
+    private static long units(long amount) {
+        return Money.of(BigDecimal.valueOf(amount));
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.wallet.engine;
+
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/** {@link TransferTest} on the sharded engine, where a transfer pauses the shards that own its wallets. */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "app.engine.mode=sharded"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles({"inprocess", "shards"})
+class ShardedTransferTest extends TransferTest {
+}
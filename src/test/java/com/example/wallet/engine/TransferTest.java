@@ -0,0 +1,220 @@
+package com.example.wallet.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import com.example.wallet.dto.TransactionResponse;
+import com.example.wallet.exception.InsufficientBalanceException;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.enums.TransactionType;
+import com.example.wallet.repository.WalletRepository;
+import com.example.wallet.service.ShardRouting;
+import com.example.wallet.service.Transfer;
+import com.example.wallet.service.TransactionService;
+import com.example.wallet.service.UserService;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Transfers on two database shards with the direct engine; {@link ShardedTransferTest} runs the same cases on the
+ * sharded engine. Both legs of a transfer live on one shard, so the users of each case share one.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureMockMvc
+@ActiveProfiles({"inprocess", "shards"})
+class TransferTest {
+
+    private static final int THREADS = 16;
+
+    private static final long UNIT = Money.of(BigDecimal.ONE);
+
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private ShardRouting shardRouting;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void transfersInOppositeDirectionsDoNotDeadlock() throws Exception {
+        Long[] users = usersOnOneShard(2);
+        Long a = users[0];
+        Long b = users[1];
+        transactionService.credit(a, 100 * UNIT, null);
+        transactionService.credit(b, 100 * UNIT, null);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Transfer>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            boolean forward = i % 2 == 0;
+            results.add(pool.submit(() -> {
+                start.await();
+                return forward
+                        ? ledgerEngine.transfer(a, b, BigDecimal.ONE).join()
+                        : ledgerEngine.transfer(b, a, BigDecimal.ONE).join();
+            }));
+        }
+        start.countDown();
+        for (Future<Transfer> result : results) {
+            // A deadlock would surface here as a timeout, or as a lock timeout failing the transfer.
+            result.get(30, TimeUnit.SECONDS);
+        }
+
+        assertThat(balance(a)).isEqualTo(100 * UNIT);
+        assertThat(balance(b)).isEqualTo(100 * UNIT);
+        assertLegsPairUp(a, b);
+    }
+
+    @Test
+    void bothLegsCommitOrNeither() throws Exception {
+        Long[] users = usersOnOneShard(2);
+        Long a = users[0];
+        Long b = users[1];
+        transactionService.credit(a, 10 * UNIT, null);
+
+        Transfer transfer = ledgerEngine.transfer(a, b, new BigDecimal("4")).join();
+        assertThat(transfer.outgoing().getLinkedTransactionId()).isEqualTo(transfer.incoming().getId());
+        assertThat(transfer.incoming().getLinkedTransactionId()).isEqualTo(transfer.outgoing().getId());
+
+        assertThatThrownBy(() -> ledgerEngine.transfer(a, b, new BigDecimal("7")).join())
+                .isInstanceOfAny(InsufficientBalanceException.class, CompletionException.class)
+                .satisfies(ex -> assertThat(ex instanceof CompletionException ? ex.getCause() : ex)
+                        .isInstanceOf(InsufficientBalanceException.class));
+        assertThat(legs(a, TransactionType.TRANSFER_OUT)).hasSize(1);
+        assertThat(legs(b, TransactionType.TRANSFER_IN)).hasSize(1);
+
+        // Racing transfers that drain the wallet: every one either moved the money with both legs or did nothing.
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                try {
+                    ledgerEngine.transfer(a, b, BigDecimal.ONE).join();
+                    return true;
+                } catch (InsufficientBalanceException | CompletionException ex) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                succeeded++;
+            }
+        }
+
+        assertThat(succeeded).isEqualTo(6);
+        assertThat(balance(a)).isZero();
+        assertThat(balance(b)).isEqualTo(10 * UNIT);
+        assertLegsPairUp(a, b);
+    }
+
+    @Test
+    void aTransferAcrossShardsIsRejectedWith422() throws Exception {
+        Long from = userService.createUser("from", UUID.randomUUID() + "@example.com").getId();
+        Long to;
+        do {
+            to = userService.createUser("to", UUID.randomUUID() + "@example.com").getId();
+        } while (shardRouting.shardOf(to) == shardRouting.shardOf(from));
+        transactionService.credit(from, 10 * UNIT, null);
+
+        MvcResult result = mockMvc.perform(post("/api/transactions/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fromUserId\":" + from + ",\"toUserId\":" + to + ",\"amount\":1}"))
+                .andReturn();
+        // The direct engine throws before returning a future; the sharded engine returns a failed one.
+        if (result.getRequest().isAsyncStarted()) {
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+        assertThat(result.getResponse().getStatus()).isEqualTo(422);
+
+        assertThat(balance(from)).isEqualTo(10 * UNIT);
+        assertThat(balance(to)).isZero();
+        assertThat(legs(from, TransactionType.TRANSFER_OUT)).isEmpty();
+    }
+
+    /** Every outgoing leg of either user has exactly one incoming leg on the other, of the same amount, and back. */
+    private void assertLegsPairUp(Long a, Long b) {
+        List<TransactionResponse> outgoing = Stream.concat(legs(a, TransactionType.TRANSFER_OUT).stream(),
+                legs(b, TransactionType.TRANSFER_OUT).stream()).toList();
+        Map<Long, TransactionResponse> incoming = Stream.concat(legs(a, TransactionType.TRANSFER_IN).stream(),
+                        legs(b, TransactionType.TRANSFER_IN).stream())
+                .collect(Collectors.toMap(TransactionResponse::getId, Function.identity()));
+
+        assertThat(incoming).hasSameSizeAs(outgoing);
+        for (TransactionResponse out : outgoing) {
+            TransactionResponse in = incoming.get(out.getLinkedTransactionId());
+            assertThat(in).as("incoming leg of %s", out.getId()).isNotNull();
+            assertThat(in.getLinkedTransactionId()).isEqualTo(out.getId());
+            assertThat(in.getUserId()).isNotEqualTo(out.getUserId());
+            assertThat(in.getAmount()).isEqualByComparingTo(out.getAmount());
+        }
+    }
+
+    private List<TransactionResponse> legs(Long userId, TransactionType type) {
+        return transactionService.getTransactionsForUser(userId).transactions().stream()
+                .filter(tx -> tx.getType() == type)
+                .toList();
+    }
+
+    private Long[] usersOnOneShard(int count) {
+        Long first = userService.createUser("transfer", UUID.randomUUID() + "@example.com").getId();
+        List<Long> users = new ArrayList<>(List.of(first));
+        while (users.size() < count) {
+            Long userId = userService.createUser("transfer", UUID.randomUUID() + "@example.com").getId();
+            if (shardRouting.shardOf(userId) == shardRouting.shardOf(first)) {
+                users.add(userId);
+            }
+        }
+        return users.toArray(Long[]::new);
+    }
+
+    private long balance(Long userId) {
+        try (ShardRouting.Binding binding = shardRouting.forUser(userId)) {
+            return walletRepository.findBalanceByUserId(userId).orElseThrow().balance();
+        }
+    }
+}
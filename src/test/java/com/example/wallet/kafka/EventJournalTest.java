@@ -0,0 +1,150 @@
+package com.example.wallet.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.wallet.model.enums.TransactionType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EventJournalTest {
+
+    private static final int RECORD_SIZE = EventJournal.HEADER_SIZE + TransactionEventCodec.V2_SIZE;
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void aCorruptLastRecordIsCutOffOnReopen() throws IOException {
+        try (EventJournal journal = open(3 * RECORD_SIZE, 8)) {
+            journal.appendAll(List.of(event(1), event(2), event(3)));
+        }
+        // Flip a payload byte of the third record, as a write interrupted by a crash could leave it.
+        flipByte(onlySegment(), 2 * RECORD_SIZE + EventJournal.HEADER_SIZE + 5);
+
+        try (EventJournal journal = open(3 * RECORD_SIZE, 8)) {
+            assertThat(journal.position()).isEqualTo(2 * RECORD_SIZE);
+            assertThat(replayedIds(journal, 0)).containsExactly(1L, 2L);
+
+            // The next append takes the cut record's place.
+            assertThat(journal.append(event(4))).isEqualTo(2 * RECORD_SIZE);
+            assertThat(replayedIds(journal, 0)).containsExactly(1L, 2L, 4L);
+        }
+    }
+
+    @Test
+    void aPartialLastRecordIsCutOffOnReopen() throws IOException {
+        try (EventJournal journal = open(4 * RECORD_SIZE, 8)) {
+            journal.appendAll(List.of(event(1), event(2)));
+        }
+        // A header whose payload never made it to disk.
+        try (FileChannel channel = FileChannel.open(onlySegment(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(EventJournal.HEADER_SIZE + 3)
+                    .putInt(TransactionEventCodec.V2_SIZE).putInt(0x5eed).put((byte) 1).flip(), 2 * RECORD_SIZE);
+        }
+
+        try (EventJournal journal = open(4 * RECORD_SIZE, 8)) {
+            assertThat(journal.position()).isEqualTo(2 * RECORD_SIZE);
+            journal.append(event(3));
+            assertThat(replayedIds(journal, 0)).containsExactly(1L, 2L, 3L);
+        }
+        try (EventJournal journal = open(4 * RECORD_SIZE, 8)) {
+            assertThat(replayedIds(journal, 0)).containsExactly(1L, 2L, 3L);
+        }
+    }
+
+    @Test
+    void replayResumesFromTheCheckpointAcrossASegmentRoll() throws IOException {
+        try (EventJournal journal = open(3 * RECORD_SIZE, 8)) {
+            long[] positions = journal.appendAll(List.of(event(1), event(2), event(3), event(4), event(5)));
+            journal.acknowledge(positions[0]);
+            journal.acknowledge(positions[1]);
+            journal.acknowledge(positions[3]);
+        }
+        assertThat(segments()).hasSize(2);
+
+        try (EventJournal journal = open(3 * RECORD_SIZE, 8)) {
+            // Acknowledged up to the first gap; the fourth event is replayed again behind the third.
+            assertThat(journal.acknowledgedPosition()).isEqualTo(2 * RECORD_SIZE);
+            assertThat(replayedIds(journal, journal.acknowledgedPosition())).containsExactly(3L, 4L, 5L);
+
+            journal.acknowledgeThrough(journal.position());
+            assertThat(journal.acknowledgedPosition()).isEqualTo(journal.position());
+        }
+        try (EventJournal journal = open(3 * RECORD_SIZE, 8)) {
+            assertThat(journal.acknowledgedPosition()).isEqualTo(5 * RECORD_SIZE);
+            assertThat(journal.oldestUnacknowledgedAge()).isZero();
+        }
+    }
+
+    @Test
+    void acknowledgedSegmentsArePrunedBeyondTheRetainedCount() throws IOException {
+        try (EventJournal journal = open(2 * RECORD_SIZE, 1)) {
+            long[] first = journal.appendAll(List.of(event(1), event(2)));
+            long[] second = journal.appendAll(List.of(event(3), event(4)));
+            // Rolling into a third segment cannot drop the first while it holds unacknowledged records.
+            journal.append(event(5));
+            assertThat(segments()).hasSize(3);
+
+            for (long position : first) {
+                journal.acknowledge(position);
+            }
+            journal.append(event(6));
+            journal.append(event(7));
+            assertThat(segments()).hasSize(3);
+            assertThat(journal.firstPosition()).isEqualTo(2 * RECORD_SIZE);
+
+            for (long position : second) {
+                journal.acknowledge(position);
+            }
+            journal.append(event(8));
+            journal.append(event(9));
+            assertThat(journal.firstPosition()).isEqualTo(4 * RECORD_SIZE);
+            assertThat(replayedIds(journal, journal.firstPosition())).containsExactly(5L, 6L, 7L, 8L, 9L);
+        }
+    }
+
+    private EventJournal open(int segmentBytes, int retainedSegments) throws IOException {
+        return new EventJournal(dir, segmentBytes, EventJournal.FsyncPolicy.ALWAYS, 100, retainedSegments);
+    }
+
+    private static List<Long> replayedIds(EventJournal journal, long from) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        journal.replay(from, 2, batch -> batch.forEach(event -> ids.add(event.getTransactionId())));
+        return ids;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        assertThat(segments()).hasSize(1);
+        return segments().get(0);
+    }
+
+    private static void flipByte(Path file, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, offset);
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) ~value.get(0)}), offset);
+        }
+    }
+
+    private static TransactionEvent event(long id) {
+        return new TransactionEvent(id, 10L, 20L, 1_000L * id, TransactionType.CREDIT,
+                Instant.now().truncatedTo(ChronoUnit.MILLIS));
+    }
+}
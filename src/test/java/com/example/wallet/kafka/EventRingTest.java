@@ -0,0 +1,215 @@
+package com.example.wallet.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class EventRingTest {
+
+    private static final long TIMEOUT_MS = 10_000;
+
+    private final List<EventRing<Long>> rings = new ArrayList<>();
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        pool.shutdownNow();
+        for (EventRing<Long> ring : rings) {
+            ring.shutdown(1_000);
+        }
+    }
+
+    @Test
+    void handlersSeeEveryEventInOrderAcrossManyWrapArounds() throws Exception {
+        EventRing<Long> ring = ring(8, 4, 5, TIMEOUT_MS);
+        List<Long> first = new CopyOnWriteArrayList<>();
+        List<Long> second = new CopyOnWriteArrayList<>();
+        ring.addHandler("first", first::addAll);
+        ring.addHandler("second", second::addAll);
+
+        for (long i = 0; i < 1_000; i++) {
+            ring.publish(i);
+        }
+        ring.shutdown(TIMEOUT_MS);
+
+        List<Long> expected = LongStream.range(0, 1_000).boxed().toList();
+        assertThat(first).isEqualTo(expected);
+        assertThat(second).isEqualTo(expected);
+    }
+
+    @Test
+    void concurrentProducersLoseNothingAndKeepTheirOwnOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 5_000;
+        EventRing<Long> ring = ring(64, 16, 5, TIMEOUT_MS);
+        List<Long> handled = Collections.synchronizedList(new ArrayList<>());
+        ring.addHandler("collect", handled::addAll);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * perProducer;
+            done.add(pool.submit(() -> {
+                start.await();
+                for (long i = 0; i < perProducer; i += 10) {
+                    long from = base + i;
+                    ring.publishAll(LongStream.range(from, from + 10).boxed().toList());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> producer : done) {
+            producer.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+        ring.shutdown(TIMEOUT_MS);
+
+        assertThat(handled).hasSize(producers * perProducer).doesNotHaveDuplicates();
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * perProducer;
+            assertThat(handled.stream().filter(e -> e >= base && e < base + perProducer).toList()).isSorted();
+        }
+    }
+
+    @Test
+    void eventsPublishedWhileAHandlerIsBusyArriveAsBatchesOfAtMostMaxBatch() throws Exception {
+        EventRing<Long> ring = ring(64, 4, 5, TIMEOUT_MS);
+        CountDownLatch busy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<List<Long>> batches = new CopyOnWriteArrayList<>();
+        ring.addHandler("batches", events -> {
+            batches.add(List.copyOf(events));
+            if (batches.size() == 1) {
+                busy.countDown();
+                await(release);
+            }
+        });
+
+        ring.publish(0L);
+        await(busy);
+        for (long i = 1; i <= 10; i++) {
+            ring.publish(i);
+        }
+        release.countDown();
+        ring.shutdown(TIMEOUT_MS);
+
+        assertThat(batches.get(0)).containsExactly(0L);
+        // Ten waiting events in batches of at most four.
+        assertThat(batches.subList(1, batches.size())).extracting(List::size).containsExactly(4, 4, 2);
+        assertThat(batches.stream().flatMap(List::stream).toList()).isEqualTo(LongStream.rangeClosed(0, 10).boxed().toList());
+    }
+
+    @Test
+    void shutdownDrainsWhatWasPublishedAndRejectsNewEvents() throws Exception {
+        EventRing<Long> ring = ring(16, 1, 5, TIMEOUT_MS);
+        List<Long> handled = new CopyOnWriteArrayList<>();
+        ring.addHandler("slow", events -> {
+            sleep(2);
+            handled.addAll(events);
+        });
+
+        for (long i = 0; i < 100; i++) {
+            ring.publish(i);
+        }
+        ring.shutdown(TIMEOUT_MS);
+
+        assertThat(handled).hasSize(100);
+        assertThatThrownBy(() -> ring.publish(100L)).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void aBatchThatKeepsFailingIsSkippedAfterMaxAttempts() throws Exception {
+        EventRing<Long> ring = ring(8, 1, 3, TIMEOUT_MS);
+        AtomicInteger calls = new AtomicInteger();
+        List<Long> handled = new CopyOnWriteArrayList<>();
+        ring.addHandler("poisoned", events -> {
+            if (events.contains(1L)) {
+                calls.incrementAndGet();
+                throw new IllegalStateException("cannot handle " + events);
+            }
+            handled.addAll(events);
+        });
+
+        // Past the ring's capacity: producers would wait for good on a handler retrying forever.
+        for (long i = 0; i < 20; i++) {
+            ring.publish(i);
+        }
+        ring.shutdown(TIMEOUT_MS);
+
+        assertThat(calls).hasValue(3);
+        assertThat(ring.skipped()).isEqualTo(1);
+        assertThat(handled).isEqualTo(LongStream.range(0, 20).filter(i -> i != 1).boxed().toList());
+    }
+
+    @Test
+    void aProducerGivesUpOnAFullRingWithoutLeavingAGap() throws Exception {
+        EventRing<Long> ring = ring(4, 4, 5, 200);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> handled = new CopyOnWriteArrayList<>();
+        ring.addHandler("stuck", events -> {
+            await(release);
+            handled.addAll(events);
+        });
+        for (long i = 0; i < 4; i++) {
+            ring.publish(i);
+        }
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> ring.publish(4L)).isInstanceOf(RejectedExecutionException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(200));
+
+        release.countDown();
+        ring.publish(5L);
+        ring.shutdown(TIMEOUT_MS);
+
+        assertThat(handled).containsExactly(0L, 1L, 2L, 3L, 5L);
+    }
+
+    @Test
+    void handlersCannotJoinOnceEventsWerePublished() {
+        EventRing<Long> ring = ring(8, 1, 5, TIMEOUT_MS);
+        ring.addHandler("early", events -> { });
+        ring.publish(0L);
+
+        assertThatThrownBy(() -> ring.addHandler("late", events -> { })).isInstanceOf(IllegalStateException.class);
+    }
+
+    private EventRing<Long> ring(int capacity, int maxBatch, int maxAttempts, long publishTimeoutMs) {
+        EventRing<Long> ring = new EventRing<>(capacity, EventRing.WaitStrategy.BLOCKING, maxBatch, 1, maxAttempts,
+                publishTimeoutMs);
+        rings.add(ring);
+        return ring;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
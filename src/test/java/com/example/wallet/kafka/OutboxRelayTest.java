@@ -0,0 +1,161 @@
+package com.example.wallet.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.wallet.model.OutboxEvent;
+import com.example.wallet.model.enums.TransactionType;
+import com.example.wallet.repository.OutboxEventRepository;
+import com.example.wallet.repository.OutboxLeaseRepository;
+import com.example.wallet.service.ShardRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class OutboxRelayTest {
+
+    private static final String TOPIC = "wallet-transactions";
+
+    private final OutboxEventRepository outbox = mock(OutboxEventRepository.class);
+    private final OutboxLeaseRepository leases = mock(OutboxLeaseRepository.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, TransactionEvent> kafkaTemplate = mock(KafkaTemplate.class);
+
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new OutboxRelay(outbox, kafkaTemplate, leases, new ShardRouting(false, List.of(), 1),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(relay, "transactionTopic", TOPIC);
+        ReflectionTestUtils.setField(relay, "batchSize", 500);
+        ReflectionTestUtils.setField(relay, "sendTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(relay, "leaseMs", 60_000L);
+        when(leases.renew(anyString(), anyString(), any(), any())).thenReturn(1);
+    }
+
+    @Test
+    void leavesAUsersLaterRowsUnsentAfterItsFirstFailure() {
+        when(outbox.findUnsent(any(Limit.class))).thenReturn(List.of(row(1, 10), row(2, 20), row(3, 10), row(4, 20)));
+        when(kafkaTemplate.send(eq(TOPIC), eq("10"), any())).thenReturn(
+                CompletableFuture.failedFuture(new IllegalStateException("broker down")), acknowledged());
+        when(kafkaTemplate.send(eq(TOPIC), eq("20"), any())).thenReturn(acknowledged());
+
+        relay.relay();
+
+        assertThat(markedSent()).containsExactly(2L, 4L);
+    }
+
+    @Test
+    void relaysNothingWhileAnotherNodeHoldsTheLease() {
+        when(leases.renew(anyString(), anyString(), any(), any())).thenReturn(0);
+        when(leases.existsById("outbox-relay")).thenReturn(true);
+
+        relay.relay();
+
+        verify(outbox, never()).findUnsent(any(Limit.class));
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any());
+    }
+
+    @Test
+    void createsTheLeaseOnFirstUseAndBacksOffIfAnotherNodeWon() {
+        when(leases.renew(anyString(), anyString(), any(), any())).thenReturn(0);
+        when(leases.create(anyString(), anyString(), any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        relay.relay();
+
+        verify(leases).create(eq("outbox-relay"), anyString(), any());
+        verify(outbox, never()).findUnsent(any(Limit.class));
+    }
+
+    @Test
+    void aStalledProducerHoldsTheBatchForOneSendTimeoutInTotal() {
+        ReflectionTestUtils.setField(relay, "sendTimeoutMs", 300L);
+        when(outbox.findUnsent(any(Limit.class))).thenReturn(
+                LongStream.rangeClosed(1, 10).mapToObj(id -> row(id, id)).toList());
+        // Accepted by the producer but never acknowledged, as while the broker is unreachable.
+        when(kafkaTemplate.send(eq(TOPIC), anyString(), any())).thenAnswer(invocation -> new CompletableFuture<>());
+
+        long started = System.nanoTime();
+        relay.relay();
+
+        // Waiting out the timeout per record would take ten times as long.
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofMillis(1500));
+        verify(outbox, never()).markSent(anyCollection(), any());
+    }
+
+    @Test
+    void rowsAcknowledgedByTheDeadlineAreMarkedSentAroundAStalledOne() {
+        ReflectionTestUtils.setField(relay, "sendTimeoutMs", 200L);
+        when(outbox.findUnsent(any(Limit.class))).thenReturn(List.of(row(1, 10), row(2, 20), row(3, 30)));
+        when(kafkaTemplate.send(eq(TOPIC), eq("10"), any())).thenReturn(acknowledged());
+        when(kafkaTemplate.send(eq(TOPIC), eq("20"), any())).thenReturn(new CompletableFuture<>());
+        when(kafkaTemplate.send(eq(TOPIC), eq("30"), any())).thenReturn(acknowledged());
+
+        relay.relay();
+
+        assertThat(markedSent()).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void refusesToStartWithALeaseShorterThanABatchCanTake() {
+        @SuppressWarnings("unchecked")
+        ProducerFactory<String, TransactionEvent> producerFactory = mock(ProducerFactory.class);
+        when(kafkaTemplate.getProducerFactory()).thenReturn(producerFactory);
+
+        // Without max.block.ms the producer's 60 s default applies: 1 s + 60 s does not fit in a 60 s lease.
+        assertThatThrownBy(relay::checkLeaseCoversABatch)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("app.outbox.lease-ms");
+
+        when(producerFactory.getConfigurationProperties()).thenReturn(Map.of(ProducerConfig.MAX_BLOCK_MS_CONFIG, "10000"));
+        relay.checkLeaseCoversABatch();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> markedSent() {
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(outbox).markSent(ids.capture(), any());
+        return List.copyOf(ids.getValue());
+    }
+
+    private static CompletableFuture<SendResult<String, TransactionEvent>> acknowledged() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static OutboxEvent row(long id, long userId) {
+        return OutboxEvent.builder()
+                .id(id)
+                .transactionId(id)
+                .userId(userId)
+                .walletId(userId)
+                .amount(10_000)
+                .type(TransactionType.CREDIT)
+                .eventTimestamp(Instant.now())
+                .createdAt(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.wallet.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.wallet.model.enums.TransactionStatus;
+import com.example.wallet.model.enums.TransactionType;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Version 2 carries the status and the publishing node; version 1 records, still in topics and journals, keep
+ * decoding as postings of an unknown node.
+ */
+class TransactionEventCodecTest {
+
+    private static final Instant TIMESTAMP = Instant.parse("2026-10-18T08:00:00.123456789Z");
+
+    @Test
+    void aHoldEventRoundTripsWithItsStatusAndNode() {
+        TransactionEvent event = new TransactionEvent(11L, 22L, 33L, 44_000L, TransactionType.DEBIT, TIMESTAMP,
+                TransactionStatus.VOIDED, 31);
+
+        byte[] encoded = TransactionEventCodec.encode(event);
+        TransactionEvent decoded = TransactionEventCodec.decode(encoded);
+
+        assertThat(encoded).hasSize(TransactionEventCodec.V2_SIZE);
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(event);
+        assertThat(decoded.isPosted()).isFalse();
+    }
+
+    @Test
+    void anUnknownNodeStaysUnknown() {
+        TransactionEvent event = new TransactionEvent(11L, 22L, 33L, 44_000L, TransactionType.CREDIT, TIMESTAMP);
+
+        assertThat(TransactionEventCodec.decode(TransactionEventCodec.encode(event)).getNodeId()).isNull();
+    }
+
+    @Test
+    void versionOneDecodesAsAPostingOfAnUnknownNode() {
+        ByteBuffer v1 = ByteBuffer.allocate(TransactionEventCodec.V1_SIZE)
+                .put(TransactionEventCodec.VERSION_1)
+                .put((byte) TransactionType.CREDIT.ordinal())
+                .putLong(11L)
+                .putLong(22L)
+                .putLong(33L)
+                .put((byte) 4)
+                .putLong(44_000L)
+                .putLong(TIMESTAMP.getEpochSecond() * 1_000_000_000L + TIMESTAMP.getNano());
+
+        TransactionEvent decoded = TransactionEventCodec.decode(v1.array());
+
+        assertThat(decoded.getAmount()).isEqualTo(44_000L);
+        assertThat(decoded.getTimestamp()).isEqualTo(TIMESTAMP);
+        assertThat(decoded.getStatus()).isEqualTo(TransactionStatus.SUCCESS);
+        assertThat(decoded.getNodeId()).isNull();
+        assertThat(decoded.isPosted()).isTrue();
+    }
+}
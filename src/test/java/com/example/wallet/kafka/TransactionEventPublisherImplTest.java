@@ -0,0 +1,150 @@
+package com.example.wallet.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.wallet.model.enums.TransactionType;
+import com.example.wallet.model.id.Snowflake;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class TransactionEventPublisherImplTest {
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, TransactionEvent> kafkaTemplate = mock(KafkaTemplate.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TransactionEventPublisherImpl publisher;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<EventJournal> noJournal = mock(ObjectProvider.class);
+        publisher = new TransactionEventPublisherImpl(kafkaTemplate, noJournal, Snowflake.forNode(3), meterRegistry);
+        ReflectionTestUtils.setField(publisher, "transactionTopic", "wallet-transactions");
+    }
+
+    @Test
+    void timesAcknowledgedAndRejectedSendsAndCountsFailures() {
+        when(kafkaTemplate.send(anyString(), eq("1"), any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(kafkaTemplate.send(anyString(), eq("2"), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        publisher.publish(event(1));
+        publisher.publishAll(List.of(event(1), event(2)));
+
+        assertThat(meterRegistry.get("wallet.events.publish").tag("outcome", "success").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("wallet.events.publish").tag("outcome", "failure").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("wallet.events.publish.failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void countsSendsTheProducerRefuses() {
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenThrow(new IllegalStateException("no metadata"));
+
+        try {
+            publisher.publish(event(1));
+        } catch (IllegalStateException expected) {
+            // Outside a transaction the send runs, and fails, in the caller.
+        }
+
+        assertThat(meterRegistry.get("wallet.events.publish.failed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void stampsEventsWithThisNode() {
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        publisher.publish(event(1));
+        publisher.publishAll(List.of(event(2)));
+
+        verify(kafkaTemplate).send(anyString(), eq("1"), argThat(event -> event.getNodeId() == 3));
+        verify(kafkaTemplate).send(anyString(), eq("2"), argThat(event -> event.getNodeId() == 3));
+    }
+
+    @Test
+    void journalsBeforeTheCommitAndSendsAfterIt() {
+        EventJournal journal = mock(EventJournal.class);
+        when(journal.appendAll(any())).thenReturn(new long[]{5});
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        TransactionEventPublisherImpl journaled = journaled(journal);
+
+        inTransaction(() -> {
+            journaled.publish(event(1));
+            synchronizations().forEach(sync -> sync.beforeCommit(false));
+            verify(journal).appendAll(any());
+            verify(kafkaTemplate, never()).send(anyString(), anyString(), any());
+            synchronizations().forEach(TransactionSynchronization::afterCommit);
+            synchronizations().forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        });
+
+        verify(kafkaTemplate).send(anyString(), eq("1"), any());
+        verify(journal).acknowledge(5);
+    }
+
+    @Test
+    void aFailedAppendFailsTheCommitAndRolledBackEventsAreNotReplayed() {
+        EventJournal journal = mock(EventJournal.class);
+        when(journal.appendAll(any())).thenThrow(new IllegalStateException("disk full")).thenReturn(new long[]{6});
+        TransactionEventPublisherImpl journaled = journaled(journal);
+
+        inTransaction(() -> {
+            journaled.publishAll(List.of(event(1)));
+            assertThatThrownBy(() -> synchronizations().forEach(sync -> sync.beforeCommit(false)))
+                    .hasMessage("disk full");
+        });
+        inTransaction(() -> {
+            journaled.publishAll(List.of(event(2)));
+            synchronizations().forEach(sync -> sync.beforeCommit(false));
+            synchronizations().forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        });
+
+        verify(journal).acknowledge(6);
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private TransactionEventPublisherImpl journaled(EventJournal journal) {
+        ObjectProvider<EventJournal> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(journal);
+        TransactionEventPublisherImpl journaled =
+                new TransactionEventPublisherImpl(kafkaTemplate, provider, Snowflake.forNode(3), meterRegistry);
+        ReflectionTestUtils.setField(journaled, "transactionTopic", "wallet-transactions");
+        return journaled;
+    }
+
+    private static void inTransaction(Runnable body) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            body.run();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static List<TransactionSynchronization> synchronizations() {
+        return TransactionSynchronizationManager.getSynchronizations();
+    }
+
+    private static TransactionEvent event(long userId) {
+        return new TransactionEvent(userId * 100, userId, userId, 10_000, TransactionType.CREDIT, Instant.now());
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.wallet.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// The slice leaves out IdConfig, which normally hands Hibernate the node id.
+@DataJpaTest(properties = {"spring.jpa.show-sql=false", "spring.jpa.properties.app.id.node-id=0"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxLeaseRepositoryTest {
+
+    @Autowired
+    private OutboxLeaseRepository leases;
+
+    @Test
+    void onlyTheOwnerRenewsUntilTheLeaseLapses() {
+        Instant now = Instant.now();
+        String name = "lease-" + now.toEpochMilli();
+        assertThat(leases.create(name, "a", now.plusSeconds(60))).isEqualTo(1);
+        assertThatThrownBy(() -> leases.create(name, "b", now.plusSeconds(60)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        assertThat(leases.renew(name, "b", now, now.plusSeconds(60))).isZero();
+        assertThat(leases.renew(name, "a", now, now.plusSeconds(60))).isEqualTo(1);
+
+        // Once "a" stops renewing, "b" takes over and "a" is locked out.
+        Instant later = now.plusSeconds(61);
+        assertThat(leases.renew(name, "b", later, later.plusSeconds(60))).isEqualTo(1);
+        assertThat(leases.renew(name, "a", later, later.plusSeconds(60))).isZero();
+        assertThat(leases.findById(name)).hasValueSatisfying(lease -> assertThat(lease.getOwner()).isEqualTo("b"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.wallet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.wallet.exception.ServiceOverloadedException;
+import com.example.wallet.model.enums.TransactionType;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Reads that take a connection without being {@code @Transactional} still wait for a slot, so they cannot pile up
+ * on the connection pool once no thread pool bounds them.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "app.admission.enabled=true",
+        "app.admission.max-concurrent=2",
+        "app.admission.max-wait-ms=20"
+})
+@ActiveProfiles("inprocess")
+class AdmissionLimiterTest {
+
+    @Autowired
+    private AdmissionLimiter admissionLimiter;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private IdempotencyGuard idempotencyGuard;
+
+    @Test
+    void nonTransactionalReadsAreRejectedWhileEverySlotIsTaken() {
+        Long userId = userService.createUser("admission", UUID.randomUUID() + "@example.com").getId();
+        Semaphore permits = (Semaphore) ReflectionTestUtils.getField(admissionLimiter, "permits");
+
+        permits.acquireUninterruptibly(2);
+        try {
+            assertThatThrownBy(() -> walletService.getBalanceSnapshot(userId, false))
+                    .isInstanceOf(ServiceOverloadedException.class);
+            assertThatThrownBy(() -> walletService.getHistoryVersion(userId))
+                    .isInstanceOf(ServiceOverloadedException.class);
+            assertThatThrownBy(() -> walletService.getWalletId(userId))
+                    .isInstanceOf(ServiceOverloadedException.class);
+            assertThatThrownBy(() -> idempotencyGuard.execute(
+                    new Posting(userId, 1, TransactionType.CREDIT, "key"), posting -> null))
+                    .isInstanceOf(ServiceOverloadedException.class);
+        } finally {
+            permits.release(2);
+        }
+
+        assertThat(walletService.getBalanceSnapshot(userId, false).balance()).isZero();
+        assertThat(permits.availablePermits()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.wallet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.wallet.exception.InsufficientBalanceException;
+import com.example.wallet.kafka.TransactionEvent;
+import com.example.wallet.kafka.WalletBalanceCacheRefresher;
+import com.example.wallet.model.BalanceSnapshot;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.PendingHold;
+import com.example.wallet.model.Transaction;
+import com.example.wallet.model.enums.TransactionType;
+import com.example.wallet.model.id.Snowflake;
+import com.example.wallet.repository.WalletRepository;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * After every kind of write, a cached read must return what the database holds.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("inprocess")
+class BalanceCacheFreshnessTest {
+
+    private static final long ONE = Money.of(BigDecimal.ONE);
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private BalanceUpdateHub balanceUpdates;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long userId;
+
+    @BeforeEach
+    void createUser() {
+        userId = userService.createUser("cache", UUID.randomUUID() + "@example.com").getId();
+        transactionService.credit(userId, 100 * ONE, null);
+        // Warm the cache, so a write that fails to update it leaves a stale entry behind.
+        walletService.getBalanceSnapshot(userId, false);
+    }
+
+    @Test
+    void readAfterCreditDebitTransferAndBatch() {
+        transactionService.credit(userId, 5 * ONE, null);
+        assertCachedMatchesDatabase();
+
+        transactionService.debit(userId, 7 * ONE, null);
+        assertCachedMatchesDatabase();
+
+        Long other = userService.createUser("other", UUID.randomUUID() + "@example.com").getId();
+        walletService.getBalanceSnapshot(other, false);
+        transactionService.transfer(userId, other, 10 * ONE);
+        assertCachedMatchesDatabase();
+        assertCachedMatchesDatabase(other);
+
+        transactionService.applyBatch(List.of(new Posting(userId, 3 * ONE, TransactionType.CREDIT),
+                new Posting(userId, ONE, TransactionType.DEBIT)));
+        assertCachedMatchesDatabase();
+    }
+
+    @Test
+    void readAfterHoldCaptureVoidAndExpiry() throws InterruptedException {
+        Transaction captured = holdService.authorize(userId, 10 * ONE, null, null);
+        assertCachedMatchesDatabase();
+        holdService.capture(userId, captured.getId());
+        assertCachedMatchesDatabase();
+
+        Transaction voided = holdService.authorize(userId, 10 * ONE, null, null);
+        holdService.voidHold(userId, voided.getId());
+        assertCachedMatchesDatabase();
+
+        Transaction expiring = holdService.authorize(userId, 10 * ONE, 1L, null);
+        assertThat(walletService.getBalanceSnapshot(userId, false).available()).isEqualTo(80 * ONE);
+        Thread.sleep(5);
+        assertThat(holdService.expire(List.of(new PendingHold(expiring.getId(), userId, expiring.getExpiresAt()))))
+                .isEqualTo(1);
+        assertCachedMatchesDatabase();
+        assertThat(walletService.getBalanceSnapshot(userId, false).available()).isEqualTo(90 * ONE);
+    }
+
+    @Test
+    void readAfterStripedCredits() {
+        walletService.stripe(userId, 4);
+        for (int i = 0; i < 5; i++) {
+            transactionService.credit(userId, ONE, null);
+            assertCachedMatchesDatabase();
+        }
+        // The debit sweeps the slots into the row.
+        transactionService.debit(userId, 104 * ONE, null);
+        assertCachedMatchesDatabase();
+        assertThat(walletService.getBalanceSnapshot(userId, false).balance()).isEqualTo(ONE);
+    }
+
+    @Test
+    void readAfterFailedCommits() {
+        assertThatThrownBy(() -> transactionService.debit(userId, 1000 * ONE, null))
+                .isInstanceOf(InsufficientBalanceException.class);
+        assertCachedMatchesDatabase();
+
+        // The second credit updates the wallet row, then fails on the idempotency key's unique constraint at commit.
+        transactionService.credit(userId, ONE, "dup-" + userId);
+        assertThatThrownBy(() -> transactionService.credit(userId, ONE, "dup-" + userId))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertCachedMatchesDatabase();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            transactionService.credit(userId, 50 * ONE, null);
+            status.setRollbackOnly();
+        });
+        assertCachedMatchesDatabase();
+        assertThat(walletService.getBalanceSnapshot(userId, false).balance()).isEqualTo(101 * ONE);
+    }
+
+    @Test
+    void readAfterAWriteOnAnotherNode() {
+        // Stands in for another node's write: the database changes without this node's cache hearing of it.
+        transactionTemplate.executeWithoutResult(status -> walletRepository.credit(userId, 20 * ONE));
+        assertThat(walletService.getBalanceSnapshot(userId, false).balance()).isEqualTo(100 * ONE);
+
+        Snowflake thisNode = Snowflake.forNode(0);
+        WalletBalanceCacheRefresher refresher = new WalletBalanceCacheRefresher(walletService, balanceUpdates, thisNode);
+        Long walletId = walletService.getWalletId(userId);
+        TransactionEvent event = new TransactionEvent(thisNode.nextId(), userId, walletId, 20 * ONE,
+                TransactionType.CREDIT, Instant.now());
+
+        // What this node published itself is already in its cache.
+        refresher.onEvents(List.of(event.publishedBy(0)));
+        assertThat(walletService.getBalanceSnapshot(userId, false).balance()).isEqualTo(100 * ONE);
+
+        // An id drawn here but published elsewhere, as when another node captures a hold this node placed.
+        refresher.onEvents(List.of(event.publishedBy(7)));
+        assertCachedMatchesDatabase();
+    }
+
+    private void assertCachedMatchesDatabase() {
+        assertCachedMatchesDatabase(userId);
+    }
+
+    /** The cached read goes first: a strict read stores what it read in the cache. */
+    private void assertCachedMatchesDatabase(Long user) {
+        BalanceSnapshot cached = walletService.getBalanceSnapshot(user, false);
+        BalanceSnapshot database = walletService.getBalanceSnapshot(user, true);
+        assertThat(cached).isEqualTo(database);
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.wallet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.wallet.dto.BalanceUpdateResponse;
+import com.example.wallet.exception.GlobalExceptionHandler;
+import com.example.wallet.exception.TooManySubscribersException;
+import com.example.wallet.model.BalanceSnapshot;
+import com.example.wallet.model.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Drives the hub without a server: flushes are triggered by the test rather than the scheduler, and each stream's
+ * emitter is a {@link Client} that records its pushes and can be made to hang in a send.
+ */
+class BalanceUpdateHubTest {
+
+    private static final Long USER = 1L;
+    private static final Long OTHER = 2L;
+    private static final long TIMEOUT_MS = 5_000;
+    private static final long SEND_TIMEOUT_MS = 100;
+
+    private final WalletService walletService = mock(WalletService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Queue<Client> nextClients = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private BalanceUpdateHub hub;
+
+    @BeforeEach
+    void setUp() {
+        // Intervals long enough that the scheduler never flushes or heartbeats on its own during a test.
+        hub = new BalanceUpdateHub(walletService, meterRegistry, 3_600_000, 3_600_000, 2) {
+            @Override
+            SseEmitter newEmitter() {
+                Client next = nextClients.poll();
+                return next != null ? next : new Client(null);
+            }
+        };
+        ReflectionTestUtils.setField(hub, "maxSubscribers", 20_000);
+        ReflectionTestUtils.setField(hub, "timeoutMs", 60_000L);
+        ReflectionTestUtils.setField(hub, "sendTimeoutMs", SEND_TIMEOUT_MS);
+        when(walletService.getBalanceSnapshot(eq(USER), anyBoolean())).thenReturn(snapshot(USER, 100, 1));
+        when(walletService.getBalanceSnapshot(eq(OTHER), anyBoolean())).thenReturn(snapshot(OTHER, 500, 1));
+    }
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        hub.shutdown();
+    }
+
+    @Test
+    void aBurstOfCommitsReachesASubscriberAsOnePushOfTheNewestBalance() throws Exception {
+        Client client = subscribe(USER);
+        assertPush(awaitPush(client), 100, 0);
+
+        for (long version = 2; version <= 51; version++) {
+            hub.onBalanceChanged(new WalletBalanceChangedEvent(USER, units(98 + version), 0, version));
+        }
+        // A commit reporting late must not take the pushed balance back.
+        hub.onBalanceChanged(new WalletBalanceChangedEvent(USER, units(7), 0, 3L));
+
+        assertPush(awaitPush(client), 149, 49);
+        assertNoPush(client);
+        assertThat(meterRegistry.get("wallet.updates.pushed").counter().count()).isEqualTo(2);
+        // Only the first push read the balance; the burst carried its own.
+        verify(walletService, times(1)).getBalanceSnapshot(eq(USER), anyBoolean());
+    }
+
+    @Test
+    void aSubscriberStuckInASendIsEvictedWithoutHoldingUpTheOthers() throws Exception {
+        Client stuck = subscribe(USER, new Client(release));
+        Client healthy = subscribe(USER);
+        assertPush(awaitPush(healthy), 100, 0);
+        assertThat(stuck.sending.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+
+        Thread.sleep(2 * SEND_TIMEOUT_MS);
+        hub.onBalanceChanged(new WalletBalanceChangedEvent(USER, units(120), 0, 2L));
+        assertPush(awaitPush(healthy), 120, 20);
+
+        assertThat(meterRegistry.get("wallet.updates.evicted").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("wallet.updates.subscribers").gauge().value()).isEqualTo(1);
+        assertThat(hub.isWatched(USER)).isTrue();
+
+        // The evicted stream is closed once its send returns, by the sender rather than the flush.
+        assertThat(stuck.completed).isFalse();
+        release.countDown();
+        assertThat(stuck.completion.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(healthy.completed).isFalse();
+    }
+
+    @Test
+    void subscribersBeyondTheCapAreRefusedWith503UntilOneIsEvicted() throws Exception {
+        ReflectionTestUtils.setField(hub, "maxSubscribers", 2);
+        subscribe(USER, new Client(release));
+        subscribe(USER);
+
+        assertThatThrownBy(() -> hub.subscribe(OTHER)).isInstanceOf(TooManySubscribersException.class)
+                .satisfies(ex -> {
+                    ResponseEntity<?> response = new GlobalExceptionHandler().handleTooManySubscribers(
+                            (TooManySubscribersException) ex, new MockHttpServletRequest("GET", "/api/wallet/2/updates"));
+                    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                    assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+                });
+        assertThat(hub.isWatched(OTHER)).isFalse();
+
+        flush();
+        Thread.sleep(2 * SEND_TIMEOUT_MS);
+        flush();
+
+        Client other = subscribe(OTHER);
+        assertPush(awaitPush(other), 500, 0);
+        assertThat(meterRegistry.get("wallet.updates.subscribers").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void aStaleFeedIsReadAgainBeforeItsNextPushAndRetriedWhileTheReadFails() throws Exception {
+        when(walletService.getBalanceSnapshot(eq(USER), anyBoolean()))
+                .thenReturn(snapshot(USER, 100, 1))
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenReturn(snapshot(USER, 130, 3));
+        Client client = subscribe(USER);
+        assertPush(awaitPush(client), 100, 0);
+
+        // A slot credit carries no balance, so the feed has to read it.
+        hub.onStripedCredit(new StripedWalletCreditedEvent(USER));
+        flush();
+        assertThat(client.pushes.poll(50, TimeUnit.MILLISECONDS)).isNull();
+
+        assertPush(awaitPush(client), 130, 30);
+        verify(walletService, times(3)).getBalanceSnapshot(eq(USER), anyBoolean());
+
+        // The read saw version 3; an older commit reported afterwards is not pushed.
+        hub.onBalanceChanged(new WalletBalanceChangedEvent(USER, units(120), 0, 2L));
+        assertNoPush(client);
+
+        // Users nobody follows are not read.
+        hub.markStale(List.of(OTHER));
+        flush();
+        verify(walletService, never()).getBalanceSnapshot(eq(OTHER), anyBoolean());
+    }
+
+    private Client subscribe(Long userId) {
+        return subscribe(userId, new Client(null));
+    }
+
+    private Client subscribe(Long userId, Client client) {
+        nextClients.add(client);
+        assertThat(hub.subscribe(userId)).isSameAs(client);
+        return client;
+    }
+
+    private void flush() {
+        ReflectionTestUtils.invokeMethod(hub, "flush");
+    }
+
+    /** Flushes until the client receives a push; a flush finding the client still busy defers to the next one. */
+    private BalanceUpdateResponse awaitPush(Client client) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        while (System.nanoTime() < deadline) {
+            flush();
+            BalanceUpdateResponse push = client.pushes.poll(10, TimeUnit.MILLISECONDS);
+            if (push != null) {
+                return push;
+            }
+        }
+        throw new AssertionError("no push within " + TIMEOUT_MS + " ms");
+    }
+
+    private void assertNoPush(Client client) throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            flush();
+            assertThat(client.pushes.poll(10, TimeUnit.MILLISECONDS)).isNull();
+        }
+    }
+
+    private static void assertPush(BalanceUpdateResponse push, long balance, long delta) {
+        assertThat(push.getBalance()).isEqualByComparingTo(BigDecimal.valueOf(balance));
+        assertThat(push.getDelta()).isEqualByComparingTo(BigDecimal.valueOf(delta));
+    }
+
+    private static BalanceSnapshot snapshot(Long userId, long balance, long version) {
+        return new BalanceSnapshot(userId, units(balance), 0, version);
+    }
+
+    private static long units(long amount) {
+        return Money.of(BigDecimal.valueOf(amount));
+    }
+
+    /** A stream's client: records the balances pushed to it and, given a latch, hangs in every send until it opens. */
+    private static final class Client extends SseEmitter {
+
+        private final BlockingQueue<BalanceUpdateResponse> pushes = new LinkedBlockingQueue<>();
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch completion = new CountDownLatch(1);
+        private final CountDownLatch release;
+        private volatile boolean completed;
+
+        private Client(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            if (release != null) {
+                try {
+                    release.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted", ex);
+                }
+            }
+            for (DataWithMediaType data : builder.build()) {
+                if (data.getData() instanceof BalanceUpdateResponse push) {
+                    pushes.add(push);
+                }
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+            completion.countDown();
+            super.complete();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.wallet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.wallet.exception.InsufficientBalanceException;
+import com.example.wallet.model.Money;
+import com.example.wallet.repository.WalletRepository;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("inprocess")
+class ConcurrentDebitTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void parallelDebitsNeverOverdrawAndLeaveTheExactRemainder() throws Exception {
+        Long userId = userService.createUser("debits", UUID.randomUUID() + "@example.com").getId();
+        transactionService.credit(userId, Money.of(new BigDecimal("100")), null);
+
+        // 3.00 goes into 100.00 33 times, so exactly 33 of the 200 debits may succeed.
+        long amount = Money.of(new BigDecimal("3"));
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                try {
+                    transactionService.debit(userId, amount, null);
+                    return true;
+                } catch (InsufficientBalanceException ex) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                succeeded++;
+            }
+        }
+        assertThat(succeeded).isEqualTo(33);
+        assertThat(walletRepository.findBalanceByUserId(userId).orElseThrow().balance())
+                .isEqualTo(Money.of(new BigDecimal("1")));
+    }
+
+    @Test
+    void parallelCreditsAndDebitsAddUp() throws Exception {
+        Long userId = userService.createUser("mixed", UUID.randomUUID() + "@example.com").getId();
+        long unit = Money.of(BigDecimal.ONE);
+        transactionService.credit(userId, 50 * unit, null);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            boolean credit = i % 2 == 0;
+            results.add(pool.submit(() -> {
+                start.await();
+                return credit ? transactionService.credit(userId, unit, null) : transactionService.debit(userId, unit, null);
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+
+        // The opening 50.00 covers all 50 debits in any interleaving, so every posting must have applied.
+        assertThat(walletRepository.findBalanceByUserId(userId).orElseThrow().balance()).isEqualTo(50 * unit);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.wallet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.wallet.model.Money;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * History reads are DTO projections: the statements they run, and the entities they load, must not grow with the
+ * number of transactions returned.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("inprocess")
+class HistoryQueryCountTest {
+
+    private static final long ONE = Money.of(BigDecimal.ONE);
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        userId = userService.createUser("history", UUID.randomUUID() + "@example.com").getId();
+    }
+
+    @Test
+    void fullHistoryCostsTheSameForFiveAndTwoHundredTransactions() {
+        post(5);
+        Cost small = measure(() -> assertThat(transactionService.getTransactionsForUser(userId).transactions()).hasSize(5));
+        post(195);
+        Cost large = measure(() -> assertThat(transactionService.getTransactionsForUser(userId).transactions()).hasSize(200));
+
+        // Only the user check loads entities (the user and its wallet); no transaction is loaded as an entity.
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void pageAndStreamCostTheSameWhateverTheHistorySize() {
+        post(5);
+        Cost smallPage = measure(() -> transactionService.getTransactionPage(userId, null, 50));
+        Cost smallStream = measure(() -> transactionService.streamTransactions(userId, tx -> { }));
+        post(195);
+        Cost largePage = measure(() -> {
+            TransactionPage first = transactionService.getTransactionPage(userId, null, 50);
+            assertThat(first.transactions()).hasSize(50);
+        });
+        List<Object> streamed = new ArrayList<>();
+        Cost largeStream = measure(() -> transactionService.streamTransactions(userId, streamed::add));
+
+        assertThat(largePage).isEqualTo(smallPage);
+        assertThat(largeStream).isEqualTo(smallStream);
+        assertThat(streamed).hasSize(200);
+        assertThat(largeStream.entitiesLoaded()).isZero();
+    }
+
+    private void post(int count) {
+        for (int i = 0; i < count; i++) {
+            transactionService.credit(userId, ONE, null);
+        }
+    }
+
+    private Cost measure(Runnable read) {
+        statistics.clear();
+        read.run();
+        return new Cost(statistics.getPrepareStatementCount(), statistics.getEntityLoadCount(),
+                statistics.getCollectionLoadCount());
+    }
+
+    private record Cost(long statements, long entitiesLoaded, long collectionsLoaded) {
+    }
+}
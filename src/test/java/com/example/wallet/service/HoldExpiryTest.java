@@ -0,0 +1,76 @@
+package com.example.wallet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.wallet.model.Money;
+import com.example.wallet.model.Transaction;
+import com.example.wallet.model.enums.TransactionStatus;
+import com.example.wallet.repository.TransactionRepository;
+import com.example.wallet.repository.WalletRepository;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "app.holds.expiry.tick-ms=50"})
+@ActiveProfiles("inprocess")
+class HoldExpiryTest {
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    @Test
+    void holdsExpireWhileSpringsSchedulerIsBusy() throws Exception {
+        Long userId = userService.createUser("expiring", UUID.randomUUID() + "@example.com").getId();
+        transactionService.credit(userId, Money.of(new BigDecimal("10")), null);
+
+        // Occupy every scheduler thread, as a slow outbox relay or journal replay would.
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < taskScheduler.getPoolSize(); i++) {
+            taskScheduler.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        try {
+            Transaction hold = holdService.authorize(userId, Money.of(new BigDecimal("4")), 100L, null);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (status(hold) == TransactionStatus.PENDING && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+
+            assertThat(status(hold)).isEqualTo(TransactionStatus.EXPIRED);
+            assertThat(walletRepository.findByUserId(userId).orElseThrow().getHeld()).isZero();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private TransactionStatus status(Transaction hold) {
+        return transactionRepository.findById(hold.getId()).orElseThrow().getStatus();
+    }
+}
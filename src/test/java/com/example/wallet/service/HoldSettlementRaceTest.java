@@ -0,0 +1,110 @@
+package com.example.wallet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.wallet.exception.HoldNotPendingException;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.PendingHold;
+import com.example.wallet.model.Transaction;
+import com.example.wallet.model.Wallet;
+import com.example.wallet.model.enums.TransactionStatus;
+import com.example.wallet.repository.TransactionRepository;
+import com.example.wallet.repository.WalletRepository;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Capture, void and expiry of one hold, started together around its expiry: exactly one of them settles it, and
+ * the wallet reflects that one. The expiry ticker is slowed down so only the test expires holds.
+ */
+@SpringBootTest(properties = {"spring.jpa.show-sql=false", "app.holds.expiry.tick-ms=3600000"})
+@ActiveProfiles("inprocess")
+class HoldSettlementRaceTest {
+
+    private static final long TTL_MS = 30;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(3);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void exactlyOneSettlementWins() throws Exception {
+        Long userId = userService.createUser("racing", UUID.randomUUID() + "@example.com").getId();
+        long amount = Money.of(new BigDecimal("5"));
+        long balance = Money.of(new BigDecimal("1000"));
+        transactionService.credit(userId, balance, null);
+
+        for (int round = 0; round < 40; round++) {
+            Transaction hold = holdService.authorize(userId, amount, TTL_MS, null);
+            PendingHold pending = new PendingHold(hold.getId(), userId, hold.getExpiresAt());
+            // Spread the start over the expiry, so each of the three gets to win some rounds.
+            Thread.sleep(TTL_MS - 10 + round % 20);
+
+            CountDownLatch start = new CountDownLatch(1);
+            Future<Boolean> captured = pool.submit(settles(start, () -> holdService.capture(userId, hold.getId())));
+            Future<Boolean> voided = pool.submit(settles(start, () -> holdService.voidHold(userId, hold.getId())));
+            Future<Integer> expired = pool.submit(() -> {
+                start.await();
+                return holdService.expire(List.of(pending));
+            });
+            start.countDown();
+
+            int winners = (captured.get() ? 1 : 0) + (voided.get() ? 1 : 0) + expired.get();
+            assertThat(winners).as("round %s", round).isEqualTo(1);
+
+            TransactionStatus status = transactionRepository.findById(hold.getId()).orElseThrow().getStatus();
+            if (captured.get()) {
+                assertThat(status).isEqualTo(TransactionStatus.SUCCESS);
+                balance = Money.subtract(balance, amount);
+            } else if (voided.get()) {
+                assertThat(status).isEqualTo(TransactionStatus.VOIDED);
+            } else {
+                assertThat(status).isEqualTo(TransactionStatus.EXPIRED);
+            }
+            Wallet wallet = walletRepository.findByUserId(userId).orElseThrow();
+            assertThat(wallet.getHeld()).as("round %s", round).isZero();
+            assertThat(wallet.getBalance()).as("round %s", round).isEqualTo(balance);
+        }
+    }
+
+    private static Callable<Boolean> settles(CountDownLatch start, Callable<Transaction> settlement) {
+        return () -> {
+            start.await();
+            try {
+                settlement.call();
+                return true;
+            } catch (HoldNotPendingException ex) {
+                return false;
+            }
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.wallet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.wallet.model.id.Snowflake;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ShardRoutingTest {
+
+    private static final List<String> TWO = List.of("jdbc:shard0", "jdbc:shard1");
+    private static final List<String> THREE = List.of("jdbc:shard0", "jdbc:shard1", "jdbc:shard2");
+
+    /** Ids are Snowflake ids, far above the ring points' own inputs. */
+    private static final long FIRST_ID = Snowflake.forNode(0).nextId();
+
+    @Test
+    void withoutShardingEveryUserIsOnShardZero() {
+        ShardRouting routing = new ShardRouting(false, TWO, 128);
+
+        assertThat(routing.shardCount()).isEqualTo(1);
+        assertThat(LongStream.range(FIRST_ID, FIRST_ID + 1000).map(id -> routing.shardOf(id)).distinct()).containsExactly(0L);
+    }
+
+    @Test
+    void spreadsSequentialIdsOverAllShards() {
+        ShardRouting routing = new ShardRouting(true, TWO, 128);
+
+        long onFirst = LongStream.range(FIRST_ID, FIRST_ID + 10_000).filter(id -> routing.shardOf(id) == 0).count();
+        assertThat(onFirst).isBetween(3_000L, 7_000L);
+        assertThat(routing.shardOf(FIRST_ID)).isEqualTo(new ShardRouting(true, TWO, 128).shardOf(FIRST_ID));
+    }
+
+    @Test
+    void appendingAShardOnlyMovesUsersOntoIt() {
+        ShardRouting two = new ShardRouting(true, TWO, 128);
+        ShardRouting three = new ShardRouting(true, THREE, 128);
+
+        long moved = 0;
+        for (long id = FIRST_ID; id < FIRST_ID + 10_000; id++) {
+            if (three.shardOf(id) != two.shardOf(id)) {
+                assertThat(three.shardOf(id)).isEqualTo(2);
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(1_500L, 5_000L);
+    }
+
+    @Test
+    void partitionGroupsByShardInShardOrderKeepingOrderWithinAShard() {
+        ShardRouting routing = new ShardRouting(true, TWO, 128);
+        List<Long> userIds = LongStream.range(FIRST_ID, FIRST_ID + 50).boxed().toList();
+
+        Map<Integer, List<Long>> byShard = routing.partition(userIds, Long::valueOf);
+
+        assertThat(byShard.keySet()).containsExactly(0, 1);
+        byShard.forEach((shard, onShard) -> {
+            assertThat(onShard).allMatch(id -> routing.shardOf(id) == shard);
+            assertThat(onShard).isSorted();
+        });
+        assertThat(byShard.values().stream().mapToInt(List::size).sum()).isEqualTo(userIds.size());
+    }
+
+    @Test
+    void bindingsNestAndRestoreThePreviousShard() {
+        ShardRouting routing = new ShardRouting(true, TWO, 128);
+
+        assertThat(ShardRouting.currentShard()).isZero();
+        try (ShardRouting.Binding outer = routing.bind(1)) {
+            assertThat(ShardRouting.currentShard()).isEqualTo(1);
+            try (ShardRouting.Binding inner = routing.bind(0)) {
+                assertThat(ShardRouting.currentShard()).isZero();
+            }
+            assertThat(ShardRouting.currentShard()).isEqualTo(1);
+        }
+        assertThat(ShardRouting.currentShard()).isZero();
+    }
+
+    @Test
+    void refusesToSwitchShardsInsideATransaction() {
+        ShardRouting routing = new ShardRouting(true, TWO, 128);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            // Staying on the current shard is allowed.
+            routing.bind(0).close();
+            assertThatThrownBy(() -> routing.bind(1)).isInstanceOf(IllegalStateException.class);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.wallet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.wallet.exception.CrossShardTransferException;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.enums.TransactionType;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * The application on two H2 shard databases: users land on the shard {@link ShardRouting} picks for them, and
+ * {@link ShardKey} service methods read and write on that shard.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles({"inprocess", "shards"})
+class ShardingTest {
+
+    @Autowired
+    private ShardRouting shardRouting;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Value("${app.sharding.urls}")
+    private List<String> shardUrls;
+
+    /** One user on each shard, keyed by shard. */
+    private final Map<Integer, Long> users = new HashMap<>();
+
+    @BeforeEach
+    void createAUserOnEachShard() {
+        assertThat(shardRouting.shardCount()).isEqualTo(2);
+        while (users.size() < 2) {
+            Long userId = userService.createUser("sharded", UUID.randomUUID() + "@example.com").getId();
+            users.putIfAbsent(shardRouting.shardOf(userId), userId);
+        }
+    }
+
+    @Test
+    void eachUserAndWalletLivesOnlyOnItsShard() throws SQLException {
+        for (Map.Entry<Integer, Long> user : users.entrySet()) {
+            int home = user.getKey();
+            int other = 1 - home;
+            assertThat(count(home, "select count(*) from users where id = ?", user.getValue())).isEqualTo(1);
+            assertThat(count(home, "select count(*) from wallets where user_id = ?", user.getValue())).isEqualTo(1);
+            assertThat(count(other, "select count(*) from users where id = ?", user.getValue())).isZero();
+            assertThat(count(other, "select count(*) from wallets where user_id = ?", user.getValue())).isZero();
+        }
+    }
+
+    @Test
+    void shardKeyMethodsWriteAndReadOnTheUsersShard() throws SQLException {
+        Long first = users.get(0);
+        Long second = users.get(1);
+        transactionService.credit(first, Money.of(new BigDecimal("30")), null);
+        transactionService.credit(second, Money.of(new BigDecimal("7")), null);
+        transactionService.debit(second, Money.of(new BigDecimal("2")), null);
+
+        assertThat(walletService.getBalance(first, true)).isEqualByComparingTo("30");
+        assertThat(walletService.getBalance(second, true)).isEqualByComparingTo("5");
+        assertThat(transactionService.getTransactionsForUser(second).transactions()).hasSize(2);
+        assertThat(count(1, "select count(*) from transactions t join wallets w on t.wallet_id = w.id where w.user_id = ?",
+                second)).isEqualTo(2);
+        assertThat(count(0, "select count(*) from transactions t join wallets w on t.wallet_id = w.id where w.user_id = ?",
+                second)).isZero();
+    }
+
+    @Test
+    void batchesSpanShardsAndTransfersDoNot() {
+        Long first = users.get(0);
+        Long second = users.get(1);
+        long ten = Money.of(BigDecimal.TEN);
+
+        List<PostingResult> results = transactionService.applyBatch(List.of(
+                new Posting(first, ten, TransactionType.CREDIT, null),
+                new Posting(second, ten, TransactionType.CREDIT, null)));
+        assertThat(results).allMatch(result -> result.error() == null);
+        assertThat(walletService.getBalance(first, true)).isEqualByComparingTo("10");
+        assertThat(walletService.getBalance(second, true)).isEqualByComparingTo("10");
+
+        assertThatThrownBy(() -> transactionService.transfer(first, second, ten))
+                .isInstanceOf(CrossShardTransferException.class);
+    }
+
+    private long count(int shard, String sql, Long userId) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(shardUrls.get(shard), "sa", "");
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, userId);
+            try (ResultSet rows = statement.executeQuery()) {
+                rows.next();
+                return rows.getLong(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.wallet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.wallet.model.BalanceSnapshot;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.WalletSlot;
+import com.example.wallet.model.enums.TransactionType;
+import com.example.wallet.repository.WalletRepository;
+import com.example.wallet.repository.WalletSlotRepository;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * A wallet striped by another node: this node remembers it as unstriped, yet its balances and versions must
+ * include the slots. The other node is a second {@link BalanceStriping} over the same database.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("inprocess")
+class StripedBalanceAcrossNodesTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BalanceStriping balanceStriping;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private WalletSlotRepository slotRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private BalanceStriping otherNode;
+
+    private Long userId;
+
+    private Long walletId;
+
+    @BeforeEach
+    void stripeOnAnotherNode() {
+        otherNode = new BalanceStriping(walletRepository, slotRepository, 64, 1000, 60000);
+        userId = userService.createUser("striped-elsewhere", UUID.randomUUID() + "@example.com").getId();
+        walletId = walletService.getWalletId(userId);
+        transactionService.credit(userId, units(10), null);
+        assertThat(balanceStriping.isStriped(walletId)).isFalse();
+        assertThat(walletService.getBalance(userId, false)).isEqualByComparingTo("10");
+
+        transactionTemplate.executeWithoutResult(status -> otherNode.stripe(walletId, 4));
+        transactionTemplate.executeWithoutResult(status -> otherNode.credit(walletId, units(5)));
+    }
+
+    @Test
+    void balanceAndVersionIncludeSlotsThisNodeDoesNotKnowOf() {
+        long versionBefore = walletService.getBalanceVersion(userId, false);
+        // What the transaction event consumer does for another node's write.
+        walletService.refreshCachedBalances(List.of(userId));
+
+        assertThat(balanceStriping.isStriped(walletId)).isFalse();
+        BalanceSnapshot cached = walletService.getBalanceSnapshot(userId, false);
+        assertThat(cached.balance()).isEqualTo(units(15));
+        assertThat(cached.version()).isGreaterThan(versionBefore);
+        assertThat(walletService.getBalanceSnapshot(userId, true)).isEqualTo(cached);
+        assertThat(walletService.getBalanceVersion(userId, true)).isEqualTo(cached.version());
+        assertThat(walletService.getHistoryVersion(userId)).isEqualTo(cached.version());
+    }
+
+    @Test
+    void writesOnThisNodeReportTheSlotsToo() {
+        // Still believed unstriped here, so the credit goes to the row; the balance it reports includes the slots.
+        transactionService.credit(userId, units(1), null);
+        assertThat(walletService.getBalance(userId, false)).isEqualByComparingTo("16");
+
+        Long payeeId = userService.createUser("payee", UUID.randomUUID() + "@example.com").getId();
+        transactionService.transfer(userId, payeeId, units(2));
+        assertThat(walletService.getBalance(userId, false)).isEqualByComparingTo("14");
+
+        transactionService.applyBatch(List.of(new Posting(userId, units(3), TransactionType.DEBIT, null)));
+        assertThat(walletService.getBalance(userId, false)).isEqualByComparingTo("11");
+        assertThat(walletService.getBalance(userId, true)).isEqualByComparingTo("11");
+    }
+
+    @Test
+    void slotCreditsRefreshTheCacheOnceCommitted() {
+        walletService.getBalance(userId, false);
+        walletService.refreshCachedBalances(List.of(userId));
+        // Once this node learns of the stripes, its credits go to the slots.
+        balanceStriping.stripe(walletId, 4);
+        transactionService.credit(userId, units(7), null);
+
+        assertThat(slotRepository.findAll().stream().filter(slot -> slot.getWalletId().equals(walletId))
+                .mapToLong(WalletSlot::getBalance).reduce(Money.ZERO, Money::add)).isEqualTo(units(12));
+        assertThat(walletService.getBalance(userId, false)).isEqualByComparingTo("22");
+    }
+
+    private static long units(long amount) {
+        return Money.of(BigDecimal.valueOf(amount));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.wallet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+    private static final long TICK = 10;
+
+    /** Level 0 spans 80 ms, level 1 640 ms, level 2 5120 ms, level 3 40960 ms. */
+    private static final int SIZE = 8;
+
+    @Test
+    void firesEveryEntryOnceWithinATickAfterItsDeadlineAcrossLevels() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, SIZE, 0);
+        Random random = new Random(42);
+        Map<Long, Long> deadlines = new HashMap<>();
+        for (long item = 0; item < 2_000; item++) {
+            long deadline = random.nextLong(100_000);
+            deadlines.put(item, deadline);
+            wheel.schedule(item, deadline);
+        }
+
+        Map<Long, Long> firedAt = new HashMap<>();
+        for (long now = 0; now <= 100_000 + TICK; now += TICK) {
+            long at = now;
+            wheel.advance(now, item -> assertThat(firedAt.put(item, at)).as("fired twice: %s", item).isNull());
+        }
+
+        assertThat(firedAt).hasSize(deadlines.size());
+        assertThat(wheel.size()).isZero();
+        deadlines.forEach((item, deadline) -> assertThat(firedAt.get(item))
+                .as("item %s with deadline %s", item, deadline)
+                .isGreaterThanOrEqualTo(deadline)
+                .isLessThanOrEqualTo(deadline + TICK));
+    }
+
+    @Test
+    void neverFiresEarlyWhenTheClockJumps() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, SIZE, 0);
+        // One entry per level, plus one just past a level boundary.
+        long[] deadlines = {35, 80, 700, 5_200, 41_000, 41_009};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+
+        List<Long> fired = new ArrayList<>();
+        long[] jumps = {30, 79, 699, 5_150, 40_999, 41_005, 41_010, 41_020};
+        for (long now : jumps) {
+            wheel.advance(now, item -> {
+                assertThat(item).as("fired at %s", now).isLessThanOrEqualTo(now);
+                fired.add(item);
+            });
+        }
+
+        assertThat(fired).containsExactly(35L, 80L, 700L, 5_200L, 41_000L, 41_009L);
+    }
+
+    @Test
+    void cancelledEntriesNeverFire() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, SIZE, 0);
+        List<TimingWheel.Entry<Long>> entries = new ArrayList<>();
+        for (long item = 0; item < 100; item++) {
+            entries.add(wheel.schedule(item, item * 97));
+        }
+        Set<Long> cancelled = new HashSet<>();
+        for (int i = 0; i < entries.size(); i += 3) {
+            assertThat(wheel.cancel(entries.get(i))).isTrue();
+            assertThat(wheel.cancel(entries.get(i))).isFalse();
+            cancelled.add(entries.get(i).item());
+        }
+        assertThat(wheel.size()).isEqualTo(100 - cancelled.size());
+
+        Set<Long> fired = new HashSet<>();
+        wheel.advance(100 * 97 + TICK, fired::add);
+
+        assertThat(fired).doesNotContainAnyElementsOf(cancelled).hasSize(100 - cancelled.size());
+        // A fired entry can no longer be cancelled.
+        assertThat(wheel.cancel(entries.get(1))).isFalse();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, SIZE, 1_000);
+        wheel.schedule("late", 10);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(1_005, fired::add);
+        assertThat(fired).isEmpty();
+        wheel.advance(1_010, fired::add);
+        assertThat(fired).containsExactly("late");
+    }
+}
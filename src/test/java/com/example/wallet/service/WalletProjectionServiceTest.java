@@ -0,0 +1,95 @@
+package com.example.wallet.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.wallet.kafka.TransactionEvent;
+import com.example.wallet.model.Money;
+import com.example.wallet.model.enums.TransactionStatus;
+import com.example.wallet.model.enums.TransactionType;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Projected event ids are only kept while the event could still be redelivered. Holds count once captured.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "app.projection.dedupe-retention-hours=24"
+})
+@ActiveProfiles("inprocess")
+class WalletProjectionServiceTest {
+
+    @Autowired
+    private WalletProjectionService walletProjectionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long userId;
+
+    private Long walletId;
+
+    @BeforeEach
+    void setUp() {
+        userId = userService.createUser("projection", UUID.randomUUID() + "@example.com").getId();
+        walletId = walletService.getWalletId(userId);
+    }
+
+    @Test
+    void idsPastTheRetentionArePurgedAndRecentOnesStillDropRedeliveries() {
+        TransactionEvent old = event();
+        TransactionEvent recent = event();
+        assertThat(walletProjectionService.apply(List.of(old, recent))).isEqualTo(2);
+        jdbcTemplate.update("update projected_transactions set projected_at = ? where transaction_id = ?",
+                Timestamp.from(Instant.now().minus(Duration.ofHours(25))), old.getTransactionId());
+
+        walletProjectionService.purgeProjected();
+
+        assertThat(projected(old)).isZero();
+        assertThat(projected(recent)).isOne();
+        assertThat(walletProjectionService.apply(List.of(recent))).isZero();
+        assertThat(walletProjectionService.getStats(userId).getTransactionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void aHoldCountsOnceCapturedUnderTheSameId() {
+        long holdId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+        Instant placedAt = Instant.now();
+        TransactionEvent placed = new TransactionEvent(holdId, userId, walletId, Money.of(BigDecimal.TEN),
+                TransactionType.DEBIT, placedAt, TransactionStatus.PENDING, 1);
+        TransactionEvent captured = new TransactionEvent(holdId, userId, walletId, Money.of(BigDecimal.TEN),
+                TransactionType.DEBIT, placedAt, TransactionStatus.SUCCESS, 2);
+
+        assertThat(walletProjectionService.apply(List.of(placed))).isZero();
+        assertThat(projected(placed)).isZero();
+        assertThat(walletProjectionService.apply(List.of(captured))).isOne();
+        assertThat(walletProjectionService.getStats(userId).getBalance()).isEqualByComparingTo("-10");
+    }
+
+    private int projected(TransactionEvent event) {
+        return jdbcTemplate.queryForObject("select count(*) from projected_transactions where transaction_id = ?",
+                Integer.class, event.getTransactionId());
+    }
+
+    private TransactionEvent event() {
+        return new TransactionEvent(ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE), userId, walletId,
+                Money.of(BigDecimal.ONE), TransactionType.CREDIT, Instant.now());
+    }
+}